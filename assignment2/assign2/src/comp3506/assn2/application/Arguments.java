@@ -0,0 +1,43 @@
+package comp3506.assn2.application;
+
+/**
+ * The argument checks of the Search operations, shared by every Search in
+ * this package so they all reject the same arguments (see the javadoc of
+ * Search for which those are).
+ */
+class Arguments {
+
+	/**
+	 * O(w) where w is the number of words
+	 *
+	 * @param words
+	 *            Search words
+	 * @throws IllegalArgumentException
+	 *             if words is null or an empty array or any of the Strings in
+	 *             it are null or empty.
+	 */
+	static void checkWords(String[] words)
+			throws IllegalArgumentException {
+		if (words == null || words.length == 0)
+			throw new IllegalArgumentException();
+		checkStrings(words);
+	}
+
+	/**
+	 * O(s) where s is the number of Strings
+	 *
+	 * @param strings
+	 *            Section titles or search words, may be null
+	 * @throws IllegalArgumentException
+	 *             if any of the Strings in the array are null or empty.
+	 */
+	static void checkStrings(String[] strings)
+			throws IllegalArgumentException {
+		if (strings == null)
+			return;
+		for (String string : strings) {
+			if (string == null || string.isEmpty())
+				throw new IllegalArgumentException();
+		}
+	}
+}
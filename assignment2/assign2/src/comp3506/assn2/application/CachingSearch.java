@@ -0,0 +1,339 @@
+package comp3506.assn2.application;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Triple;
+
+/**
+ * A Search that remembers the results of recent queries, in front of another
+ * Search.
+ *
+ * Queries are keyed by operation and normalised arguments: words are lower
+ * cased (the index is, so the words are lower cased before being passed on
+ * too), and the word arrays of the line searches are sorted, as their results
+ * don't depend on the order of the words. Section titles and the word order of
+ * the section searches are kept as given.
+ *
+ * The cache is bounded by the estimated size of the results it holds, and the
+ * least recently used results are evicted first. Results are handed out
+ * read-only, as they are shared between callers. All methods are thread safe.
+ */
+public class CachingSearch implements Search {
+	// Estimated bytes of a cache entry, besides its key and result
+	private static final long ENTRY_BYTES = 64;
+	// Estimated bytes of each element of a result (a packed occurrence or line
+	// in a view, or a Triple and its boxed values)
+	private static final long OCCURRENCE_BYTES = 8;
+	private static final long LINE_BYTES = 4;
+	private static final long TRIPLE_BYTES = 80;
+
+	// Separates the parts of a key (can't be part of a word or title)
+	private static final char SEPARATOR = '\u0000';
+
+	// Where queries not in the cache go
+	private final Search search;
+	// Most the estimated size of the cached results may add up to
+	private final long capacity;
+	// Cached results, least recently used first
+	private final LinkedHashMap<String, Entry> cache;
+	// Estimated size of the cached results
+	private long size;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param search
+	 *            Where queries not in the cache go
+	 * @param capacity
+	 *            Most bytes the cached results may add up to (estimated)
+	 */
+	public CachingSearch(Search search, long capacity) {
+		this.search = search;
+		this.capacity = capacity;
+		// Access order: iteration starts at the least recently used
+		cache = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of queries answered from the cache
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of queries passed on
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of results evicted to make room
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The estimated size of the cached results, in bytes
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * O(e) where e is the number of cached results
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		size = 0;
+	}
+
+	@Override
+	public int wordCount(String word) throws IllegalArgumentException {
+		String normal = lower(word);
+		return cached(key("wordCount", normal), () -> search.wordCount(normal),
+				0);
+	}
+
+	@Override
+	public List<Pair<Integer, Integer>> phraseOccurrence(String phrase)
+			throws IllegalArgumentException {
+		String normal = lower(phrase);
+		return cached(key("phraseOccurrence", normal),
+				() -> readOnly(search.phraseOccurrence(normal)),
+				OCCURRENCE_BYTES);
+	}
+
+	@Override
+	public List<Pair<Integer, Integer>> prefixOccurrence(String prefix)
+			throws IllegalArgumentException {
+		String normal = lower(prefix);
+		return cached(key("prefixOccurrence", normal),
+				() -> readOnly(search.prefixOccurrence(normal)),
+				OCCURRENCE_BYTES);
+	}
+
+	@Override
+	public List<Integer> wordsOnLine(String[] words)
+			throws IllegalArgumentException {
+		// Checked before the key is made (a null array has no key)
+		Arguments.checkWords(words);
+		String[] normal = sorted(lower(words));
+		return cached(key("wordsOnLine", (Object) normal),
+				() -> readOnly(search.wordsOnLine(normal)), LINE_BYTES);
+	}
+
+	@Override
+	public List<Integer> someWordsOnLine(String[] words)
+			throws IllegalArgumentException {
+		// Checked before the key is made (a null array has no key)
+		Arguments.checkWords(words);
+		String[] normal = sorted(lower(words));
+		return cached(key("someWordsOnLine", (Object) normal),
+				() -> readOnly(search.someWordsOnLine(normal)), LINE_BYTES);
+	}
+
+	@Override
+	public List<Integer> wordsNotOnLine(String[] wordsRequired,
+			String[] wordsExcluded) throws IllegalArgumentException {
+		String[] required = sorted(lower(wordsRequired));
+		String[] excluded = sorted(lower(wordsExcluded));
+		return cached(key("wordsNotOnLine", required, excluded),
+				() -> readOnly(search.wordsNotOnLine(required, excluded)),
+				LINE_BYTES);
+	}
+
+	@Override
+	public List<Triple<Integer, Integer, String>> simpleAndSearch(
+			String[] titles, String[] words) throws IllegalArgumentException {
+		String[] normal = lower(words);
+		return cached(key("simpleAndSearch", titles, normal),
+				() -> readOnly(search.simpleAndSearch(titles, normal)),
+				TRIPLE_BYTES);
+	}
+
+	@Override
+	public List<Triple<Integer, Integer, String>> simpleOrSearch(
+			String[] titles, String[] words) throws IllegalArgumentException {
+		String[] normal = lower(words);
+		return cached(key("simpleOrSearch", titles, normal),
+				() -> readOnly(search.simpleOrSearch(titles, normal)),
+				TRIPLE_BYTES);
+	}
+
+	@Override
+	public List<Triple<Integer, Integer, String>> simpleNotSearch(
+			String[] titles, String[] wordsRequired, String[] wordsExcluded)
+			throws IllegalArgumentException {
+		String[] required = lower(wordsRequired);
+		String[] excluded = lower(wordsExcluded);
+		return cached(key("simpleNotSearch", titles, required, excluded),
+				() -> readOnly(
+						search.simpleNotSearch(titles, required, excluded)),
+				TRIPLE_BYTES);
+	}
+
+	@Override
+	public List<Triple<Integer, Integer, String>> compoundAndOrSearch(
+			String[] titles, String[] wordsRequired, String[] orWords)
+			throws IllegalArgumentException {
+		String[] required = lower(wordsRequired);
+		String[] optional = lower(orWords);
+		return cached(key("compoundAndOrSearch", titles, required, optional),
+				() -> readOnly(
+						search.compoundAndOrSearch(titles, required, optional)),
+				TRIPLE_BYTES);
+	}
+
+	/**
+	 * Looks a query up in the cache, running it (and caching the result) if
+	 * it isn't there. Exceptions are passed on, and nothing is cached for
+	 * them.
+	 *
+	 * O(k) where k is the length of the key on a hit (plus the cost of the
+	 * query on a miss)
+	 *
+	 * @param key
+	 *            The query's key (see key)
+	 * @param query
+	 *            Runs the query
+	 * @param elementBytes
+	 *            Estimated bytes per element of the result (0 if it isn't a
+	 *            list)
+	 * @return The result
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T cached(String key, Supplier<T> query, long elementBytes) {
+		synchronized (this) {
+			Entry entry = cache.get(key);
+			if (entry != null) {
+				++hits;
+				return (T) entry.result;
+			}
+			++misses;
+		}
+		// Run outside the lock, so slow queries don't hold up others
+		T result = query.get();
+		long bytes = ENTRY_BYTES + key.length() * 2;
+		if (result instanceof List) {
+			bytes += ((List<?>) result).size() * elementBytes;
+		}
+
+		synchronized (this) {
+			if (bytes > capacity) {
+				// Would push everything else out
+				return result;
+			}
+			Entry old = cache.put(key, new Entry(result, bytes));
+			if (old != null) {
+				// Another thread ran the same query meanwhile
+				size -= old.bytes;
+			}
+			size += bytes;
+			// Evict the least recently used until it all fits
+			Iterator<Entry> eldest = cache.values().iterator();
+			while (size > capacity) {
+				size -= eldest.next().bytes;
+				eldest.remove();
+				++evictions;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param operation
+	 *            Name of the operation
+	 * @param arguments
+	 *            The normalised arguments (Strings or String arrays, may be
+	 *            null)
+	 * @return A key identifying the query
+	 */
+	private static String key(String operation, Object... arguments) {
+		StringBuilder key = new StringBuilder(operation);
+		for (Object argument : arguments) {
+			key.append(SEPARATOR);
+			if (argument instanceof String[]) {
+				// Length first, so ["a b"] and ["a", "b"] differ
+				String[] strings = (String[]) argument;
+				key.append(strings.length);
+				for (String string : strings) {
+					key.append(SEPARATOR).append(string);
+				}
+			} else {
+				// null arrays and words have their own marker
+				key.append(argument == null ? "\u0001" : argument);
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return The word in lower case (null stays null)
+	 */
+	private static String lower(String word) {
+		return word == null ? null : word.toLowerCase();
+	}
+
+	/**
+	 * @return The words in lower case, in a new array (null stays null)
+	 */
+	private static String[] lower(String[] words) {
+		if (words == null) {
+			return null;
+		}
+		String[] lower = new String[words.length];
+		for (int i = 0; i < words.length; ++i) {
+			lower[i] = lower(words[i]);
+		}
+		return lower;
+	}
+
+	/**
+	 * @return The words, sorted in place (nulls first)
+	 */
+	private static String[] sorted(String[] words) {
+		if (words != null) {
+			Arrays.sort(words, (a, b) -> a == null ? (b == null ? 0 : -1)
+					: b == null ? 1 : a.compareTo(b));
+		}
+		return words;
+	}
+
+	private static <T> List<T> readOnly(List<T> list) {
+		return Collections.unmodifiableList(list);
+	}
+
+	// ##############################################################
+
+	/**
+	 * A cached result and its estimated size.
+	 */
+	private static class Entry {
+		private final Object result;
+		private final long bytes;
+
+		private Entry(Object result, long bytes) {
+			this.result = result;
+			this.bytes = bytes;
+		}
+	}
+}
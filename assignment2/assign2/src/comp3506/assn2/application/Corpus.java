@@ -0,0 +1,511 @@
+package comp3506.assn2.application;
+
+import java.io.FileNotFoundException;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import comp3506.assn2.utils.CompressedTrie;
+import comp3506.assn2.utils.LineList;
+import comp3506.assn2.utils.OccurrenceList;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Sections;
+import comp3506.assn2.utils.StopWords;
+import comp3506.assn2.utils.Tokenizer;
+import comp3506.assn2.utils.Triple;
+
+/**
+ * Performs search operations on many documents through one index.
+ *
+ * The documents are indexed one after another into a single trie, so each
+ * distinct word is stored once however many documents it is in: the memory
+ * used grows with the vocabulary and the number of words, not with the number
+ * of documents. Every document is given its own run of corpus line numbers
+ * (in the order the documents are given, starting at 1), and the document
+ * table maps line numbers back to documents. As each word's postings are in
+ * line order, a document's occurrences of a word are one part of them, found
+ * with a binary search, so a document's postings are tagged by their line
+ * numbers rather than by storing a document id with every occurrence.
+ *
+ * Searches go through a Search view of one document (document()), which
+ * reports the document's own line numbers, or of a set of documents or all of
+ * them (select()), which reports corpus line numbers (see documentOf and
+ * localLine). Phrases are never matched across the end of one document and
+ * the start of the next. Section titles are looked up in each selected
+ * document's own index file.
+ *
+ * As with AutoTester, the fields are final and the index is frozen before the
+ * constructor returns, so a Corpus and its views can be shared by any number
+ * of threads.
+ */
+public class Corpus {
+	// Every word of every document
+	private final CompressedTrie trie;
+	// Every document, with its first corpus line (titled by file name)
+	private final Sections documents;
+	// The corpus line after each document's last line
+	private final int[] endLines;
+	// The sections of each document, in the document's own line numbers
+	private final Sections[] sections;
+
+	/**
+	 * Indexes some documents. If indexFileNames is null, or has a null or
+	 * empty entry, the document has no sections. If stopWordsFileName is null
+	 * or an empty string there are no stop words.
+	 *
+	 * O(n log n) where n is the number of words in all the documents (see
+	 * AutoTester)
+	 *
+	 * @param documentFileNames
+	 *            Names of the files containing the text of the documents.
+	 *            Documents are named by these names.
+	 * @param indexFileNames
+	 *            Name of the file containing the index of sections of each
+	 *            document, in the same order (or null).
+	 * @param stopWordsFileName
+	 *            Name of the file containing the stop words ignored by most
+	 *            searches, in every document.
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be loaded.
+	 * @throws IllegalArgumentException
+	 *             if documentFileNames is null or empty, or has a null, empty
+	 *             or repeated name, or indexFileNames is of another length.
+	 */
+	public Corpus(String[] documentFileNames, String[] indexFileNames,
+			String stopWordsFileName)
+			throws FileNotFoundException, IllegalArgumentException {
+		if (documentFileNames == null || documentFileNames.length == 0
+				|| (indexFileNames != null
+						&& indexFileNames.length != documentFileNames.length))
+			throw new IllegalArgumentException();
+		Arguments.checkStrings(documentFileNames);
+
+		StopWords stopWords = IndexFiles.readStopWords(stopWordsFileName);
+		trie = new CompressedTrie(stopWords);
+		documents = new Sections();
+		endLines = new int[documentFileNames.length];
+		sections = new Sections[documentFileNames.length];
+		int line = 1;
+		for (int document = 0; document < documentFileNames.length;
+				++document) {
+			String name = documentFileNames[document];
+			if (documents.indexOf(name) >= 0)
+				throw new IllegalArgumentException();
+			// Each document starts on the line after the last one's end
+			MappedByteBuffer text = Tokenizer.map(name);
+			Tokenizer.tokenize(text, 0, text.limit(), line, trie);
+			documents.add(name, line);
+			line += Tokenizer.lineCount(text, 0, text.limit());
+			endLines[document] = line;
+			sections[document] = IndexFiles.readSections(
+					indexFileNames == null ? null : indexFileNames[document]);
+		}
+		// Nothing more is added: drop the linked nodes for the array form
+		trie.freeze();
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of documents
+	 */
+	public int size() {
+		return endLines.length;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param document
+	 *            A document's index (in the order they were given)
+	 * @return The document's name
+	 */
+	public String documentName(int document) {
+		return documents.title(document);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param document
+	 *            A document's index
+	 * @return The corpus line number of the document's first line
+	 */
+	public int firstLine(int document) {
+		return documents.startLine(document);
+	}
+
+	/**
+	 * Finds the document a corpus line (as reported by a select() view)
+	 * belongs to.
+	 *
+	 * O(log d) where d is the number of documents
+	 *
+	 * @param line
+	 *            A corpus line number
+	 * @return The index of the document, or -1 if no document has the line
+	 */
+	public int documentOf(int line) {
+		int document = documents.sectionOf(line);
+		if (document < 0 || line >= endLines[document]) {
+			return -1;
+		}
+		return document;
+	}
+
+	/**
+	 * O(log d) where d is the number of documents
+	 *
+	 * @param line
+	 *            A corpus line number
+	 * @return The line's number within its document, or -1 if no document
+	 *         has the line
+	 */
+	public int localLine(int line) {
+		int document = documentOf(line);
+		if (document < 0) {
+			return -1;
+		}
+		return line - firstLine(document) + 1;
+	}
+
+	/**
+	 * A view for searching one document, as if it had been indexed on its own
+	 * by an AutoTester: lines are the document's own line numbers.
+	 *
+	 * O(1)
+	 *
+	 * @param documentFileName
+	 *            The document's name
+	 * @return Search operations on the document
+	 * @throws IllegalArgumentException
+	 *             if there is no such document.
+	 */
+	public Search document(String documentFileName)
+			throws IllegalArgumentException {
+		int document = documents.indexOf(documentFileName);
+		if (document < 0)
+			throw new IllegalArgumentException();
+		return new Selection(new int[] { document }, true);
+	}
+
+	/**
+	 * A view for searching some of the documents together. Lines are corpus
+	 * line numbers (see documentOf and localLine), and results are in corpus
+	 * order, so each document's results come together.
+	 *
+	 * O(d log d) where d is the number of documents
+	 *
+	 * @param documentFileNames
+	 *            Names of the documents to search. Every document is
+	 *            searched if documentFileNames is null or an empty array.
+	 *            Unknown names are ignored.
+	 * @return Search operations on the documents
+	 */
+	public Search select(String... documentFileNames) {
+		int[] selected;
+		if (documentFileNames == null || documentFileNames.length == 0) {
+			selected = new int[size()];
+			for (int document = 0; document < selected.length; ++document) {
+				selected[document] = document;
+			}
+		} else {
+			selected = new int[documentFileNames.length];
+			int count = 0;
+			for (String name : documentFileNames) {
+				int document = documents.indexOf(name);
+				if (document >= 0) {
+					selected[count++] = document;
+				}
+			}
+			// In corpus order, each document once
+			Arrays.sort(selected, 0, count);
+			int distinct = 0;
+			for (int i = 0; i < count; ++i) {
+				if (distinct == 0 || selected[distinct - 1] != selected[i]) {
+					selected[distinct++] = selected[i];
+				}
+			}
+			selected = Arrays.copyOf(selected, distinct);
+		}
+		return new Selection(selected, false);
+	}
+
+	/**
+	 * O(log n) where n is the number of lines
+	 *
+	 * @param lines
+	 *            Lines in ascending order
+	 * @param line
+	 *            A line number
+	 * @return Index of the first line at or after 'line' (lines.size() if
+	 *         there is none)
+	 */
+	private static int lowerBound(LineList lines, int line) {
+		int low = 0;
+		int high = lines.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (lines.lineAt(middle) < line) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+	// ##############################################################
+
+	/**
+	 * Search operations on some of the documents: each query is run on the
+	 * shared index within the documents' line intervals only, and the lines
+	 * found are moved to the document's own numbering for a single-document
+	 * view.
+	 */
+	private class Selection implements Search {
+		// Indices of the documents, in corpus order
+		private final int[] selected;
+		// Subtracted from corpus lines (0 unless a single-document view)
+		private final int shift;
+
+		private Selection(int[] selected, boolean local) {
+			this.selected = selected;
+			shift = local ? firstLine(selected[0]) - 1 : 0;
+		}
+
+		// See javadoc of CDT
+		@Override
+		public int wordCount(String word) throws IllegalArgumentException {
+			if (word == null || word.isEmpty())
+				throw new IllegalArgumentException();
+			int count = 0;
+			for (int document : selected) {
+				count += trie.count(word, firstLine(document),
+						endLines[document]);
+			}
+			return count;
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Pair<Integer, Integer>> phraseOccurrence(String phrase)
+				throws IllegalArgumentException {
+			if (phrase == null || phrase.isEmpty())
+				throw new IllegalArgumentException();
+			// delimit the phrase using space
+			String[] splitPhrase = phrase.split(" ");
+			OccurrenceList[] parts = new OccurrenceList[selected.length];
+			for (int i = 0; i < selected.length; ++i) {
+				parts[i] = trie.findPhrase(splitPhrase,
+						firstLine(selected[i]), endLines[selected[i]]);
+			}
+			return shifted(parts);
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Pair<Integer, Integer>> prefixOccurrence(String prefix)
+				throws IllegalArgumentException {
+			if (prefix == null || prefix.isEmpty())
+				throw new IllegalArgumentException();
+			OccurrenceList[] parts = new OccurrenceList[selected.length];
+			for (int i = 0; i < selected.length; ++i) {
+				parts[i] = trie.findPrefix(prefix, firstLine(selected[i]),
+						endLines[selected[i]]);
+			}
+			return shifted(parts);
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Integer> wordsOnLine(String[] words)
+				throws IllegalArgumentException {
+			Arguments.checkWords(words);
+			return within(trie.wordsOnLine(words));
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Integer> someWordsOnLine(String[] words)
+				throws IllegalArgumentException {
+			Arguments.checkWords(words);
+			return within(trie.someWordsOnLine(words));
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Integer> wordsNotOnLine(String[] wordsRequired,
+				String[] wordsExcluded) throws IllegalArgumentException {
+			Arguments.checkWords(wordsRequired);
+			Arguments.checkWords(wordsExcluded);
+			return within(trie.wordsNotOnLine(wordsRequired, wordsExcluded));
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Triple<Integer, Integer, String>> simpleAndSearch(
+				String[] titles, String[] words)
+				throws IllegalArgumentException {
+			Arguments.checkWords(words);
+			Arguments.checkStrings(titles);
+			return shifted(trie.sectionSearch(intervals(titles), words, null,
+					null));
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Triple<Integer, Integer, String>> simpleOrSearch(
+				String[] titles, String[] words)
+				throws IllegalArgumentException {
+			Arguments.checkWords(words);
+			Arguments.checkStrings(titles);
+			return shifted(trie.sectionSearch(intervals(titles),
+					new String[0], words, null));
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Triple<Integer, Integer, String>> simpleNotSearch(
+				String[] titles, String[] wordsRequired,
+				String[] wordsExcluded) throws IllegalArgumentException {
+			Arguments.checkWords(wordsRequired);
+			Arguments.checkStrings(titles);
+			Arguments.checkStrings(wordsExcluded);
+			return shifted(trie.sectionSearch(intervals(titles),
+					wordsRequired, null, wordsExcluded));
+		}
+
+		// See javadoc of CDT
+		@Override
+		public List<Triple<Integer, Integer, String>> compoundAndOrSearch(
+				String[] titles, String[] wordsRequired, String[] orWords)
+				throws IllegalArgumentException {
+			Arguments.checkWords(wordsRequired);
+			Arguments.checkStrings(titles);
+			Arguments.checkStrings(orWords);
+			return shifted(trie.sectionSearch(intervals(titles),
+					wordsRequired, orWords, null));
+		}
+
+		/**
+		 * Turns section titles into corpus line intervals: each selected
+		 * document's sections with those titles (see Sections.intervals),
+		 * cut off at the end of the document.
+		 *
+		 * O(d * t log t) where d is the number of selected documents and t
+		 * the number of titles
+		 *
+		 * @param titles
+		 *            Titles of the sections to search within. The selected
+		 *            documents are searched whole if titles is null or an
+		 *            empty array.
+		 * @return Flattened [start, end) corpus line intervals, in order
+		 */
+		private int[] intervals(String[] titles) {
+			int[] intervals = new int[0];
+			int size = 0;
+			for (int document : selected) {
+				int[] local = sections[document].intervals(titles);
+				if (size + local.length > intervals.length) {
+					intervals = Arrays.copyOf(intervals,
+							Math.max(intervals.length * 2, size + local.length));
+				}
+				// Local line 1 is the document's first line
+				int offset = firstLine(document) - 1;
+				for (int i = 0; i < local.length; i += 2) {
+					int start = local[i] + offset;
+					int end = local[i + 1] == Integer.MAX_VALUE
+							? endLines[document]
+							: Math.min(local[i + 1] + offset, endLines[document]);
+					if (start < end) {
+						intervals[size++] = start;
+						intervals[size++] = end;
+					}
+				}
+			}
+			return Arrays.copyOf(intervals, size);
+		}
+
+		/**
+		 * Keeps the lines within the selected documents, and moves them to
+		 * the view's numbering. Each document's lines are found with a binary
+		 * search.
+		 *
+		 * O(d log n + r) where d is the number of selected documents, n the
+		 * number of lines and r the number of lines kept
+		 *
+		 * @param lines
+		 *            Corpus lines, in ascending order
+		 * @return The lines kept
+		 */
+		private LineList within(LineList lines) {
+			int[] kept = new int[0];
+			int size = 0;
+			for (int document : selected) {
+				int from = lowerBound(lines, firstLine(document));
+				int to = lowerBound(lines, endLines[document]);
+				if (size + to - from > kept.length) {
+					kept = Arrays.copyOf(kept,
+							Math.max(kept.length * 2, size + to - from));
+				}
+				for (int i = from; i < to; ++i) {
+					kept[size++] = lines.lineAt(i) - shift;
+				}
+			}
+			return size == 0 ? LineList.EMPTY
+					: new LineList(Arrays.copyOf(kept, size));
+		}
+
+		/**
+		 * O(r) where r is the number of occurrences
+		 *
+		 * @param parts
+		 *            Each selected document's occurrences, in corpus lines
+		 * @return The occurrences, one part after another, in the view's
+		 *         numbering
+		 */
+		private OccurrenceList shifted(OccurrenceList[] parts) {
+			if (parts.length == 1 && shift == 0) {
+				return parts[0];
+			}
+			int size = 0;
+			for (OccurrenceList part : parts) {
+				size += part.size();
+			}
+			long[] occurrences = new long[size];
+			// Lines are in the high half of a packed occurrence
+			long offset = (long) shift << 32;
+			int index = 0;
+			for (OccurrenceList part : parts) {
+				for (int i = 0; i < part.size(); ++i) {
+					occurrences[index++] = part.packedAt(i) - offset;
+				}
+			}
+			return new OccurrenceList(occurrences, 0, size);
+		}
+
+		/**
+		 * O(r) where r is the number of results
+		 *
+		 * @param found
+		 *            Results in corpus lines
+		 * @return The results in the view's numbering
+		 */
+		private List<Triple<Integer, Integer, String>> shifted(
+				List<Triple<Integer, Integer, String>> found) {
+			if (shift == 0) {
+				return found;
+			}
+			List<Triple<Integer, Integer, String>> moved = new ArrayList<Triple<Integer, Integer, String>>(
+					found.size());
+			for (Triple<Integer, Integer, String> triple : found) {
+				moved.add(new Triple<Integer, Integer, String>(
+						triple.getLeftValue() - shift, triple.getCentreValue(),
+						triple.getRightValue()));
+			}
+			return moved;
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package comp3506.assn2.application;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import comp3506.assn2.utils.Sections;
+import comp3506.assn2.utils.StopWords;
+
+/**
+ * Reads the stop word and section index files a document is searched with,
+ * for every Search in this package.
+ */
+class IndexFiles {
+
+	/**
+	 * Loads the stop words, if there are any (one per line).
+	 *
+	 * O(s) where s is the size of the file
+	 *
+	 * @param stopWordsFileName
+	 *            Name of the file containing the stop words, or null or an
+	 *            empty string for none.
+	 * @return The stop words
+	 * @throws FileNotFoundException
+	 *             if the file cannot be loaded.
+	 */
+	static StopWords readStopWords(String stopWordsFileName)
+			throws FileNotFoundException {
+		List<String> stopWordList = new ArrayList<String>();
+		if (stopWordsFileName != null && !stopWordsFileName.isEmpty()) {
+			Scanner stopWordScanner = new Scanner(new File(stopWordsFileName));
+			while (stopWordScanner.hasNext()) {
+				stopWordList.add(stopWordScanner.next());
+			}
+			stopWordScanner.close();
+		}
+		return new StopWords(stopWordList.toArray(new String[0]));
+	}
+
+	/**
+	 * Loads the section index, if there is one.
+	 *
+	 * O(b) where b is the size of the file, when the sections are listed in
+	 * order (see Sections.add)
+	 *
+	 * @param indexFileName
+	 *            Name of the file containing the index of sections, or null or
+	 *            an empty string for none.
+	 * @return The sections (empty if there is no index file)
+	 * @throws FileNotFoundException
+	 *             if the file cannot be loaded.
+	 */
+	static Sections readSections(String indexFileName)
+			throws FileNotFoundException {
+		Sections sections = new Sections();
+		if (indexFileName != null && !indexFileName.isEmpty()) {
+			Scanner indexScanner = new Scanner(new File(indexFileName));
+			indexScanner.useDelimiter(System.getProperty("line.separator"));
+			while (indexScanner.hasNext()) {
+				addEntry(sections, indexScanner.next());
+			}
+			indexScanner.close();
+		}
+		return sections;
+	}
+
+	/**
+	 * Adds a section listed as the index files list them.
+	 *
+	 * O(1) (amortised) when the sections are added in order (see
+	 * Sections.add)
+	 *
+	 * @param sections
+	 *            The section table to add to
+	 * @param entry
+	 *            A line of an index file, e.g. "THE TRAGEDY OF HAMLET,22933"
+	 * @return The line the section starts on, or -1 if entry lists no
+	 *         section (it has no comma) and nothing was added
+	 * @throws NumberFormatException
+	 *             if the start line is not a number.
+	 */
+	static int addEntry(Sections sections, String entry)
+			throws NumberFormatException {
+		entry = entry.trim();
+		int comma = entry.lastIndexOf(',');
+		if (comma < 0) {
+			return -1;
+		}
+		int startLine = Integer.parseInt(entry.substring(comma + 1).trim());
+		sections.add(entry.substring(0, comma), startLine);
+		return startLine;
+	}
+}
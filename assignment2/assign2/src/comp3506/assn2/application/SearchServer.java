@@ -0,0 +1,545 @@
+package comp3506.assn2.application;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import comp3506.assn2.utils.LineList;
+import comp3506.assn2.utils.OccurrenceList;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Triple;
+
+/**
+ * Serves every Search operation over HTTP, from one index shared by every
+ * request (AutoTester and ShardedSearch are safe to share, see their
+ * javadoc).
+ *
+ * Each operation is a GET of its name, with its arguments as query
+ * parameters. A parameter that takes an array is repeated, once per word (or
+ * title), and an array given no values is empty (no titles means the whole
+ * document):
+ *
+ * /wordCount?word=w
+ * /phraseOccurrence?phrase=p
+ * /prefixOccurrence?prefix=p
+ * /wordsOnLine?word=w1&word=w2
+ * /someWordsOnLine?word=w1&word=w2
+ * /wordsNotOnLine?required=w1&excluded=w2
+ * /simpleAndSearch?title=t&word=w1&word=w2
+ * /simpleOrSearch?title=t&word=w1&word=w2
+ * /simpleNotSearch?title=t&required=w1&excluded=w2
+ * /compoundAndOrSearch?title=t&required=w1&or=w2
+ *
+ * The response is UTF-8 text with one result per line: a count, a line
+ * number, "line column" or "line column word". Results that fit in one
+ * chunk are sent with their length; more are streamed a chunk at a time
+ * (chunked transfer encoding), so their text is never held as a whole.
+ * Invalid arguments (IllegalArgumentException) get 400, unknown operations
+ * 404 and methods other than GET 405.
+ *
+ * Requests run on a virtual thread each where the JDK has them (found by
+ * reflection, as they only arrived in Java 21), or on a fixed pool of
+ * threads.
+ *
+ * Usage: SearchServer [-port n] [-threads n] [-shards n] document index
+ * stopWords
+ *
+ * The document is served by a ShardedSearch of one shard (the whole
+ * document) unless -shards asks for more.
+ */
+public class SearchServer {
+	// Port served on by default
+	public static final int DEFAULT_PORT = 3506;
+	// Bytes of results sent in one chunk
+	private static final int CHUNK = 16 * 1024;
+	// Connections waiting to be accepted
+	private static final int BACKLOG = 1024;
+	// Whether the JDK's server sets TCP_NODELAY on its connections
+	private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	// The index every request reads
+	private final Search search;
+
+	/**
+	 * Starts serving a search.
+	 *
+	 * O(1)
+	 *
+	 * @param search
+	 *            The search to serve. It must be safe to use from many threads
+	 *            at once.
+	 * @param address
+	 *            Address to listen on (port 0 picks a free port, see
+	 *            getAddress)
+	 * @param threads
+	 *            Threads to run requests on, or 0 for a virtual thread per
+	 *            request (a pool of 4 threads per processor without them)
+	 * @throws IOException
+	 *             if the address cannot be listened on
+	 * @throws IllegalArgumentException
+	 *             if search or address is null, or threads is negative
+	 */
+	public SearchServer(Search search, InetSocketAddress address, int threads)
+			throws IOException, IllegalArgumentException {
+		if (search == null || address == null || threads < 0)
+			throw new IllegalArgumentException();
+		this.search = search;
+		executor = executor(threads);
+		// The JDK's server writes a response's headers and body separately,
+		// so without TCP_NODELAY the body waits for the client to acknowledge
+		// the headers (40 ms, with delayed acks). It is read when the first
+		// server is made, so it can only be set here if it isn't set already.
+		if (System.getProperty(NODELAY) == null) {
+			System.setProperty(NODELAY, "true");
+		}
+		server = HttpServer.create(address, BACKLOG);
+		server.createContext("/", new Handler());
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The address being listened on
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Stops listening, lets running requests finish for up to a second, then
+	 * stops their threads.
+	 */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int threads = 0;
+		int shards = 1;
+		List<String> files = new ArrayList<String>();
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-port")) {
+				port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-shards")) {
+				shards = Integer.parseInt(args[++i]);
+			} else {
+				files.add(args[i]);
+			}
+		}
+		if (files.size() != 3 || shards < 1) {
+			System.err.println("Usage: SearchServer [-port n] [-threads n]"
+					+ " [-shards n] document index stopWords");
+			System.exit(2);
+		}
+
+		Search search;
+		try {
+			search = new ShardedSearch(files.get(0), files.get(1),
+					files.get(2), shards);
+		} catch (FileNotFoundException e) {
+			System.err.println("Cannot read " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		// Only this machine can reach it
+		SearchServer server = new SearchServer(search,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+				threads);
+		System.out.println("Serving " + files.get(0) + " on http://"
+				+ server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + "/");
+	}
+
+	/**
+	 * Makes the threads requests run on.
+	 *
+	 * @param threads
+	 *            The number of threads, or 0 for a virtual thread per request
+	 * @return The executor
+	 */
+	private static ExecutorService executor(int threads) {
+		if (threads == 0) {
+			try {
+				return (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor")
+						.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				// No virtual threads before Java 21
+				threads = 4 * Runtime.getRuntime().availableProcessors();
+			}
+		}
+		return Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Splits a query string into its parameters.
+	 *
+	 * O(n) where n is the length of the query
+	 *
+	 * @param query
+	 *            The raw (still encoded) query, or null
+	 * @return Every value of each parameter, in order
+	 */
+	private static Map<String, List<String>> parameters(String query) {
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		if (query == null || query.isEmpty()) {
+			return parameters;
+		}
+		for (String parameter : query.split("&")) {
+			int equals = parameter.indexOf('=');
+			String name = decode(
+					equals < 0 ? parameter : parameter.substring(0, equals));
+			String value = equals < 0 ? ""
+					: decode(parameter.substring(equals + 1));
+			parameters.computeIfAbsent(name, key -> new ArrayList<String>())
+					.add(value);
+		}
+		return parameters;
+	}
+
+	/**
+	 * @return A URL encoded string, decoded
+	 * @throws IllegalArgumentException
+	 *             if it is not validly encoded
+	 */
+	private static String decode(String encoded) {
+		return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+	}
+
+	// ##############################################################
+
+	/**
+	 * Runs one request against the search.
+	 */
+	private class Handler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				if (!exchange.getRequestMethod().equals("GET")) {
+					sendError(exchange, 405, "Only GET is supported");
+					return;
+				}
+				Map<String, List<String>> parameters = parameters(
+						exchange.getRequestURI().getRawQuery());
+				List<?> results = run(exchange.getRequestURI().getPath(),
+						parameters);
+				if (results == null) {
+					sendError(exchange, 404, "No such operation");
+				} else {
+					send(exchange, results);
+				}
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 400, "Invalid arguments");
+			} catch (IOException e) {
+				// The client went away
+			} catch (RuntimeException e) {
+				sendError(exchange, 500, e.toString());
+			} finally {
+				exchange.close();
+			}
+		}
+
+		/**
+		 * Runs an operation.
+		 *
+		 * @param path
+		 *            The operation's path
+		 * @param parameters
+		 *            The operation's parameters
+		 * @return The operation's results, or null if there is no such
+		 *         operation
+		 * @throws IllegalArgumentException
+		 *             if the operation rejects the arguments
+		 */
+		private List<?> run(String path,
+				Map<String, List<String>> parameters) {
+			switch (path) {
+			case "/wordCount":
+				return List.of(search.wordCount(value(parameters, "word")));
+			case "/phraseOccurrence":
+				return search.phraseOccurrence(value(parameters, "phrase"));
+			case "/prefixOccurrence":
+				return search.prefixOccurrence(value(parameters, "prefix"));
+			case "/wordsOnLine":
+				return search.wordsOnLine(values(parameters, "word"));
+			case "/someWordsOnLine":
+				return search.someWordsOnLine(values(parameters, "word"));
+			case "/wordsNotOnLine":
+				return search.wordsNotOnLine(values(parameters, "required"),
+						values(parameters, "excluded"));
+			case "/simpleAndSearch":
+				return search.simpleAndSearch(titles(parameters),
+						values(parameters, "word"));
+			case "/simpleOrSearch":
+				return search.simpleOrSearch(titles(parameters),
+						values(parameters, "word"));
+			case "/simpleNotSearch":
+				return search.simpleNotSearch(titles(parameters),
+						values(parameters, "required"),
+						values(parameters, "excluded"));
+			case "/compoundAndOrSearch":
+				return search.compoundAndOrSearch(titles(parameters),
+						values(parameters, "required"),
+						values(parameters, "or"));
+			default:
+				return null;
+			}
+		}
+
+		/**
+		 * @return The single value of a parameter
+		 * @throws IllegalArgumentException
+		 *             if it is missing or given more than once
+		 */
+		private String value(Map<String, List<String>> parameters,
+				String name) {
+			List<String> values = parameters.get(name);
+			if (values == null || values.size() != 1)
+				throw new IllegalArgumentException();
+			return values.get(0);
+		}
+
+		/**
+		 * @return Every value of a parameter (none if it is missing)
+		 */
+		private String[] values(Map<String, List<String>> parameters,
+				String name) {
+			List<String> values = parameters.get(name);
+			return values == null ? new String[0]
+					: values.toArray(new String[values.size()]);
+		}
+
+		/**
+		 * @return The titles of the sections to search, or null for the whole
+		 *         document
+		 */
+		private String[] titles(Map<String, List<String>> parameters) {
+			return parameters.containsKey("title")
+					? values(parameters, "title") : null;
+		}
+
+		/**
+		 * Sends results, one per line. Line and occurrence lists are read
+		 * without boxing each result.
+		 *
+		 * O(r) where r is the number of results
+		 *
+		 * @param exchange
+		 *            The request
+		 * @param results
+		 *            Its results
+		 * @throws IOException
+		 *             if the client cannot be written to
+		 */
+		private void send(HttpExchange exchange, List<?> results)
+				throws IOException {
+			exchange.getResponseHeaders().set("Content-Type",
+					"text/plain; charset=UTF-8");
+			Chunks out = new Chunks(exchange);
+			if (results instanceof OccurrenceList) {
+				OccurrenceList occurrences = (OccurrenceList) results;
+				for (int i = 0; i < occurrences.size(); ++i) {
+					out.number(occurrences.lineAt(i)).space()
+							.number(occurrences.columnAt(i)).endLine();
+				}
+			} else if (results instanceof LineList) {
+				LineList lines = (LineList) results;
+				for (int i = 0; i < lines.size(); ++i) {
+					out.number(lines.lineAt(i)).endLine();
+				}
+			} else {
+				for (Object result : results) {
+					if (result instanceof Triple) {
+						Triple<?, ?, ?> triple = (Triple<?, ?, ?>) result;
+						out.text(triple.getLeftValue()).space()
+								.text(triple.getCentreValue()).space()
+								.text(triple.getRightValue());
+					} else if (result instanceof Pair) {
+						Pair<?, ?> pair = (Pair<?, ?>) result;
+						out.text(pair.getLeftValue()).space()
+								.text(pair.getRightValue());
+					} else {
+						out.text(result);
+					}
+					out.endLine();
+				}
+			}
+			out.close();
+		}
+
+		/**
+		 * Sends an error status with a message.
+		 *
+		 * @param exchange
+		 *            The request
+		 * @param status
+		 *            The HTTP status
+		 * @param message
+		 *            Says what went wrong
+		 */
+		private void sendError(HttpExchange exchange, int status,
+				String message) {
+			byte[] text = (message + "\n").getBytes(StandardCharsets.UTF_8);
+			try {
+				exchange.getResponseHeaders().set("Content-Type",
+						"text/plain; charset=UTF-8");
+				exchange.sendResponseHeaders(status, text.length);
+				exchange.getResponseBody().write(text);
+			} catch (IOException e) {
+				// The client went away, or the headers were already sent
+			}
+		}
+	}
+
+	// ##############################################################
+
+	/**
+	 * The body of a response, built a chunk at a time. If it all fits in one
+	 * chunk it is sent with its length, otherwise each chunk is sent as it
+	 * fills (chunked transfer encoding), so a large result is never held as a
+	 * whole.
+	 */
+	private static class Chunks {
+		private final HttpExchange exchange;
+		// The chunk being filled (room for a line past CHUNK is made as needed)
+		private byte[] buffer = new byte[CHUNK + 64];
+		private int size;
+		// Where chunks are sent (null until the first is full)
+		private OutputStream body;
+
+		private Chunks(HttpExchange exchange) {
+			this.exchange = exchange;
+		}
+
+		/**
+		 * O(d) where d is the number of digits
+		 *
+		 * @return This, to chain appends
+		 */
+		private Chunks number(int value) {
+			reserve(11);
+			long magnitude = value;
+			if (magnitude < 0) {
+				buffer[size++] = '-';
+				magnitude = -magnitude;
+			}
+			// Digits, last first
+			int end = size + digits(magnitude);
+			for (int i = end - 1; i >= size; --i) {
+				buffer[i] = (byte) ('0' + magnitude % 10);
+				magnitude /= 10;
+			}
+			size = end;
+			return this;
+		}
+
+		/**
+		 * @return The number of decimal digits of a non-negative number
+		 */
+		private static int digits(long value) {
+			int digits = 1;
+			while (value >= 10) {
+				value /= 10;
+				++digits;
+			}
+			return digits;
+		}
+
+		/**
+		 * O(l) where l is the length of the text
+		 *
+		 * @param value
+		 *            Any value, written as its string (in UTF-8)
+		 * @return This, to chain appends
+		 */
+		private Chunks text(Object value) {
+			if (value instanceof Integer) {
+				return number((Integer) value);
+			}
+			byte[] text = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+			reserve(text.length);
+			System.arraycopy(text, 0, buffer, size, text.length);
+			size += text.length;
+			return this;
+		}
+
+		/**
+		 * @return This, to chain appends
+		 */
+		private Chunks space() {
+			reserve(1);
+			buffer[size++] = ' ';
+			return this;
+		}
+
+		/**
+		 * Ends a line, then sends the chunk if it is full.
+		 *
+		 * @throws IOException
+		 *             if the client cannot be written to
+		 */
+		private void endLine() throws IOException {
+			reserve(1);
+			buffer[size++] = '\n';
+			if (size >= CHUNK) {
+				if (body == null) {
+					// Length unknown: chunked
+					exchange.sendResponseHeaders(200, 0);
+					body = exchange.getResponseBody();
+				}
+				body.write(buffer, 0, size);
+				size = 0;
+			}
+		}
+
+		/**
+		 * Sends the rest of the body and ends it.
+		 *
+		 * @throws IOException
+		 *             if the client cannot be written to
+		 */
+		private void close() throws IOException {
+			if (body == null) {
+				// No results are sent as no chunks (-1, for no body, would
+				// close the connection)
+				exchange.sendResponseHeaders(200, size);
+				body = exchange.getResponseBody();
+			}
+			body.write(buffer, 0, size);
+			body.close();
+		}
+
+		/**
+		 * Makes room for some more bytes in the chunk.
+		 */
+		private void reserve(int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer,
+						Math.max(buffer.length * 2, size + length));
+			}
+		}
+	}
+}
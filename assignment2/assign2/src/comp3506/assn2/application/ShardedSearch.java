@@ -0,0 +1,710 @@
+package comp3506.assn2.application;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import comp3506.assn2.utils.CompressedTrie;
+import comp3506.assn2.utils.LineList;
+import comp3506.assn2.utils.OccurrenceList;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Postings;
+import comp3506.assn2.utils.Sections;
+import comp3506.assn2.utils.StopWords;
+import comp3506.assn2.utils.Tokenizer;
+import comp3506.assn2.utils.Triple;
+
+/**
+ * Performs search operations on a document split into shards: runs of whole
+ * lines, each with its own index. Every query is scattered to the shards on a
+ * ForkJoinPool, and their results are gathered in line order.
+ *
+ * A shard's index uses the document's line numbers, so its results need no
+ * translating. Lines never span shards, so the line searches are each
+ * shard's lines one after another. The rest need more than one shard at a
+ * time:
+ *
+ * - A phrase can run from the end of one shard into the next (or further, if
+ * shards are small). Each shard finds the phrases that start within its last
+ * few tokens by reading on through the following shards' token streams.
+ *
+ * - A section can span shards, so whether it matches is worked out from every
+ * shard's part of it (a required word need only be in one part), before each
+ * shard lists the occurrences in its part.
+ *
+ * - The occurrences of a prefix are grouped by word, so the shards' words are
+ * merged in order, each word's occurrences one shard after another.
+ *
+ * The results are the same as AutoTester's, in the same order.
+ *
+ * As with AutoTester, the fields are final and each shard is frozen before the
+ * constructor returns, so a ShardedSearch can be shared by any number of
+ * threads.
+ */
+public class ShardedSearch implements Search {
+	// Every shard's index, in document order
+	private final CompressedTrie[] shards;
+	// The first line of each shard (shards + 1 entries: a shard's lines run up
+	// to the next one's first line)
+	private final int[] startLines;
+	// The sections of the document (empty if there is no index file)
+	private final Sections sections;
+	// Where queries are scattered
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create an object that performs search operations on a document, split
+	 * into shards that are built and searched on the common ForkJoinPool.
+	 *
+	 * @param documentFileName
+	 *            Name of the file containing the text of the document to be
+	 *            searched.
+	 * @param indexFileName
+	 *            Name of the file containing the index of sections in the
+	 *            document.
+	 * @param stopWordsFileName
+	 *            Name of the file containing the stop words ignored by most
+	 *            searches.
+	 * @param shardCount
+	 *            Number of shards to split the document into.
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be loaded.
+	 * @throws IllegalArgumentException
+	 *             if documentFileName is null or an empty string, or
+	 *             shardCount is less than 1.
+	 */
+	public ShardedSearch(String documentFileName, String indexFileName,
+			String stopWordsFileName, int shardCount)
+			throws FileNotFoundException, IllegalArgumentException {
+		this(documentFileName, indexFileName, stopWordsFileName, shardCount,
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create an object that performs search operations on a document, split
+	 * into shards that are built and searched on a given pool.
+	 *
+	 * O(n log n / p) where n is the number of words in the document and p the
+	 * parallelism (see AutoTester)
+	 *
+	 * @param documentFileName
+	 *            Name of the file containing the text of the document to be
+	 *            searched.
+	 * @param indexFileName
+	 *            Name of the file containing the index of sections in the
+	 *            document.
+	 * @param stopWordsFileName
+	 *            Name of the file containing the stop words ignored by most
+	 *            searches.
+	 * @param shardCount
+	 *            Number of shards to split the document into.
+	 * @param pool
+	 *            Where to build the shards and run queries on them.
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be loaded.
+	 * @throws IllegalArgumentException
+	 *             if documentFileName is null or an empty string, shardCount
+	 *             is less than 1 or pool is null.
+	 */
+	public ShardedSearch(String documentFileName, String indexFileName,
+			String stopWordsFileName, int shardCount, ForkJoinPool pool)
+			throws FileNotFoundException, IllegalArgumentException {
+		if (documentFileName == null || documentFileName.isEmpty()
+				|| shardCount < 1 || pool == null)
+			throw new IllegalArgumentException();
+		this.pool = pool;
+
+		StopWords stopWords = IndexFiles.readStopWords(stopWordsFileName);
+		MappedByteBuffer text = Tokenizer.map(documentFileName);
+		// Even shares of the bytes, each moved on to the next line break
+		int[] offsets = new int[shardCount + 1];
+		offsets[shardCount] = text.limit();
+		for (int shard = 1; shard < shardCount; ++shard) {
+			offsets[shard] = nextLine(text, Math.max(offsets[shard - 1],
+					(int) ((long) text.limit() * shard / shardCount)),
+					text.limit());
+		}
+
+		// Each shard's first line is needed before it is indexed, so count
+		// the lines first (a quick scan, in parallel too)
+		int[] lineCounts = new int[shardCount];
+		scatter(shardCount, shard -> lineCounts[shard] = Tokenizer
+				.lineCount(text, offsets[shard], offsets[shard + 1]));
+		startLines = new int[shardCount + 1];
+		startLines[0] = 1;
+		for (int shard = 0; shard < shardCount; ++shard) {
+			startLines[shard + 1] = startLines[shard] + lineCounts[shard];
+		}
+
+		shards = new CompressedTrie[shardCount];
+		scatter(shardCount, shard -> {
+			CompressedTrie trie = new CompressedTrie(stopWords);
+			Tokenizer.tokenize(text, offsets[shard], offsets[shard + 1],
+					startLines[shard], trie);
+			trie.freeze();
+			shards[shard] = trie;
+		});
+
+		sections = IndexFiles.readSections(indexFileName);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of shards
+	 */
+	public int shardCount() {
+		return shards.length;
+	}
+
+	// See javadoc of CDT
+	public int wordCount(String word) throws IllegalArgumentException {
+		if (word == null || word.isEmpty())
+			throw new IllegalArgumentException();
+		int[] counts = new int[shards.length];
+		scatter(shards.length, shard -> counts[shard] = shards[shard]
+				.count(word));
+		int count = 0;
+		for (int shardCount : counts) {
+			count += shardCount;
+		}
+		return count;
+	}
+
+	// See javadoc of CDT
+	public List<Pair<Integer, Integer>> phraseOccurrence(String phrase)
+			throws IllegalArgumentException {
+		if (phrase == null || phrase.isEmpty())
+			throw new IllegalArgumentException();
+		// delimit the phrase using space
+		String[] splitPhrase = phrase.split(" ");
+		// Each shard's term ids for the words, for phrases across shards
+		int[][] terms = new int[shards.length][splitPhrase.length];
+		for (int shard = 0; shard < shards.length; ++shard) {
+			for (int i = 0; i < splitPhrase.length; ++i) {
+				terms[shard][i] = shards[shard].termId(splitPhrase[i]);
+			}
+		}
+
+		long[][] parts = new long[shards.length][];
+		scatter(shards.length, shard -> {
+			OccurrenceList within = shards[shard].findPhrase(splitPhrase);
+			long[] across = across(shard, terms);
+			// Phrases across the end start after every phrase within
+			long[] part = new long[within.size() + across.length];
+			for (int i = 0; i < within.size(); ++i) {
+				part[i] = within.packedAt(i);
+			}
+			System.arraycopy(across, 0, part, within.size(), across.length);
+			parts[shard] = part;
+		});
+		return gather(parts);
+	}
+
+	/**
+	 * Finds the phrases that start in a shard and end in a later one.
+	 *
+	 * O(l^2) where l is the length of the phrase (plus O(s) to step over
+	 * shards with no tokens, where s is the number of shards)
+	 *
+	 * @param shard
+	 *            The shard the phrases start in
+	 * @param terms
+	 *            Each shard's term id of each word of the phrase (-1 for
+	 *            words not in the shard)
+	 * @return The line and column of each phrase found (packed), in
+	 *         document order
+	 */
+	private long[] across(int shard, int[][] terms) {
+		int length = terms[shard].length;
+		Postings postings = shards[shard].getPostings();
+		int size = postings.size();
+		long[] found = new long[Math.max(0, Math.min(size, length - 1))];
+		int count = 0;
+		// The phrase must start within the last length - 1 tokens
+		for (int start = Math.max(0, size - length + 1); start < size;
+				++start) {
+			boolean matches = true;
+			int current = shard;
+			Postings currentPostings = postings;
+			int position = start;
+			for (int i = 0; i < length && matches; ++i, ++position) {
+				// Read on into the next shard with any tokens
+				while (position >= currentPostings.size()) {
+					position -= currentPostings.size();
+					if (++current == shards.length) {
+						// Runs off the end of the document
+						return Arrays.copyOf(found, count);
+					}
+					currentPostings = shards[current].getPostings();
+				}
+				matches = currentPostings.termAt(position) == terms[current][i];
+			}
+			if (matches) {
+				found[count++] = postings.token(start);
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	// See javadoc of CDT
+	public List<Pair<Integer, Integer>> prefixOccurrence(String prefix)
+			throws IllegalArgumentException {
+		if (prefix == null || prefix.isEmpty())
+			throw new IllegalArgumentException();
+		// Each shard's words starting with the prefix, in the order AutoTester
+		// groups them
+		int[][] terms = new int[shards.length][];
+		scatter(shards.length,
+				shard -> terms[shard] = shards[shard].prefixTerms(prefix));
+		int size = 0;
+		for (int shard = 0; shard < shards.length; ++shard) {
+			Postings postings = shards[shard].getPostings();
+			for (int term : terms[shard]) {
+				size += postings.end(term) - postings.start(term);
+			}
+		}
+
+		// Merge the shards' words: each word's occurrences, shard after shard
+		long[] occurrences = new long[size];
+		int index = 0;
+		int[] next = new int[shards.length];
+		while (true) {
+			String word = null;
+			for (int shard = 0; shard < shards.length; ++shard) {
+				if (next[shard] < terms[shard].length) {
+					String candidate = shards[shard]
+							.term(terms[shard][next[shard]]);
+					if (word == null || candidate.compareTo(word) < 0) {
+						word = candidate;
+					}
+				}
+			}
+			if (word == null) {
+				break;
+			}
+			for (int shard = 0; shard < shards.length; ++shard) {
+				if (next[shard] < terms[shard].length) {
+					int term = terms[shard][next[shard]];
+					if (shards[shard].term(term).equals(word)) {
+						Postings postings = shards[shard].getPostings();
+						for (int i = postings.start(term); i < postings
+								.end(term); ++i) {
+							occurrences[index++] = postings.occurrence(i);
+						}
+						++next[shard];
+					}
+				}
+			}
+		}
+		return new OccurrenceList(occurrences, 0, size);
+	}
+
+	// See javadoc of CDT
+	public List<Integer> wordsOnLine(String[] words)
+			throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		String[] required = requiredWords(words);
+		if (required == null) {
+			return LineList.EMPTY;
+		}
+		LineList[] parts = new LineList[shards.length];
+		scatter(shards.length, shard -> parts[shard] = shards[shard]
+				.wordsOnLine(required));
+		return gather(parts);
+	}
+
+	// See javadoc of CDT
+	public List<Integer> someWordsOnLine(String[] words)
+			throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		LineList[] parts = new LineList[shards.length];
+		scatter(shards.length, shard -> parts[shard] = shards[shard]
+				.someWordsOnLine(words));
+		return gather(parts);
+	}
+
+	// See javadoc of CDT
+	public List<Integer> wordsNotOnLine(String[] wordsRequired,
+			String[] wordsExcluded) throws IllegalArgumentException {
+		Arguments.checkWords(wordsRequired);
+		Arguments.checkWords(wordsExcluded);
+		String[] required = requiredWords(wordsRequired);
+		if (required == null) {
+			return LineList.EMPTY;
+		}
+		LineList[] parts = new LineList[shards.length];
+		scatter(shards.length, shard -> parts[shard] = shards[shard]
+				.wordsNotOnLine(required, wordsExcluded));
+		return gather(parts);
+	}
+
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> simpleAndSearch(
+			String[] titles, String[] words) throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		Arguments.checkStrings(titles);
+
+		return sectionSearch(sections.intervals(titles), words, null, null);
+	}
+
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> simpleOrSearch(
+			String[] titles, String[] words) throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		Arguments.checkStrings(titles);
+
+		return sectionSearch(sections.intervals(titles), new String[0], words,
+				null);
+	}
+
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> simpleNotSearch(
+			String[] titles, String[] wordsRequired, String[] wordsExcluded)
+			throws IllegalArgumentException {
+		Arguments.checkWords(wordsRequired);
+		Arguments.checkStrings(titles);
+		Arguments.checkStrings(wordsExcluded);
+
+		return sectionSearch(sections.intervals(titles), wordsRequired, null,
+				wordsExcluded);
+	}
+
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> compoundAndOrSearch(
+			String[] titles, String[] wordsRequired, String[] orWords)
+			throws IllegalArgumentException {
+		Arguments.checkWords(wordsRequired);
+		Arguments.checkStrings(titles);
+		Arguments.checkStrings(orWords);
+
+		return sectionSearch(sections.intervals(titles), wordsRequired,
+				orWords, null);
+	}
+
+	/**
+	 * Searches sections of the document for words, as
+	 * CompressedTrie.sectionSearch does. First every shard finds which of the
+	 * words are in its part of each section, then the parts are combined to
+	 * find the matching sections, then every shard lists the occurrences in
+	 * its part of those.
+	 *
+	 * O((s * w * log f + r) / p) where s is the number of sections, w the
+	 * number of words, f the frequency of a word, r the number of results
+	 * and p the parallelism
+	 *
+	 * @param intervals
+	 *            Flattened [start, end) line intervals, one per section
+	 * @param required
+	 *            Words that must all be in a section
+	 * @param optional
+	 *            Words of which at least one must be in a section. Null or
+	 *            empty if there is no such condition.
+	 * @param excluded
+	 *            Words that must not be in a section. May be null.
+	 * @return The line, column and word of each occurrence of a required or
+	 *         optional word in a matching section.
+	 */
+	private List<Triple<Integer, Integer, String>> sectionSearch(
+			int[] intervals, String[] required, String[] optional,
+			String[] excluded) {
+		List<Triple<Integer, Integer, String>> found = new ArrayList<Triple<Integer, Integer, String>>();
+		// A required word that isn't in the document isn't in any section
+		for (String word : required) {
+			if (!inDocument(word)) {
+				return found;
+			}
+		}
+		// Stop words are ignored
+		String[] requiredWords = withoutStopWords(required);
+		String[] optionalWords = withoutStopWords(optional);
+		String[] excludedWords = withoutStopWords(excluded);
+		// Every word whose presence counts, in that order
+		String[] words = new String[requiredWords.length
+				+ optionalWords.length + excludedWords.length];
+		System.arraycopy(requiredWords, 0, words, 0, requiredWords.length);
+		System.arraycopy(optionalWords, 0, words, requiredWords.length,
+				optionalWords.length);
+		System.arraycopy(excludedWords, 0, words,
+				requiredWords.length + optionalWords.length,
+				excludedWords.length);
+		int sectionCount = intervals.length / 2;
+
+		// Which words each shard has in its part of each section
+		boolean[][] present = new boolean[shards.length][sectionCount
+				* words.length];
+		scatter(shards.length, shard -> {
+			for (int section = 0; section < sectionCount; ++section) {
+				int start = Math.max(intervals[section * 2],
+						startLines[shard]);
+				int end = Math.min(intervals[section * 2 + 1],
+						startLines[shard + 1]);
+				for (int i = 0; i < words.length && start < end; ++i) {
+					present[shard][section * words.length
+							+ i] = shards[shard].count(words[i], start, end) > 0;
+				}
+			}
+		});
+
+		// Does each section meet every condition?
+		boolean[] matches = new boolean[sectionCount];
+		for (int section = 0; section < sectionCount; ++section) {
+			boolean[] inSection = new boolean[words.length];
+			for (int shard = 0; shard < shards.length; ++shard) {
+				for (int i = 0; i < words.length; ++i) {
+					inSection[i] |= present[shard][section * words.length + i];
+				}
+			}
+			int i = 0;
+			boolean match = true;
+			for (; i < requiredWords.length; ++i) {
+				match &= inSection[i];
+			}
+			if (optionalWords.length > 0) {
+				boolean any = false;
+				for (; i < requiredWords.length + optionalWords.length; ++i) {
+					any |= inSection[i];
+				}
+				match &= any;
+			}
+			for (i = requiredWords.length + optionalWords.length;
+					i < words.length; ++i) {
+				match &= !inSection[i];
+			}
+			matches[section] = match;
+		}
+
+		// Each shard's occurrences of each required or optional word, by
+		// section
+		int listed = requiredWords.length + optionalWords.length;
+		List<List<Triple<Integer, Integer, String>>> parts = new ArrayList<List<Triple<Integer, Integer, String>>>(
+				shards.length * sectionCount * listed);
+		for (int i = 0; i < shards.length * sectionCount * listed; ++i) {
+			parts.add(null);
+		}
+		scatter(shards.length, shard -> {
+			for (int section = 0; section < sectionCount; ++section) {
+				int start = Math.max(intervals[section * 2],
+						startLines[shard]);
+				int end = Math.min(intervals[section * 2 + 1],
+						startLines[shard + 1]);
+				if (!matches[section] || start >= end) {
+					continue;
+				}
+				for (int i = 0; i < listed; ++i) {
+					// The same word asked for twice (in the same list)
+					int first = i < requiredWords.length ? 0
+							: requiredWords.length;
+					if (Arrays.asList(words).subList(first, i)
+							.contains(words[i])) {
+						continue;
+					}
+					OccurrenceList occurrences = shards[shard].findPhrase(
+							new String[] { words[i] }, start, end);
+					List<Triple<Integer, Integer, String>> part = new ArrayList<Triple<Integer, Integer, String>>(
+							occurrences.size());
+					for (int j = 0; j < occurrences.size(); ++j) {
+						part.add(new Triple<Integer, Integer, String>(
+								occurrences.lineAt(j), occurrences.columnAt(j),
+								words[i]));
+					}
+					parts.set((section * listed + i) * shards.length + shard,
+							part);
+				}
+			}
+		});
+		// Section by section, word by word, in line order
+		for (List<Triple<Integer, Integer, String>> part : parts) {
+			if (part != null) {
+				found.addAll(part);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * O(s * l) where s is the number of shards and l the length of the word
+	 *
+	 * @return Whether the word is anywhere in the document
+	 */
+	private boolean inDocument(String word) {
+		for (CompressedTrie shard : shards) {
+			if (shard.termId(word) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Words that must all be on a line, as the whole document sees them: a
+	 * shard without a stop word would take it for a word it doesn't have.
+	 *
+	 * O(w * s * l) where w is the number of words, s the number of shards and
+	 * l the length of a word
+	 *
+	 * @param words
+	 *            Words that must all be on a line
+	 * @return The words that are not stop words, or null if one of them isn't
+	 *         in the document (so no line has them all)
+	 */
+	private String[] requiredWords(String[] words) {
+		for (String word : words) {
+			if (!inDocument(word)) {
+				return null;
+			}
+		}
+		return withoutStopWords(words);
+	}
+
+	/**
+	 * O(w * s * l) where w is the number of words, s the number of shards and
+	 * l the length of a word
+	 *
+	 * @param words
+	 *            Some words, may be null
+	 * @return The words that are not stop words in the document (a stop word
+	 *         that isn't in it is kept, and never matches, as in
+	 *         CompressedTrie.sectionSearch)
+	 */
+	private String[] withoutStopWords(String[] words) {
+		if (words == null) {
+			return new String[0];
+		}
+		StopWords stopWords = shards[0].getStopWords();
+		String[] kept = new String[words.length];
+		int size = 0;
+		for (String word : words) {
+			if (stopWords == null || stopWords.indexOf(word) < 0
+					|| !inDocument(word)) {
+				kept[size++] = word;
+			}
+		}
+		return Arrays.copyOf(kept, size);
+	}
+
+	/**
+	 * Runs some work for every shard, in parallel on the pool (or on the
+	 * calling thread if the pool has a single thread, where splitting it up
+	 * would only add overhead).
+	 *
+	 * @param count
+	 *            The number of shards
+	 * @param work
+	 *            The work for one shard, given its index
+	 */
+	private void scatter(int count, IntConsumer work) {
+		if (count < 2 || pool.getParallelism() < 2) {
+			for (int shard = 0; shard < count; ++shard) {
+				work.accept(shard);
+			}
+			return;
+		}
+		pool.invoke(new Scatter(work, 0, count));
+	}
+
+	/**
+	 * O(r) where r is the number of occurrences
+	 *
+	 * @param parts
+	 *            Each shard's occurrences, packed, in order
+	 * @return The occurrences, one shard after another
+	 */
+	private static OccurrenceList gather(long[][] parts) {
+		int size = 0;
+		for (long[] part : parts) {
+			size += part.length;
+		}
+		long[] occurrences = new long[size];
+		int index = 0;
+		for (long[] part : parts) {
+			System.arraycopy(part, 0, occurrences, index, part.length);
+			index += part.length;
+		}
+		return new OccurrenceList(occurrences, 0, size);
+	}
+
+	/**
+	 * O(r) where r is the number of lines
+	 *
+	 * @param parts
+	 *            Each shard's lines, in order
+	 * @return The lines, one shard after another
+	 */
+	private static LineList gather(LineList[] parts) {
+		int size = 0;
+		for (LineList part : parts) {
+			size += part.size();
+		}
+		int[] lines = new int[size];
+		int index = 0;
+		for (LineList part : parts) {
+			for (int i = 0; i < part.size(); ++i) {
+				lines[index++] = part.lineAt(i);
+			}
+		}
+		return new LineList(lines);
+	}
+
+	/**
+	 * Finds the start of the line after the one 'offset' is on.
+	 *
+	 * O(l) where l is the length of a line
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param offset
+	 *            Any offset in the document
+	 * @param to
+	 *            Offset to stop looking at
+	 * @return Offset just after the next line break, or 'to' if there is none
+	 */
+	private static int nextLine(ByteBuffer text, int offset, int to) {
+		if (offset > 0 && text.get(offset - 1) == '\n') {
+			// Already at the start of a line
+			return offset;
+		}
+		while (offset < to) {
+			if (text.get(offset++) == '\n') {
+				return offset;
+			}
+		}
+		return to;
+	}
+
+	// ##############################################################
+
+	/**
+	 * A range of shards, split in half until each shard runs on its own.
+	 */
+	private static class Scatter extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final IntConsumer work;
+		private final int from;
+		private final int to;
+
+		private Scatter(IntConsumer work, int from, int to) {
+			this.work = work;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				work.accept(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Scatter(work, from, middle),
+					new Scatter(work, middle, to));
+		}
+	}
+}
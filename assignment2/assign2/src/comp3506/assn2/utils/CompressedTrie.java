@@ -1,1013 +1,2143 @@
-package comp3506.assn2.utils;
-
-import java.util.LinkedList;
-import java.util.List;
-
-public class CompressedTrie {
-	private trieNode root;
-	private trieNode lastAddedWord;
-	private int uniqueWordsCount;
-
-	public CompressedTrie() {
-		root = new trieNode();
-		lastAddedWord = null;
-	}
-
-	/**
-	 * Adds the next word in the text to the trie.
-	 *
-	 * O(log n) where n is the length of the text document
-	 *
-	 * or
-	 * 
-	 * O(a * l) where a is the length of the alphabet and l is the length of the
-	 * word
-	 *
-	 * @param word
-	 *            The next word in the text
-	 * @param line
-	 *            The line on which the word is located
-	 * @param column
-	 *            The column at which the word begins
-	 */
-	public void add(String word, int line, int column) {
-		// Make case in-sensitive
-		word = word.toLowerCase();
-		// If there is word currently in the trie, make this the first child
-		// (adam!)
-		if (root.child == null) {
-			root.child = new trieNode(word, line, column);
-			lastAddedWord = root.child;
-			root.child.parent = root;
-			++uniqueWordsCount;
-			return;
-		}
-
-		// There are nodes in the trie already, so prepare to traverse trie
-		trieNode spider = root.child; // "Spider" because it's like a spider
-										// crawling over a web
-		// The new node with word to be added
-		trieNode newWord = new trieNode(word, line, column);
-		// The position in the newWord / Spider
-		int wordIndex = 0;
-		// The characters at these positions
-		char wordPoint = newWord.value.charAt(wordIndex);
-		char nodePoint = spider.value.charAt(wordIndex);
-		// The length of the smaller node
-		int wordsMin = Math.min(word.length(), spider.value.length()) - 1;
-
-		// Continue looking until we've reached the end of the word or node
-		for (wordIndex = 0; wordIndex <= wordsMin; wordIndex++) {
-			// Load the next char
-			wordPoint = newWord.value.charAt(wordIndex);
-			nodePoint = spider.value.charAt(wordIndex);
-
-			// Are the chars the same? (word not found yet?)
-			if (wordPoint != nodePoint) {
-				// Which char lexicographically comes first?
-				if (nodePoint < wordPoint) {
-					// Have we matched any chars yet?
-					if (wordIndex == 0) {
-						// No matched chars yet
-						// search sibling node
-						if (spider.nextSibling == null) {
-							// No sibling node: word not found: add node after
-							// spider
-							nodeSlot(spider, newWord);
-							return;
-						}
-						// Sibling found: appropriate node could be after this
-						// point. Restart search with next node word.
-						spider = spider.nextSibling;
-						wordsMin = Math.min(newWord.value.length(),
-								spider.value.length()) - 1;
-						wordIndex = -1;
-						continue;
-					} else {
-						// We have matched chars, but differ at some point in
-						// the node. This is as close as we can get: split node
-						nodeSplitTriple(wordIndex, spider, newWord);
-						return;
-					}
-				} else {
-					// Have we matched any chars yet?
-					if (wordIndex == 0) {
-						// No matched chars
-						// node can't be split: insert node between spider
-						// and prev sibling
-						nodeSlot(spider, newWord);
-						return;
-					} else {
-						// this is as close as we can get:
-						nodeSplitTriple(wordIndex, spider, newWord);
-						return;
-					}
-				}
-
-			}
-
-			// end of word/node reached
-			if (wordIndex == wordsMin) {
-				if (newWord.value.length() == spider.value.length()) {
-					// Length and chars match: identical word found
-					spider.newLocation(line, column);
-					setWordNeighbour(spider);
-					return;
-				}
-				if (newWord.value.length() < spider.value.length()) {
-					// word is a prefix of node, split node.
-					nodeSplitDouble(spider, newWord);
-					return;
-				} else {
-					// node is a prefix of word
-					// check word isn't already child of spider
-					if (spider.child == null) {
-						nodeSplitDouble(spider, newWord);
-						return;
-					}
-					// children found. substring newWord and restart search
-					// with children
-					newWord.value = newWord.value.substring(++wordIndex);
-					spider = spider.child;
-					wordsMin = Math.min(newWord.value.length(),
-							spider.value.length()) - 1;
-					wordIndex = -1;
-					continue;
-				}
-			}
-		}
-	}
-
-	/**
-	 * This method splits an existing node into three nodes.
-	 * 
-	 * E.g. existing node: "race" (spider), want to add: "rise" (newWord)
-	 * 
-	 * Node is split into "r" with "ace" and "ise" as children.
-	 * 
-	 * "r" is the parent node as "ace" lexicographically preceeds "ise", "ace"
-	 * becomes "r"'s child, and "ise" becomes "ace"'s nextSibling
-	 * 
-	 * O(1)
-	 *
-	 * @param matchIndex
-	 *            The position within the existing node at which the two words
-	 *            no longer match. Using above example, the second character is
-	 *            the first character that no longer matches. r == r a != i.
-	 *            Because zero indexing, this is at position 1
-	 * @param spider
-	 *            Existing node
-	 * @param newWord
-	 *            New Node
-	 */
-	private void nodeSplitTriple(int matchIndex, trieNode spider,
-			trieNode newWord) {
-
-		// Create new node of shared letters.
-		trieNode newInternal = new trieNode(
-				spider.value.substring(0, matchIndex), spider.parent);
-
-		// Assume spider's siblings as its own
-		newInternal.nextSibling = spider.nextSibling;
-		newInternal.prevSibling = spider.prevSibling;
-
-		// Is spider the first child of its parent?
-		if (spider.parent.child == spider) {
-			// Let it know who its new first child is
-			spider.parent.child = newInternal;
-		}
-		// Does Spider have a next sibling?
-		if (spider.nextSibling != null) {
-			// Let it know who its new succeeding sibling is
-			spider.nextSibling.prevSibling = newInternal;
-		}
-		// Does Spider have a prev sibling?
-		if (spider.prevSibling != null) {
-			// Let it know who its new preceding sibling is
-			spider.prevSibling.nextSibling = newInternal;
-		}
-
-		// Remove now redundant characters from spider
-		spider.value = spider.value.substring(matchIndex);
-		// Set spider's new parent
-		spider.parent = newInternal;
-
-		// Remove now redundant characters from newWord
-		newWord.value = newWord.value.substring(matchIndex);
-		// Set newWord's new parent
-		newWord.parent = newInternal;
-
-		// Decide who gets to be the new parent's first child
-		// (who lexicographically comes first)
-		if (newWord.value.compareTo(spider.value) > 0) {
-			// Spider wins
-			newInternal.child = spider;
-			spider.nextSibling = newWord;
-			spider.prevSibling = null;
-			newWord.prevSibling = spider;
-		} else {
-			// newWord wins
-			newInternal.child = newWord;
-			newWord.nextSibling = spider;
-			spider.prevSibling = newWord;
-			spider.nextSibling = null;
-		}
-		// Set the new position of the most recently added word for nearest
-		// neighbour searches (phraseOccurence)
-		setWordNeighbour(newWord);
-		++uniqueWordsCount;
-	}
-
-	/**
-	 * This method is used for dealing with prefixes. E.g. existing node: "race"
-	 * (spider), want to add: "races" (newWord) Neither node will have children
-	 * at this point (if it did, we would be nodeSlotting)
-	 * 
-	 * O(1)
-	 * 
-	 * @param spider
-	 *            Existing Node
-	 * @param newWord
-	 *            New Node
-	 */
-	private void nodeSplitDouble(trieNode spider, trieNode newWord) {
-
-		// Who is the prefix of who?
-		if (spider.value.length() < newWord.value.length()) {
-			// spider is a prefix of newWord, so remove now redundant characters
-			// from newWord
-			newWord.value = newWord.value.substring(spider.value.length());
-			// Set up appropriate child/parent relationship
-			newWord.parent = spider;
-			spider.child = newWord;
-		} else {
-			// newWord is a prefix of spider. Remove redundant characters
-			spider.value = spider.value.substring(newWord.value.length());
-			newWord.parent = spider.parent;
-
-			// Because spider could already have siblings, we need to make sure
-			// newWord fits in with its new siblings, and spider properly says
-			// goodbye to its current siblings: as spider will now become a
-			// child of newWord (one level deeper on the tree)
-			newWord.nextSibling = spider.nextSibling;
-			newWord.prevSibling = spider.prevSibling;
-			if (spider.prevSibling != null) {
-				spider.prevSibling.nextSibling = newWord;
-			}
-			if (spider.nextSibling != null) {
-				spider.nextSibling.prevSibling = newWord;
-			}
-			// Is spider the first of its parent's children? If so, fix that.
-			if (spider.parent.child == spider) {
-				spider.parent.child = newWord;
-			}
-			newWord.child = spider;
-			spider.parent = newWord;
-			// Now a level deeper and the first (and only) child of newWord,
-			// spider must now forget its siblings (lucky spider :P )
-			spider.nextSibling = null;
-			spider.prevSibling = null;
-		}
-		// Set the new position of the most recently added word for nearest
-		// neighbour searches (phraseOccurence)
-		setWordNeighbour(newWord);
-		++uniqueWordsCount;
-	}
-
-	/**
-	 * This method is for dealing with bog-standard lexicographical order
-	 * amongst sibling nodes. E.g. Existing node: "that" (spider), want to add
-	 * "with" (newWord)
-	 * 
-	 * O(1)
-	 * 
-	 * @param spider
-	 *            Sibling node
-	 * @param newWord
-	 *            Sibling node
-	 */
-	private void nodeSlot(trieNode spider, trieNode newWord) {
-		// Does spider come after newWord?
-		if (spider.value.compareTo(newWord.value) > 0) {
-			newWord.prevSibling = spider.prevSibling;
-			newWord.nextSibling = spider;
-			newWord.parent = spider.parent;
-			if (newWord.prevSibling != null) {
-				newWord.prevSibling.nextSibling = newWord;
-			} else {
-				spider.parent.child = newWord;
-			}
-			spider.prevSibling = newWord;
-
-		} else {
-			// Spider comes before newWord
-			newWord.nextSibling = spider.nextSibling;
-			newWord.prevSibling = spider;
-			newWord.parent = spider.parent;
-			if (newWord.nextSibling != null) {
-				newWord.nextSibling.prevSibling = newWord;
-			}
-			if (newWord.prevSibling == null) {
-				spider.parent.child = newWord;
-			}
-			spider.nextSibling = newWord;
-		}
-		// O(1)
-		setWordNeighbour(newWord);
-		++uniqueWordsCount;
-	}
-
-	/**
-	 * This method links two word instances together, preserving the order in
-	 * which they appear in the text document.
-	 *
-	 * O(1)
-	 *
-	 * @param newWord
-	 *            Newly added word in the trie
-	 */
-	private void setWordNeighbour(trieNode newWord) {
-		// Is the last added word the the same word as the newWord?
-		// Example: "the the" "0,1"
-		if (lastAddedWord.equals(newWord)) {
-			// This method is called after the new location is already added to
-			// the node's list of locations
-			// 1.prev = 0
-			lastAddedWord.locations.prevNeighbourCoordinates = lastAddedWord.locations.nextCoordinate;
-			// 0.next = 1
-			lastAddedWord.locations.nextCoordinate.nextNeighbourCoordinates = lastAddedWord.locations;
-			return;
-		}
-		// Linking the last word to the current (latest) word
-		lastAddedWord.locations.nextNeighbourCoordinates = newWord.locations;
-		// Check we're not at the first added word
-		if (lastAddedWord != null) {
-			// Linking the current (latest) word to the last word
-			newWord.locations.prevNeighbourCoordinates = lastAddedWord.locations;
-		}
-		// Set up for next word
-		lastAddedWord = newWord;
-	}
-
-	/**
-	 * Searches the Compressed Trie for the node at which the given string
-	 * terminates.
-	 * 
-	 * O(log n) where n is the length of the text document. Because Zipf's Law
-	 * and Heap's Law (see readme.pdf)
-	 * 
-	 * or
-	 * 
-	 * O(n): O(a * l) where a is the length of the alphabet and l is the length
-	 * of the word
-	 * 
-	 * @param word
-	 *            The word to search for
-	 * @param mode
-	 *            Flag parameter: determines whether or not prefixes should be
-	 *            returned.
-	 * 
-	 *            0 = only return a node if the string exists as a whole word
-	 *            within the text document, null otherwise
-	 * 
-	 *            1 = return node when end of word reached regardless (all
-	 *            subsequent children with counts >= 1 will be words that have
-	 *            word as prefix)
-	 * @return trieNode The node at which the given string terminates, or null,
-	 *         if no such node found
-	 */
-	private trieNode findWord(String word, int mode) {
-		//
-
-		trieNode spider = root.child;
-		int wordIndex = 0;
-		char wordPoint = word.charAt(wordIndex);
-		char nodePoint = spider.value.charAt(wordIndex);
-		// Minimum of word.length and spider.value.length
-		int wordsMin = Math.min(word.length(), spider.value.length()) - 1;
-		// Local variable instead of running string.length() every time.
-		int wordLength = word.length();
-
-		// While we're not at the end of either the word or the spider's length,
-		// do...
-		for (wordIndex = 0; wordIndex <= wordsMin; ++wordIndex) {
-			// Get next character of both
-			wordPoint = word.charAt(wordIndex);
-			nodePoint = spider.value.charAt(wordIndex);
-
-			// If the character's don't match...
-			if (wordPoint != nodePoint) {
-				// If word's character lexicographically preceeds node's
-				// character, the word can't be in the trie ("b" will never be
-				// after "c" in dictionary)
-				if (wordPoint < nodePoint) {
-					// word not in trie
-					return null;
-				} else {
-					// Not there yet, but are there remaining words in the trie?
-					if (spider.nextSibling != null) {
-						// Yes, appropriate node could still be in remaining
-						// children. Move to next child, and reset loop
-						// parameters.
-						spider = spider.nextSibling;
-						wordsMin = Math.min(word.length(),
-								spider.value.length()) - 1;
-						wordIndex = -1;
-						continue;
-					} else {
-						// No words left
-						return null;
-					}
-				}
-			}
-			// Are we at the end of either the word or node?
-			if (wordIndex == wordsMin) {
-				// Reached end of word?
-				if (wordLength < spider.value.length()) {
-					// word is a prefix of spider
-					// are we looking for prefixes?
-					if (mode == 1) {
-						// Yes, return node
-						return spider;
-					}
-					// Not looking for prefixes, so word not found
-					return null;
-				}
-				// Or reached end of node?
-				if (wordLength > spider.value.length()) {
-					// Are there more words to search?
-					if (spider.child != null) {
-						// Yes, appropriate node could still be in children.
-						// Move to child, and reset loop parameters.
-						spider = spider.child;
-						word = word.substring(++wordIndex);
-						wordLength = word.length();
-						wordsMin = Math.min(word.length(),
-								spider.value.length()) - 1;
-						wordIndex = -1;
-						continue;
-					}
-					// No more words, word not found
-					return null;
-				}
-
-				// as all letters match, and length is same, node must be found
-				return spider;
-			}
-			// If not at the end of either word or node, and current letters
-			// match, continue to next character in both
-		}
-		return null;
-	}
-
-	/**
-	 * Determines the number of times the word appears in the document.
-	 *
-	 * O(log n) (see findWord javaDoc)
-	 * 
-	 * @param word
-	 *            The word to be counted in the document.
-	 * @return The number of occurrences of the word in the document.
-	 */
-	public int count(String word) {
-		trieNode node = findWord(word, 0);
-		if (node != null) {
-			return node.count;
-		}
-		return 0;
-	}
-
-	/**
-	 * Finds all occurrences of the phrase in the document. A phrase may be a
-	 * single word or a sequence of words.
-	 * 
-	 * O(n) (typical): O(f * l) where f is the number of times the phrase's
-	 * first word occurs in the document, and l is the length of the phrase
-	 * 
-	 * or
-	 * 
-	 * O(n^2) (pathological): If the text document consists of only one word
-	 * many times, and the phrase length is the length of the document, the run
-	 * time is proportional to n^2 as f == l
-	 * 
-	 * @param phrase
-	 *            The phrase to be found in the document.
-	 * @return List of pairs, where each pair indicates the line and column
-	 *         number of each occurrence of the phrase. Returns an empty list if
-	 *         the phrase is not found in the document.
-	 */
-	public List<Pair<Integer, Integer>> findPhrase(String[] phrase) {
-		// Count of words in phrase
-		int wordCount = phrase.length;
-
-		// Used exclusively because search.java returns a list of pairs.
-		// Not used as part of method behaviour
-		List<Pair<Integer, Integer>> phraseLocations = new LinkedList<Pair<Integer, Integer>>();
-
-		// find all instances of the first word in the phrase
-		// O(log n) (see method javadoc)
-		trieNode firstWord = findWord(phrase[0], 0);
-
-		if (firstWord == null) {
-			// first word NOT found == phrase doesn't exist in text
-			return phraseLocations;
-		}
-
-		// all instances of word (coordinate form)
-		textCoordinates wordLocations = firstWord.locations;
-
-		// If there's only one word, then all instances of the word count as the
-		// phrase, so return them all. O(f) f = frequency of word
-		if (wordCount == 1) {
-			for (int i = 0; i < firstWord.count; ++i) {
-				phraseLocations.add(new Pair<Integer, Integer>(
-						wordLocations.line, wordLocations.column));
-				wordLocations = wordLocations.nextCoordinate;
-			}
-			return phraseLocations;
-		}
-
-		// While there is another instance of word, do...
-		// O(f) f = frequency of word
-		while (wordLocations.nextCoordinate != null) {
-			// For every word in the phrase, do...
-			for (int i = 1; i < wordCount; ++i) {
-				// Get the nthWord n words away from our word
-				textCoordinates nthNextNeighbour = wordLocations
-						.nthNextNeighbour(i);
-				// If we're off the end of the document, try the next instance
-				if (nthNextNeighbour == null) {
-					break;
-				}
-				// Get the word's full value from the coordinate's node
-				// O(n) (see method javadoc)
-				String nthWord = nthNextNeighbour.word.getWord();
-
-				// Test if node's word matches word in phrase
-				if (!(nthWord.equals(phrase[i]))) {
-					break;
-				}
-				// Test if we're at the last word in the phrase
-				if (i == wordCount - 1) {
-					// Phrase Found!
-					Pair<Integer, Integer> phraseLocation = new Pair<Integer, Integer>(
-							wordLocations.line, wordLocations.column);
-					phraseLocations.add(phraseLocation);
-				}
-			}
-			// Move to next instance of phrase's first word
-			wordLocations = wordLocations.nextCoordinate;
-		}
-
-		return phraseLocations;
-	}
-
-	/**
-	 * Searches the document for lines that contain all the words in the 'words'
-	 * parameter. Implements simple "and" logic when searching for the words.
-	 * The words do not need to be contiguous on the line.
-	 * 
-	 * O(n) where n is the number of times the rarest word in the array appears
-	 * in the text
-	 * 
-	 * @param words
-	 *            Array of words to find on a single line in the document.
-	 * @return List of line numbers on which all the words appear in the
-	 *         document. Returns an empty list if the words do not appear in any
-	 *         line in the document.
-	 *
-	 */
-	public List<Integer> wordsOnLine(String[] words) {
-		// If there's only one word to find, we can utilise our logical 'or'
-		// method just fine
-		// O(n) (see method javadoc)
-		if (words.length == 1) {
-			return someWordsOnLine(words);
-		}
-
-		// Used exclusively to return results, not used for method behaviour
-		List<Integer> linesWithAllWords = new LinkedList<Integer>();
-
-		// Need to store array words in a way to omits duplicates and gives us
-		// an accurate count of unique words
-		CompressedTrie wordsTrie = new CompressedTrie();
-
-		// Because this is a logical 'and' search, only checking lines with the
-		// rarest word dramatically cuts down on possible searches to do
-		trieNode rarestWord = null;
-
-		for (String word : words) {
-			// Find the word in the main document
-			trieNode wordsNode = findWord(word, 0);
-			if (wordsNode == null) {
-				// If this word doesn't occur anywhere, no point in checking the
-				// rest of the document
-				return linesWithAllWords;
-			}
-			// Add the word to our new phrase storage type
-			wordsTrie.add(word, 1, 1);
-
-			// Determine which word is the rarest of them all
-			if (rarestWord == null) {
-				rarestWord = wordsNode;
-			} else {
-				if (rarestWord.count > wordsNode.count) {
-					rarestWord = wordsNode;
-				}
-			}
-		}
-
-		textCoordinates rarestWordInstance = rarestWord.locations;
-		textCoordinates spider = rarestWordInstance;
-
-		// Check every line on which the rarest word is found
-		while (spider != null) {
-			// Need to store the line's words in a way to omits duplicates and
-			// gives us an accurate count of unique words
-			CompressedTrie lineCandidateTrie = new CompressedTrie();
-
-			int currentLine = spider.line;
-
-			// Navigate to line's first word
-			while (true) {
-				if (spider.prevNeighbourCoordinates != null) {
-					if (spider.prevNeighbourCoordinates.line == currentLine) {
-						spider = spider.prevNeighbourCoordinates;
-					} else {
-						break;
-					}
-				} else {
-					break;
-				}
-			}
-
-			// Move forward across the line, adding only words that are in
-			// words[]
-			do {
-				String spiderWord = spider.word.getWord();
-				// O(log n) (see method javadoc)
-				if (wordsTrie.count(spiderWord) > 0) {
-					// O(log n) (see method javadoc)
-					lineCandidateTrie.add(spiderWord, 1, 1);
-				}
-				spider = spider.nextNeighbourCoordinates;
-				if (spider.nextNeighbourCoordinates == null) {
-					break;
-				}
-			} while (spider.prevNeighbourCoordinates.line == spider.line);
-
-			// Because wordsTrie has exclusively all the words in the phrase
-			// and because a word is only added to lineCadidateTrie if it exists
-			// in wordsTre, if the counts are the same, then this is a valid
-			// line
-			if (wordsTrie.uniqueWordsCount == lineCandidateTrie.uniqueWordsCount) {
-				// O(1) (adding to unordered linked list is always O(1))
-				linesWithAllWords.add(rarestWordInstance.line);
-			}
-
-			// Move to the next line on which the rarest word occurs and start
-			// search again
-			rarestWordInstance = rarestWordInstance.nextCoordinate;
-			spider = rarestWordInstance;
-		}
-
-		return linesWithAllWords;
-	}
-
-	/**
-	 * Finds all occurrences of the prefix in the document. A prefix is the
-	 * start of a word. It can also be the complete word. For example, "obscure"
-	 * would be a prefix for "obscure", "obscured", "obscures" and "obscurely".
-	 * 
-	 * O(n): O(i + (n * c)) where i is the number of internal nodes, n is the
-	 * number of nodes with valid words, and c is the number of instances of
-	 * that valid word
-	 * 
-	 * @param prefix
-	 *            The prefix of a word that is to be found in the document.
-	 * @return List of pairs, where each pair indicates the line and column
-	 *         number of each occurrence of the prefix. Returns an empty list if
-	 *         the prefix is not found in the document.
-	 */
-	public List<Pair<Integer, Integer>> findPrefix(String prefix) {
-		// Used exclusively because search.java returns a list of pairs.
-		// Not used as part of method behaviour
-		List<Pair<Integer, Integer>> prefixLocations = new LinkedList<Pair<Integer, Integer>>();
-		// find node representing the prefix
-		trieNode prefixNode = findWord(prefix, 1);
-
-		if (prefixNode == null) {
-			// no such prefix exists
-			return prefixLocations;
-		}
-		// O(n) (see method javadoc)
-		// While it is in preOrder that the (n * c) part occurs, because
-		// preOrder is more of a generic method, I have that part here
-		preOrder(0, prefixLocations, null, prefixNode);
-
-		return prefixLocations;
-	}
-
-	/**
-	 * Searches the document for lines that contain any of the words in the
-	 * 'words' parameter. Implements simple "or" logic when searching for the
-	 * words. The words do not need to be contiguous on the line.
-	 * 
-	 * O(n) where n is the number of word instances to find.
-	 * 
-	 * @param words
-	 *            Array of words to find on a single line in the document.
-	 * @return List of line numbers on which any of the words appear in the
-	 *         document. Returns an empty list if none of the words appear in
-	 *         any line in the document.
-	 */
-	public List<Integer> someWordsOnLine(String[] words) {
-
-		// Because we don't want to return duplicated lines, the actual line
-		// numbers of all word instances will be converted to Strings, and added
-		// to a CompressedTrie instance. Later, to return all lines, we just
-		// have to get each line number.
-		CompressedTrie lines = new CompressedTrie();
-
-		// Not used for method behaviour, only for returning results.
-		List<Integer> foundLines = new LinkedList<Integer>();
-
-		// Find every instance of each word within the document
-		for (String word : words) {
-			// O(log n) / O(n) (see method javadoc)
-			trieNode wordNode = findWord(word, 0);
-			if (wordNode == null) {
-				continue;
-			}
-			textCoordinates instance = wordNode.locations;
-			// Add every instance of word to trie (O(n) where in is the number
-			// of instances of the word)
-			while (instance != null) {
-				lines.add("" + instance.line, 1, 1);
-				instance = instance.nextCoordinate;
-			}
-		}
-		// O(n) (see javadoc)
-		preOrder(1, null, foundLines, lines.root);
-		return foundLines;
-	}
-
-	/**
-	 * Searches the trie in a depth-first pre-order fashion, adding to a List as
-	 * it goes.
-	 * 
-	 * O(n) where n is the found number of words with the word at 'start' as its
-	 * prefix + the number of nodes between them and 'start'
-	 * 
-	 * n is also linear because maximum number of nodes in a compressed trie
-	 * storing S words is 2*S (still linear and therefore proportional to word
-	 * count))
-	 *
-	 * @param command
-	 *            Is this for (0) prefixOccurrence or (1) someWordsOnLine?
-	 * @param prefixLocations
-	 *            The list to be added to for prefixOccurence
-	 * @param lines
-	 *            The list to be added to for someWordsOnLine
-	 * @param start
-	 *            The trieNode at which the search should begin
-	 */
-	private void preOrder(int command,
-			List<Pair<Integer, Integer>> prefixLocations, List<Integer> lines,
-			trieNode start) {
-
-		trieNode spider = start;
-		while (true) {
-			// Are there words on the current node?
-			if (spider.count > 0) {
-				// If we're searching for findPrefix()
-				if (command == 0) {
-					// Get their locations
-					textCoordinates wordInstance = spider.locations;
-					do {
-						// Add them all to the list (O(n), n = number of word
-						// instances)
-						prefixLocations.add(new Pair<Integer, Integer>(
-								wordInstance.line, wordInstance.column));
-						wordInstance = wordInstance.nextCoordinate;
-					} while (wordInstance != null);
-				} else {
-					// When using this for someWordsOnLine, the lines are stored
-					// as strings so duplicate lines aren't added to the list
-					lines.add(Integer.parseInt(spider.getWord()));
-				}
-			}
-			// Does this node have children?
-			if (spider.child != null) {
-				// Move down to child
-				spider = spider.child;
-				continue;
-			}
-
-			// No children; are we still at the 'root' node?
-			if (spider == start) {
-				return;
-			}
-
-			// No children, and not at the 'root' node; does this node have a
-			// sibling?
-			if (spider.nextSibling != null) {
-				// Move across to sibling
-				spider = spider.nextSibling;
-				continue;
-			}
-
-			// No children, and not at the 'root' node, and no siblings; Is our
-			// parent the 'root' node?
-			// (Are we at the top of the last subtree?)
-			if (spider.parent == start) {
-				return;
-			}
-
-			// Not at the top of the last subtree; move back up the tree to
-			// another unsearched sibling, or if there aren't any, return the
-			// list
-			while (spider.parent.nextSibling == null) {
-				// No unsearched subtrees found yet...
-				spider = spider.parent;
-				// Is this node the top of the last subtree?
-				if (spider.parent == start) {
-					// It is, return list
-					return;
-				}
-			}
-			// Unsearched subtree/node found, continue search.
-			spider = spider.parent.nextSibling;
-		}
-	}
-
-	// ##############################################################
-
-	private class trieNode {
-		// How many times this word occurs in the document.
-		// If trieNode doesn't represent the end of a word count == 0 always
-		private int count;
-		// The ordered series of characters this node represents
-		private String value;
-		// The lexicographically next child of this node's parent
-		private trieNode nextSibling;
-		// The lexicographically previous child of this node's parent
-		private trieNode prevSibling;
-		// The lexicographically first child of this node
-		private trieNode child;
-		// This node's parent node
-		private trieNode parent;
-		// The last identified occurrence of this word within the text
-		// (Plural because it's an ordered linked list of all occurrences)
-		private textCoordinates locations;
-
-		/**
-		 * Creates extraneous (root) node
-		 * 
-		 * O(1)
-		 */
-		public trieNode() {
-			count = 0;
-			value = "";
-		}
-
-		//
-		/**
-		 * Creates node that does not represent the end of a word.
-		 * 
-		 * O(1)
-		 * 
-		 * @param value
-		 *            The string representing the word section.
-		 * @param parent
-		 *            The node represeting the preceding word section.
-		 */
-		public trieNode(String value, trieNode parent) {
-			count = 0;
-			this.parent = parent;
-			this.value = value;
-		}
-
-		/**
-		 * Creates end of word node.
-		 * 
-		 * O(1)
-		 * 
-		 * @param value
-		 *            The string representing the word (or end of word).
-		 * @param line
-		 *            Line number of the word.
-		 * @param column
-		 *            Column number of the word.
-		 */
-		public trieNode(String value, int line, int column) {
-			++count;
-			this.value = value;
-			locations = new textCoordinates(this, line, column);
-		}
-
-		/**
-		 * Adds a new location of the word within the document
-		 * 
-		 * O(1)
-		 *
-		 * @param line
-		 *            Line number of the word.
-		 * @param column
-		 *            Column number of the word.
-		 */
-		public void newLocation(int line, int column) {
-			++count;
-			textCoordinates newer = new textCoordinates(this, line, column);
-			newer.nextCoordinate = this.locations;
-			this.locations = newer;
-		}
-
-		/**
-		 * Get the word represented by this node.
-		 * 
-		 * O(n) where n is the length of the word or O(log n) where n is the
-		 * variety of words in the text
-		 * 
-		 * @return The word represented by this node.
-		 */
-		public String getWord() {
-			String word = value;
-			trieNode spider = this.parent;
-			// Spider climbs from this node, to the root node, building the word
-			// as
-			// it goes.
-			while (spider != null) {
-				word = spider.value + word;
-				spider = spider.parent;
-			}
-			return word;
-		}
-	}
-
-	// ################################################################
-
-	private class textCoordinates {
-		// Line on which this word may be found
-		private int line;
-		// Column on which this word begins
-		private int column;
-		// The next occurrence of the same word within the document
-		// Example: The first "the" in "The next occurrence" would have
-		// "the" in "the same word" as its nextCoordiante
-		private textCoordinates nextCoordinate;
-		// The word that immediately succeeds this word within the document
-		// Example: "word" in "word within" would have "within" as its
-		// nextNeighbourCoordinates
-		private textCoordinates nextNeighbourCoordinates;
-		// Same as nextNeighbourCoordinates, but with word that *precedes* this
-		// word
-		private textCoordinates prevNeighbourCoordinates;
-		// Link back to the node within the CompressedTrie.
-		private trieNode word;
-
-		/**
-		 * Creates an instance of a word's location.
-		 * 
-		 * O(1)
-		 * 
-		 * @param word
-		 *            The node representing the end of the word
-		 * @param line
-		 *            Line number of the word.
-		 * @param column
-		 *            Column number of the word.
-		 */
-		public textCoordinates(trieNode word, int line, int column) {
-			this.word = word;
-			this.line = line;
-			this.column = column;
-		}
-
-		/**
-		 * Returns the word n words after the current word. Example: "current"
-		 * is 3 words after "words".
-		 * 
-		 * O(n) where n is the desired number of hops
-		 * 
-		 * @param n
-		 *            The desired number of hops
-		 * @return textCoordinates of the word located n words after the current
-		 *         word.
-		 */
-		public textCoordinates nthNextNeighbour(int n) {
-			textCoordinates spider = this;
-			for (int i = 0; i < n; ++i) {
-				if (spider.nextNeighbourCoordinates == null)
-					return null;
-				spider = spider.nextNeighbourCoordinates;
-			}
-			return spider;
-		}
-
-		public String toString() {
-			return "(" + line + ", " + column + ")";
-		}
-
-	}
-}
+package comp3506.assn2.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+public class CompressedTrie {
+	// Number of children at which a node gets a slot for every letter
+	private static final int DENSE_CHILDREN = 8;
+	// 'a' to 'z' and the apostrophe
+	private static final int SLOTS = 27;
+	// Most words a batch lookup walks on one thread (see termIds)
+	private static final int WORD_CHUNK = 1024;
+	// Most phrases a batch matches on one thread (see findPhrases)
+	private static final int PHRASE_CHUNK = 16;
+
+	private trieNode root;
+	// The trie as primitive arrays, once frozen (root is then null)
+	private FrozenTrie frozen;
+	// Every occurrence of every word, in primitive arrays
+	private Postings postings;
+	// Every distinct word, by term id
+	private String[] vocabulary;
+	// Words left out of the postings arena (may be null)
+	private StopWords stopWords;
+	// Term id of each stop word, -1 until it first occurs
+	private int[] stopTerms;
+
+	public CompressedTrie() {
+		this(null);
+	}
+
+	/**
+	 * Creates a trie whose stop words are counted and kept in the token stream
+	 * (so phrases containing them are still found), but are left out of the
+	 * postings order (see Postings.ignore): the line and section searches,
+	 * and prefix searches, ignore them.
+	 *
+	 * O(s) where s is the number of stop words
+	 *
+	 * @param stopWords
+	 *            The stop words, or null for none
+	 */
+	public CompressedTrie(StopWords stopWords) {
+		root = new trieNode();
+		postings = new Postings();
+		vocabulary = new String[1024];
+		this.stopWords = stopWords;
+		if (stopWords != null) {
+			stopTerms = new int[stopWords.size()];
+			Arrays.fill(stopTerms, -1);
+		}
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The stop words, or null if there are none
+	 */
+	public StopWords getStopWords() {
+		return stopWords;
+	}
+
+	/**
+	 * Adds the next word in the text to the trie.
+	 *
+	 * O(l) where l is the length of the word (see insert javadoc)
+	 *
+	 * @param word
+	 *            The next word in the text
+	 * @param line
+	 *            The line on which the word is located
+	 * @param column
+	 *            The column at which the word begins
+	 */
+	public void add(String word, int line, int column) {
+		checkNotFrozen();
+		// Make case in-sensitive
+		word = word.toLowerCase();
+		trieNode wordNode = insert(word);
+		// First occurrence of the word: give it a slot in the postings
+		if (wordNode.term < 0) {
+			newTerm(wordNode, word);
+		}
+		// O(1) (amortised)
+		postings.add(wordNode.term, line, column);
+	}
+
+	/**
+	 * Adds the next word in the text to the trie, straight from a buffer of
+	 * lower case chars. The word is looked up without making a String of it,
+	 * so a String is only made the first time each word is seen.
+	 *
+	 * O(l) where l is the length of the word (see findWord and insert)
+	 *
+	 * @param word
+	 *            Holds the lower case word from index 0
+	 * @param length
+	 *            The length of the word
+	 * @param line
+	 *            The line on which the word is located
+	 * @param column
+	 *            The column at which the word begins
+	 */
+	public void add(char[] word, int length, int line, int column) {
+		checkNotFrozen();
+		trieNode wordNode = findWord(word, length);
+		if (wordNode == null || wordNode.term < 0) {
+			// A new word: it needs a String anyway, for the trie and the
+			// vocabulary
+			add(new String(word, 0, length), line, column);
+			return;
+		}
+		// O(1) (amortised)
+		postings.add(wordNode.term, line, column);
+	}
+
+	/**
+	 * Adds the next word in the text, which is known to be a stop word. Only
+	 * the first occurrence of each stop word touches the trie.
+	 *
+	 * O(1) (amortised)
+	 *
+	 * @param stopWord
+	 *            The index of the word among the stop words
+	 * @param line
+	 *            The line on which the word is located
+	 * @param column
+	 *            The column at which the word begins
+	 */
+	public void addStopWord(int stopWord, int line, int column) {
+		checkNotFrozen();
+		if (stopTerms[stopWord] < 0) {
+			String word = stopWords.word(stopWord);
+			// Sets stopTerms[stopWord]
+			newTerm(insert(word), word);
+		}
+		postings.add(stopTerms[stopWord], line, column);
+	}
+
+	/**
+	 * Gives a word node the next dense term id.
+	 *
+	 * O(1) (amortised)
+	 *
+	 * @param wordNode
+	 *            The node at which the word terminates
+	 * @param word
+	 *            The whole word
+	 */
+	private void newTerm(trieNode wordNode, String word) {
+		wordNode.term = postings.newTerm();
+		if (wordNode.term == vocabulary.length) {
+			vocabulary = Arrays.copyOf(vocabulary, vocabulary.length * 2);
+		}
+		vocabulary[wordNode.term] = word;
+		// Stop words are left out of the postings order
+		int stopWord = stopWords == null ? -1 : stopWords.indexOf(word);
+		if (stopWord >= 0) {
+			postings.ignore(wordNode.term);
+			stopTerms[stopWord] = wordNode.term;
+		}
+	}
+
+	/**
+	 * Finds the node representing the word, adding it to the trie if it isn't
+	 * there yet.
+	 *
+	 * O(l) where l is the length of the word (O(l * log a) below the dense
+	 * nodes, where a is the length of the alphabet, see trieNode.child)
+	 *
+	 * @param word
+	 *            The (lower case) word
+	 * @return The node at which the word terminates
+	 */
+	private trieNode insert(String word) {
+		// "Spider" because it's like a spider crawling over a web
+		trieNode spider = root;
+		// The position in the word of the spider's children
+		int wordIndex = 0;
+
+		while (true) {
+			// The only child that can share any characters with the word
+			trieNode next = spider.child(word.charAt(wordIndex));
+			if (next == null) {
+				// Nothing shares the next character: the rest of the word
+				// becomes a new child of the spider
+				trieNode newWord = new trieNode(word.substring(wordIndex));
+				addChild(spider, newWord);
+				return newWord;
+			}
+
+			// How much of the node matches the word (the first char does)
+			int matched = matchLength(next.value, word, wordIndex);
+			if (matched < next.value.length()) {
+				trieNode newWord = new trieNode(word.substring(wordIndex));
+				if (wordIndex + matched == word.length()) {
+					// word ends within node: split node ("race" + "rac")
+					nodeSplitDouble(next, newWord);
+				} else {
+					// We have matched chars, but differ at some point in
+					// the node. This is as close as we can get: split node
+					nodeSplitTriple(matched, next, newWord);
+				}
+				return newWord;
+			}
+
+			wordIndex += matched;
+			if (wordIndex == word.length()) {
+				// Length and chars match: identical word found
+				return next;
+			}
+			// node is a prefix of word: carry on with its children
+			spider = next;
+		}
+	}
+
+	/**
+	 * Finds the node at which a word ends, straight from a buffer of chars.
+	 *
+	 * O(l) where l is the length of the word (see trieNode.child)
+	 *
+	 * @param word
+	 *            Holds the lower case word from index 0
+	 * @param length
+	 *            The length of the word
+	 * @return The node at which the word ends, or null if no node does (the
+	 *         node may still not be a word, see trieNode.term)
+	 */
+	private trieNode findWord(char[] word, int length) {
+		trieNode spider = root;
+		// The position in the word of the spider's children
+		int wordIndex = 0;
+		while (wordIndex < length) {
+			// The only child that can share any characters with the word
+			trieNode next = spider.child(word[wordIndex]);
+			if (next == null || next.value.length() > length - wordIndex) {
+				return null;
+			}
+			// The first char matches: check the rest of the node
+			for (int i = 1; i < next.value.length(); ++i) {
+				if (next.value.charAt(i) != word[wordIndex + i]) {
+					return null;
+				}
+			}
+			wordIndex += next.value.length();
+			spider = next;
+		}
+		return spider;
+	}
+
+	/**
+	 * O(m) where m is the number of matching characters
+	 *
+	 * @param value
+	 *            A node's characters
+	 * @param word
+	 *            A word
+	 * @param from
+	 *            Where in the word the node's characters would start
+	 * @return How many characters at the start of value match word from 'from'
+	 */
+	private static int matchLength(String value, String word, int from) {
+		int limit = Math.min(value.length(), word.length() - from);
+		int matched = 0;
+		while (matched < limit
+				&& value.charAt(matched) == word.charAt(from + matched)) {
+			++matched;
+		}
+		return matched;
+	}
+
+	/**
+	 * Turns the trie into its read-only form (see FrozenTrie) once every word
+	 * has been added. The linked nodes are dropped, and lookups give the same
+	 * results as before. Words can no longer be added.
+	 *
+	 * This ends the build phase. The trie and its postings are not written
+	 * again (other than the benign cache in Postings.lines), so once the
+	 * frozen trie has been safely published (say through a final field, as
+	 * AutoTester does) any number of threads may query it without locking.
+	 * Before then, queries may seal the postings, so they must not run
+	 * alongside each other or alongside add.
+	 *
+	 * O(v + n) where v is the number of nodes and n the number of words in the
+	 * text (the postings are sealed too, see Postings.seal)
+	 */
+	public void freeze() {
+		if (frozen != null) {
+			return;
+		}
+		frozen = layOut();
+		root = null;
+		// Lexicographical order puts the words below any node in one slice
+		postings.order(frozen.order());
+		postings.seal();
+	}
+
+	/**
+	 * Lays the linked nodes out as a FrozenTrie.
+	 *
+	 * O(v) where v is the number of nodes
+	 *
+	 * @return The trie in its read-only form
+	 */
+	private FrozenTrie layOut() {
+		// Every node, in level order: each node's children are consecutive
+		trieNode[] nodes = new trieNode[64];
+		nodes[0] = root;
+		int nodeCount = 1;
+		int labelLength = 0;
+		int[] childStarts = new int[64];
+		for (int node = 0; node < nodeCount; ++node) {
+			if (nodeCount + nodes[node].childCount + 1 > nodes.length) {
+				int capacity = (nodeCount + nodes[node].childCount + 1) * 2;
+				nodes = Arrays.copyOf(nodes, capacity);
+				childStarts = Arrays.copyOf(childStarts, capacity);
+			}
+			childStarts[node] = nodeCount;
+			// Siblings are in lexicographical order
+			for (trieNode child = nodes[node].child; child != null;
+					child = child.nextSibling) {
+				nodes[nodeCount++] = child;
+			}
+			labelLength += nodes[node].value.length();
+		}
+		childStarts[nodeCount] = nodeCount;
+
+		char[] labels = new char[labelLength];
+		int[] labelStarts = new int[nodeCount + 1];
+		int[] terms = new int[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			String value = nodes[node].value;
+			value.getChars(0, value.length(), labels, labelStarts[node]);
+			labelStarts[node + 1] = labelStarts[node] + value.length();
+			terms[node] = nodes[node].term;
+		}
+		return new FrozenTrie(labels, labelStarts,
+				Arrays.copyOf(childStarts, nodeCount + 1), terms);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return Whether the trie has been frozen (see freeze)
+	 */
+	public boolean isFrozen() {
+		return frozen != null;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @throws IllegalStateException
+	 *             if the trie has been frozen
+	 */
+	private void checkNotFrozen() {
+		if (frozen != null) {
+			throw new IllegalStateException("The trie is frozen");
+		}
+	}
+
+	/**
+	 * Adds every word of another trie after the words of this one, as if the
+	 * other trie's text followed this one's. Occurrences stay in document
+	 * order, and the last word of this text becomes the neighbour of the first
+	 * word of the other.
+	 *
+	 * O(n + v * l) where n is the number of words in the other text, v the
+	 * number of distinct words in it, and l the cost of inserting one (see
+	 * insert javadoc)
+	 *
+	 * @param other
+	 *            Trie of the text that follows this one. It must not be used
+	 *            afterwards.
+	 * @param lineOffset
+	 *            Number of lines in this text before other's first line
+	 */
+	public void append(CompressedTrie other, int lineOffset) {
+		checkNotFrozen();
+		// Find (or insert) each distinct word of the other text here
+		int[] termMap = new int[other.postings.termCount()];
+		for (int term = 0; term < termMap.length; ++term) {
+			trieNode wordNode = insert(other.vocabulary[term]);
+			if (wordNode.term < 0) {
+				newTerm(wordNode, other.vocabulary[term]);
+			}
+			termMap[term] = wordNode.term;
+		}
+		// O(n)
+		postings.append(other.postings, termMap, lineOffset);
+	}
+
+	/**
+	 * Makes a new frozen trie of this trie's text followed by another's. This
+	 * trie is left as it is, so it can still be queried meanwhile (and by
+	 * other threads, see freeze).
+	 *
+	 * The other text's words are looked up here; if every one of them is
+	 * already here, the new trie shares this one's frozen form. Otherwise it
+	 * is laid out again from the vocabulary. The postings are extended rather
+	 * than built again (see Postings.appended).
+	 *
+	 * O(m + u * l) where m is the number of words in the other text, u the
+	 * number of distinct words in it, and l the cost of finding one, if it
+	 * has no new words; plus O(v * l) to lay the trie out again if it has,
+	 * where v is the size of the vocabulary; plus copying this trie's
+	 * postings (see Postings.appended)
+	 *
+	 * @param other
+	 *            Trie of the text that follows this one (frozen or not). It
+	 *            is not changed.
+	 * @param lineOffset
+	 *            Number of lines in this text before other's first line
+	 * @return The trie of both texts
+	 * @throws IllegalStateException
+	 *             if this trie is not frozen
+	 */
+	public CompressedTrie appended(CompressedTrie other, int lineOffset) {
+		if (frozen == null) {
+			throw new IllegalStateException("The trie is not frozen");
+		}
+		CompressedTrie trie = new CompressedTrie(stopWords);
+		int termCount = postings.termCount();
+		int otherTermCount = other.postings.termCount();
+		trie.vocabulary = Arrays.copyOf(vocabulary,
+				Math.max(vocabulary.length, termCount + otherTermCount));
+		if (stopTerms != null) {
+			trie.stopTerms = stopTerms.clone();
+		}
+
+		// Words new to this text are numbered on from the last term id
+		int[] termMap = new int[otherTermCount];
+		int newTermCount = termCount;
+		for (int term = 0; term < otherTermCount; ++term) {
+			String word = other.vocabulary[term];
+			int node = frozen.find(word, false);
+			termMap[term] = node < 0 ? -1 : frozen.term(node);
+			if (termMap[term] < 0) {
+				termMap[term] = newTermCount;
+				trie.vocabulary[newTermCount++] = word;
+				int stopWord = stopWords == null ? -1 : stopWords.indexOf(word);
+				if (stopWord >= 0) {
+					trie.stopTerms[stopWord] = termMap[term];
+				}
+			}
+		}
+
+		if (newTermCount == termCount) {
+			trie.frozen = frozen;
+		} else {
+			// Term ids stay as they are, so insert the words in id order
+			for (int term = 0; term < newTermCount; ++term) {
+				trie.insert(trie.vocabulary[term]).term = term;
+			}
+			trie.frozen = trie.layOut();
+		}
+		trie.root = null;
+		trie.postings = postings.appended(other.postings, termMap,
+				lineOffset, trie.frozen.order());
+		return trie;
+	}
+
+	/**
+	 * Writes the trie: its vocabulary, by term id, then its postings (see
+	 * Postings.write).
+	 *
+	 * O(n + v) where n is the number of words in the text and v the number of
+	 * distinct words
+	 *
+	 * @param out
+	 *            Where to write
+	 * @throws IOException
+	 *             if out cannot be written to
+	 */
+	public void write(DataOutput out) throws IOException {
+		int termCount = postings.termCount();
+		out.writeInt(termCount);
+		for (int term = 0; term < termCount; ++term) {
+			out.writeUTF(vocabulary[term]);
+		}
+		postings.write(out);
+	}
+
+	/**
+	 * Reads a trie written by write(). The trie read is frozen (see freeze).
+	 *
+	 * O(n + v * l) where n is the number of words in the text, v the
+	 * number of distinct words, and l the cost of inserting one
+	 *
+	 * @param in
+	 *            Where to read from
+	 * @param stopWords
+	 *            The stop words the trie was built with, or null
+	 * @return The trie
+	 * @throws IOException
+	 *             if in cannot be read from, or does not hold a valid trie
+	 */
+	public static CompressedTrie read(DataInput in, StopWords stopWords)
+			throws IOException {
+		CompressedTrie trie = new CompressedTrie(stopWords);
+		int termCount = in.readInt();
+		for (int term = 0; term < termCount; ++term) {
+			String word = in.readUTF();
+			trieNode wordNode = word.isEmpty() ? null : trie.insert(word);
+			if (wordNode == null || wordNode.term >= 0) {
+				throw new IOException("Corrupt vocabulary");
+			}
+			// Term ids are handed out in order, so this is the same id
+			trie.newTerm(wordNode, word);
+		}
+		Postings postings = Postings.read(in);
+		if (postings.termCount() != termCount) {
+			throw new IOException("Vocabulary does not match postings");
+		}
+		// Carry over which terms are stop words
+		for (int term = 0; term < termCount; ++term) {
+			if (trie.postings.isIgnored(term)) {
+				postings.ignore(term);
+			}
+		}
+		trie.postings = postings;
+		// The trie is complete
+		trie.freeze();
+		return trie;
+	}
+
+	/**
+	 * This method splits an existing node into three nodes.
+	 * 
+	 * E.g. existing node: "race" (spider), want to add: "rise" (newWord)
+	 * 
+	 * Node is split into "r" with "ace" and "ise" as children.
+	 * 
+	 * "r" is the parent node as "ace" lexicographically preceeds "ise", "ace"
+	 * becomes "r"'s child, and "ise" becomes "ace"'s nextSibling
+	 * 
+	 * O(1)
+	 *
+	 * @param matchIndex
+	 *            The position within the existing node at which the two words
+	 *            no longer match. Using above example, the second character is
+	 *            the first character that no longer matches. r == r a != i.
+	 *            Because zero indexing, this is at position 1
+	 * @param spider
+	 *            Existing node
+	 * @param newWord
+	 *            New Node
+	 */
+	private void nodeSplitTriple(int matchIndex, trieNode spider,
+			trieNode newWord) {
+
+		// Create new node of shared letters.
+		trieNode newInternal = new trieNode(
+				spider.value.substring(0, matchIndex), spider.parent);
+
+		// Assume spider's siblings as its own
+		newInternal.nextSibling = spider.nextSibling;
+		newInternal.prevSibling = spider.prevSibling;
+
+		// Is spider the first child of its parent?
+		if (spider.parent.child == spider) {
+			// Let it know who its new first child is
+			spider.parent.child = newInternal;
+		}
+		// Same first character, so it takes spider's place in the index
+		spider.parent.putChild(newInternal);
+		// Does Spider have a next sibling?
+		if (spider.nextSibling != null) {
+			// Let it know who its new succeeding sibling is
+			spider.nextSibling.prevSibling = newInternal;
+		}
+		// Does Spider have a prev sibling?
+		if (spider.prevSibling != null) {
+			// Let it know who its new preceding sibling is
+			spider.prevSibling.nextSibling = newInternal;
+		}
+
+		// Remove now redundant characters from spider
+		spider.value = spider.value.substring(matchIndex);
+		// Set spider's new parent
+		spider.parent = newInternal;
+
+		// Remove now redundant characters from newWord
+		newWord.value = newWord.value.substring(matchIndex);
+		// Set newWord's new parent
+		newWord.parent = newInternal;
+
+		// Decide who gets to be the new parent's first child
+		// (who lexicographically comes first)
+		if (newWord.value.compareTo(spider.value) > 0) {
+			// Spider wins
+			newInternal.child = spider;
+			spider.nextSibling = newWord;
+			spider.prevSibling = null;
+			newWord.prevSibling = spider;
+		} else {
+			// newWord wins
+			newInternal.child = newWord;
+			newWord.nextSibling = spider;
+			spider.prevSibling = newWord;
+			spider.nextSibling = null;
+		}
+		newInternal.putChild(spider);
+		newInternal.putChild(newWord);
+	}
+
+	/**
+	 * This method is used for dealing with prefixes. E.g. existing node: "race"
+	 * (spider), want to add: "rac" (newWord). newWord takes spider's place,
+	 * and spider (now "e") becomes newWord's only child.
+	 * 
+	 * O(1)
+	 * 
+	 * @param spider
+	 *            Existing Node
+	 * @param newWord
+	 *            New Node, a prefix of spider
+	 */
+	private void nodeSplitDouble(trieNode spider, trieNode newWord) {
+		// newWord is a prefix of spider. Remove redundant characters
+		spider.value = spider.value.substring(newWord.value.length());
+		newWord.parent = spider.parent;
+
+		// Because spider could already have siblings, we need to make sure
+		// newWord fits in with its new siblings, and spider properly says
+		// goodbye to its current siblings: as spider will now become a
+		// child of newWord (one level deeper on the tree)
+		newWord.nextSibling = spider.nextSibling;
+		newWord.prevSibling = spider.prevSibling;
+		if (spider.prevSibling != null) {
+			spider.prevSibling.nextSibling = newWord;
+		}
+		if (spider.nextSibling != null) {
+			spider.nextSibling.prevSibling = newWord;
+		}
+		// Is spider the first of its parent's children? If so, fix that.
+		if (spider.parent.child == spider) {
+			spider.parent.child = newWord;
+		}
+		// Same first character, so it takes spider's place in the index
+		spider.parent.putChild(newWord);
+		newWord.child = spider;
+		newWord.putChild(spider);
+		spider.parent = newWord;
+		// Now a level deeper and the first (and only) child of newWord,
+		// spider must now forget its siblings (lucky spider :P )
+		spider.nextSibling = null;
+		spider.prevSibling = null;
+	}
+
+	/**
+	 * Adds a node as a child of another, none of whose children start with the
+	 * same character. Siblings are kept in lexicographical order.
+	 * 
+	 * O(log a) where a is the length of the alphabet
+	 * 
+	 * @param parent
+	 *            The new node's parent
+	 * @param newWord
+	 *            The new node
+	 */
+	private void addChild(trieNode parent, trieNode newWord) {
+		newWord.parent = parent;
+		// The sibling that comes just before newWord, if any
+		trieNode previous = parent.childBefore(newWord.value.charAt(0));
+		if (previous == null) {
+			// newWord becomes the first child
+			newWord.nextSibling = parent.child;
+			parent.child = newWord;
+		} else {
+			newWord.nextSibling = previous.nextSibling;
+			newWord.prevSibling = previous;
+			previous.nextSibling = newWord;
+		}
+		if (newWord.nextSibling != null) {
+			newWord.nextSibling.prevSibling = newWord;
+		}
+		parent.putChild(newWord);
+	}
+
+	/**
+	 * Searches the Compressed Trie for the node at which the given string
+	 * terminates.
+	 * 
+	 * O(l) where l is the length of the word (O(l * log a) below the dense
+	 * nodes, where a is the length of the alphabet, see trieNode.child)
+	 * 
+	 * @param word
+	 *            The word to search for
+	 * @param mode
+	 *            Flag parameter: determines whether or not prefixes should be
+	 *            returned.
+	 * 
+	 *            0 = only return a node if the string exists as a whole word
+	 *            within the text document, null otherwise
+	 * 
+	 *            1 = return node when end of word reached regardless (all
+	 *            subsequent children with counts >= 1 will be words that have
+	 *            word as prefix)
+	 * @return trieNode The node at which the given string terminates, or null,
+	 *         if no such node found
+	 */
+	private trieNode findWord(String word, int mode) {
+		trieNode spider = root;
+		// The position in the word of the spider's children
+		int wordIndex = 0;
+
+		while (wordIndex < word.length()) {
+			// The only child that can share any characters with the word
+			trieNode next = spider.child(word.charAt(wordIndex));
+			if (next == null) {
+				// word not in trie
+				return null;
+			}
+			int matched = matchLength(next.value, word, wordIndex);
+			wordIndex += matched;
+			if (matched < next.value.length()) {
+				// Either the word ends within the node (the word is a prefix of
+				// it, which is only wanted in mode 1), or they differ
+				if (wordIndex == word.length() && mode == 1) {
+					return next;
+				}
+				return null;
+			}
+			// as all letters of the node match, move to its children
+			spider = next;
+		}
+		// The empty word isn't in the trie
+		return spider == root ? null : spider;
+	}
+
+	/**
+	 * Finds the term id of a whole word. Every distinct word gets a dense term
+	 * id (0, 1, 2, ...) when it is first added, which also indexes its
+	 * postings, so ids can be used as compact keys for the word.
+	 *
+	 * O(l) where l is the length of the word (see findWord javaDoc)
+	 *
+	 * @param word
+	 *            The word to look up
+	 * @return The word's term id, or -1 if the word does not occur in the
+	 *         document
+	 */
+	public int termId(String word) {
+		if (word.isEmpty()) {
+			return -1;
+		}
+		if (frozen != null) {
+			int node = frozen.find(word, false);
+			return node < 0 ? -1 : frozen.term(node);
+		}
+		trieNode node = findWord(word, 0);
+		if (node == null) {
+			return -1;
+		}
+		return node.term;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param termId
+	 *            A term id (see termId)
+	 * @return The word with that term id
+	 */
+	public String term(int termId) {
+		return vocabulary[termId];
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of distinct words (and so of term ids)
+	 */
+	public int termCount() {
+		return postings.termCount();
+	}
+
+	/**
+	 * The document as a stream of term ids, with the line and column of every
+	 * token and the occurrences of every term. It must not be modified.
+	 *
+	 * O(1)
+	 *
+	 * @return The postings
+	 */
+	public Postings getPostings() {
+		return postings;
+	}
+
+	/**
+	 * Determines the number of times the word appears in the document.
+	 *
+	 * O(l) where l is the length of the word (see findWord javaDoc)
+	 * 
+	 * @param word
+	 *            The word to be counted in the document.
+	 * @return The number of occurrences of the word in the document.
+	 */
+	public int count(String word) {
+		int term = termId(word);
+		if (term >= 0) {
+			return postings.count(term);
+		}
+		return 0;
+	}
+
+	/**
+	 * Determines the number of times the word appears within a line interval
+	 * of the document.
+	 *
+	 * O(l + log f) where l is the length of the word and f its frequency (stop
+	 * words too, see Postings.allStart)
+	 * 
+	 * @param word
+	 *            The word to be counted.
+	 * @param startLine
+	 *            First line of the interval
+	 * @param endLine
+	 *            Line after the last line of the interval
+	 * @return The number of occurrences of the word in the interval.
+	 */
+	public int count(String word, int startLine, int endLine) {
+		int term = termId(word);
+		if (term < 0) {
+			return 0;
+		}
+		int from = postings.allStart(term);
+		int to = postings.allEnd(term);
+		return postings.lowerBound(from, to, endLine)
+				- postings.lowerBound(from, to, startLine);
+	}
+
+	/**
+	 * Finds all occurrences of the phrase in the document. A phrase may be a
+	 * single word or a sequence of words.
+	 * 
+	 * Every word of the phrase is looked up once. The rarest word's
+	 * occurrences give the only token positions the phrase can start at, and
+	 * each candidate is checked against the other words (rarest first) by
+	 * comparing the term ids at the following token positions.
+	 * 
+	 * O(l log n + r * l) where l is the length of the phrase and r is the
+	 * number of times the phrase's rarest word occurs in the document
+	 * 
+	 * @param phrase
+	 *            The phrase to be found in the document.
+	 * @return List of pairs, where each pair indicates the line and column
+	 *         number of each occurrence of the phrase, in document order.
+	 *         Returns an empty list if the phrase is not found in the
+	 *         document.
+	 */
+	public OccurrenceList findPhrase(String[] phrase) {
+		// Look up every word of the phrase once
+		// O(l log n) (see findWord javadoc)
+		int[] terms = new int[phrase.length];
+		for (int i = 0; i < phrase.length; ++i) {
+			terms[i] = termId(phrase[i]);
+		}
+		return findPhrase(terms);
+	}
+
+	/**
+	 * Finds the occurrences of a phrase that lie wholly within a line
+	 * interval (see findPhrase): a phrase that starts before the interval or
+	 * runs on past it isn't found. Only the rarest word's occurrences within
+	 * the interval are candidates (found with a binary search).
+	 * 
+	 * O(l log n + r * l) where l is the length of the phrase and r is the
+	 * number of times the phrase's rarest word occurs in the interval
+	 * 
+	 * @param phrase
+	 *            The phrase to be found.
+	 * @param startLine
+	 *            First line of the interval
+	 * @param endLine
+	 *            Line after the last line of the interval
+	 * @return The line and column of each occurrence of the phrase in the
+	 *         interval, in document order
+	 */
+	public OccurrenceList findPhrase(String[] phrase, int startLine,
+			int endLine) {
+		return findPhrase(new PhraseMatches(termsOf(phrase), startLine,
+				endLine));
+	}
+
+	/**
+	 * Finds all occurrences of a phrase whose words have been looked up (see
+	 * findPhrase).
+	 * 
+	 * O(l + r * l) where l is the length of the phrase and r is the number of
+	 * times the phrase's rarest word occurs in the document
+	 * 
+	 * @param terms
+	 *            Term id of each word of the phrase (-1 for words not in the
+	 *            document)
+	 * @return The line and column of each occurrence of the phrase, in
+	 *         document order
+	 */
+	private OccurrenceList findPhrase(int[] terms) {
+		return findPhrase(new PhraseMatches(terms));
+	}
+
+	/**
+	 * O(r * l) where l is the length of the phrase and r is the number of
+	 * candidates the matches have left
+	 * 
+	 * @param matches
+	 *            The occurrences of a phrase, not yet found
+	 * @return The line and column of each occurrence, in document order
+	 */
+	private OccurrenceList findPhrase(PhraseMatches matches) {
+		// Where the phrase starts, packed (see OccurrenceList)
+		OccurrenceList.Builder phraseLocations = new OccurrenceList.Builder();
+		while (matches.advance()) {
+			// Phrase Found!
+			phraseLocations.add(matches.match);
+		}
+		return phraseLocations.build();
+	}
+
+	/**
+	 * The occurrences of a phrase, found one at a time as they are asked for
+	 * (see findPhrase), so stopping early (as Stream.limit and
+	 * Stream.findFirst do) saves the rest of the work. Splitting it splits the
+	 * candidate positions, for parallel streams.
+	 * 
+	 * O(l log n) (the words are looked up, see findPhrase), then O(l) per
+	 * candidate position
+	 * 
+	 * @param phrase
+	 *            The phrase to be found in the document.
+	 * @return The line and column of each occurrence of the phrase, in
+	 *         document order
+	 */
+	public Spliterator<Pair<Integer, Integer>> phraseSpliterator(
+			String[] phrase) {
+		int[] terms = new int[phrase.length];
+		for (int i = 0; i < phrase.length; ++i) {
+			terms[i] = termId(phrase[i]);
+		}
+		return new PhraseMatches(terms);
+	}
+
+	/**
+	 * O(l) where l is the length of the phrase
+	 * 
+	 * @param start
+	 *            Token position of the first word of the phrase
+	 * @param terms
+	 *            Term id of each word of the phrase
+	 * @param order
+	 *            The order to check the words in (rarest first)
+	 * @return Whether the phrase is at the position
+	 */
+	private boolean phraseAt(int start, int[] terms, int[] order) {
+		for (int i = 0; i < order.length; ++i) {
+			if (postings.termAt(start + order[i]) != terms[order[i]]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Searches the document for lines that contain all the words in the 'words'
+	 * parameter. Implements simple "and" logic when searching for the words.
+	 * The words do not need to be contiguous on the line.
+	 * 
+	 * O(w * c * r) where w is the number of words, c the number of line
+	 * containers and r the number of lines the rarest word is on (the words'
+	 * line sets are intersected rarest first, see LineBitmap.and)
+	 * 
+	 * @param words
+	 *            Array of words to find on a single line in the document.
+	 * @return List of line numbers on which all the words appear in the
+	 *         document. Returns an empty list if the words do not appear in any
+	 *         line in the document.
+	 *
+	 */
+	public LineList wordsOnLine(String[] words) {
+		return toList(linesWithAll(words));
+	}
+
+	/**
+	 * Searches the document for lines that contain all the words in the
+	 * 'required' parameter and none of the words in the 'excluded' parameter.
+	 * Implements simple "not" logic when searching for the words. The words do
+	 * not need to be contiguous on the line.
+	 * 
+	 * O(w * c * r) where w is the number of words, c the number of line
+	 * containers and r the number of lines the rarest required word is on. The
+	 * required words' lines are intersected rarest first, then each excluded
+	 * word's lines are taken away (see LineBitmap.andNot), which costs no more
+	 * than the lines left however frequent the excluded word is.
+	 * 
+	 * @param required
+	 *            Array of words to find on a single line in the document.
+	 * @param excluded
+	 *            Array of words that must not be on the same line as the
+	 *            required words.
+	 * @return List of line numbers on which all the required words appear and
+	 *         none of the excluded words appear in the document. Returns an
+	 *         empty list if no lines meet the search criteria.
+	 */
+	public LineList wordsNotOnLine(String[] required, String[] excluded) {
+		LineBitmap lines = linesWithAll(required);
+		for (int i = 0; i < excluded.length && !lines.isEmpty(); ++i) {
+			int term = termId(excluded[i]);
+			// A missing word (or a stop word) takes nothing away
+			if (term >= 0) {
+				lines = lines.andNot(postings.lines(term));
+			}
+		}
+		return toList(lines);
+	}
+
+	/**
+	 * The lines with all of some words on them (see wordsOnLine), found one at
+	 * a time as they are asked for (see LineBitmap.intersection), so stopping
+	 * early (as Stream.limit and Stream.findFirst do) saves the rest of the
+	 * work. For a single word the lines are already known, and their number is
+	 * reported (SIZED).
+	 * 
+	 * O(w * l) (the words are looked up), then O(w * (log c + a)) per line
+	 * (see LineBitmap.nextLine)
+	 * 
+	 * @param words
+	 *            Array of words to find on a single line in the document.
+	 * @return The lines on which all the words appear, in ascending order
+	 */
+	public Spliterator.OfInt wordsOnLineSpliterator(String[] words) {
+		int[] terms = requiredTerms(words);
+		if (terms.length == 0) {
+			return LineBitmap.EMPTY.spliterator();
+		}
+		LineBitmap[] sets = new LineBitmap[terms.length];
+		for (int i = 0; i < terms.length; ++i) {
+			sets[i] = postings.lines(terms[i]);
+		}
+		return LineBitmap.intersection(sets);
+	}
+
+	/**
+	 * O(w * c * r) (see wordsOnLine)
+	 * 
+	 * @param words
+	 *            Words that must all be on a line. Stop words are ignored.
+	 * @return The lines with every word on them (empty if there are no words
+	 *         other than stop words)
+	 */
+	private LineBitmap linesWithAll(String[] words) {
+		int[] terms = requiredTerms(words);
+		// Nothing but stop words
+		if (terms.length == 0) {
+			return LineBitmap.EMPTY;
+		}
+		// Starting from the rarest word keeps every intersection small
+		LineBitmap lines = postings.lines(terms[0]);
+		for (int i = 1; i < terms.length && !lines.isEmpty(); ++i) {
+			lines = lines.and(postings.lines(terms[i]));
+		}
+		return lines;
+	}
+
+	/**
+	 * O(w * l + w^2) where w is the number of words and l the length of a word
+	 * 
+	 * @param words
+	 *            Words that must all be on a line
+	 * @return The distinct term ids of the words other than stop words,
+	 *         rarest first (none if one of the words isn't in the document,
+	 *         as then no line has them all)
+	 */
+	private int[] requiredTerms(String[] words) {
+		int[] terms = new int[words.length];
+		int termCount = 0;
+		for (String word : words) {
+			// Find the word in the main document
+			int term = termId(word);
+			if (term < 0) {
+				// If this word doesn't occur anywhere, no line has them all
+				return new int[0];
+			}
+			// Stop words are ignored
+			if (postings.isIgnored(term)
+					|| indexOf(terms, termCount, term) >= 0) {
+				continue;
+			}
+			// Insertion sort by frequency (there are only a few words)
+			int i = termCount++;
+			while (i > 0
+					&& postings.count(terms[i - 1]) > postings.count(term)) {
+				terms[i] = terms[i - 1];
+				--i;
+			}
+			terms[i] = term;
+		}
+		return Arrays.copyOf(terms, termCount);
+	}
+
+	/**
+	 * O(n) where n is the number of lines
+	 * 
+	 * @param lines
+	 *            A set of lines
+	 * @return The lines, in ascending order
+	 */
+	private static LineList toList(LineBitmap lines) {
+		return new LineList(lines.toArray());
+	}
+
+	/**
+	 * Linear search of a small array of term ids.
+	 *
+	 * O(n) where n is the length of the array
+	 *
+	 * @param terms
+	 *            The term ids
+	 * @param length
+	 *            The number of valid entries in terms
+	 * @param term
+	 *            The term id to find
+	 * @return The index of term in terms, or -1 if it isn't there
+	 */
+	private static int indexOf(int[] terms, int length, int term) {
+		for (int i = 0; i < length; ++i) {
+			if (terms[i] == term) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds all occurrences of the prefix in the document. A prefix is the
+	 * start of a word. It can also be the complete word. For example, "obscure"
+	 * would be a prefix for "obscure", "obscured", "obscures" and "obscurely".
+	 * 
+	 * O(l) where l is the length of the prefix once frozen: the result is a
+	 * view of one slice of the postings (see prefixCount). Before that, O(i +
+	 * (n * c)) where i is the number of internal nodes, n is the number of nodes
+	 * with valid words, and c is the number of instances of that valid word
+	 * 
+	 * @param prefix
+	 *            The prefix of a word that is to be found in the document.
+	 * @return List of pairs, where each pair indicates the line and column
+	 *         number of each occurrence of the prefix. Returns an empty list if
+	 *         the prefix is not found in the document.
+	 */
+	public OccurrenceList findPrefix(String prefix) {
+		if (frozen != null) {
+			int node = frozen.find(prefix, true);
+			if (node < 0) {
+				return OccurrenceList.EMPTY;
+			}
+			// Every word below the node is one slice, in the same order as
+			// preOrder: view it where it is (O(1))
+			return postings.slice(postings.rankStart(frozen.firstRank(node)),
+					postings.rankStart(frozen.endRank(node)));
+		}
+		// Where the prefix occurs, packed (see OccurrenceList)
+		OccurrenceList.Builder prefixLocations = new OccurrenceList.Builder();
+		// find node representing the prefix
+		trieNode prefixNode = findWord(prefix, 1);
+
+		if (prefixNode == null) {
+			// no such prefix exists
+			return OccurrenceList.EMPTY;
+		}
+		// O(n) (see method javadoc)
+		// While it is in preOrder that the (n * c) part occurs, because
+		// preOrder is more of a generic method, I have that part here
+		preOrder(prefixLocations, prefixNode);
+
+		return prefixLocations.build();
+	}
+
+	/**
+	 * The occurrences of a prefix one at a time (see findPrefix). Once frozen
+	 * they are a view of one slice of the postings, so nothing is found ahead
+	 * of time: each occurrence is read as it is asked for, their number is
+	 * known (SIZED), and the spliterator splits evenly.
+	 * 
+	 * O(l) where l is the length of the prefix once frozen (the cost of
+	 * findPrefix before then)
+	 * 
+	 * @param prefix
+	 *            The prefix of a word that is to be found in the document.
+	 * @return The line and column of each occurrence of the prefix
+	 */
+	public Spliterator<Pair<Integer, Integer>> prefixSpliterator(
+			String prefix) {
+		return findPrefix(prefix).spliterator();
+	}
+
+	/**
+	 * Counts the occurrences of every word starting with a prefix.
+	 * 
+	 * O(l) where l is the length of the prefix once frozen (the occurrences
+	 * are one slice of the postings), the cost of findPrefix otherwise
+	 * 
+	 * @param prefix
+	 *            The prefix of a word
+	 * @return The number of occurrences of words starting with the prefix
+	 */
+	public int prefixCount(String prefix) {
+		if (frozen == null) {
+			return findPrefix(prefix).size();
+		}
+		int node = frozen.find(prefix, true);
+		if (node < 0) {
+			return 0;
+		}
+		return postings.rankStart(frozen.endRank(node))
+				- postings.rankStart(frozen.firstRank(node));
+	}
+
+	/**
+	 * Finds the occurrences of a prefix within a line interval of the
+	 * document (see findPrefix). Once frozen, each word below the prefix's
+	 * node is cut down to the interval with a binary search of its slice.
+	 * 
+	 * O(l + w * log f + r) where l is the length of the prefix, w the number
+	 * of words starting with it, f the frequency of a word and r the number
+	 * of results once frozen (the cost of findPrefix before then)
+	 * 
+	 * @param prefix
+	 *            The prefix of a word that is to be found.
+	 * @param startLine
+	 *            First line of the interval
+	 * @param endLine
+	 *            Line after the last line of the interval
+	 * @return The line and column of each occurrence of the prefix in the
+	 *         interval (grouped by word, as findPrefix)
+	 */
+	public OccurrenceList findPrefix(String prefix, int startLine,
+			int endLine) {
+		OccurrenceList.Builder prefixLocations = new OccurrenceList.Builder();
+		if (frozen == null) {
+			OccurrenceList all = findPrefix(prefix);
+			for (int i = 0; i < all.size(); ++i) {
+				int line = all.lineAt(i);
+				if (line >= startLine && line < endLine) {
+					prefixLocations.add(all.packedAt(i));
+				}
+			}
+			return prefixLocations.build();
+		}
+		int node = frozen.find(prefix, true);
+		if (node < 0) {
+			return OccurrenceList.EMPTY;
+		}
+		int endRank = frozen.endRank(node);
+		for (int rank = frozen.firstRank(node); rank < endRank; ++rank) {
+			int from = postings.rankStart(rank);
+			int to = postings.rankStart(rank + 1);
+			int end = postings.lowerBound(from, to, endLine);
+			for (int index = postings.lowerBound(from, to,
+					startLine); index < end; ++index) {
+				prefixLocations.add(postings.occurrence(index));
+			}
+		}
+		return prefixLocations.build();
+	}
+
+	/**
+	 * Lists the words starting with a prefix that have occurrences, in the
+	 * order findPrefix groups their occurrences (lexicographical order), so
+	 * the occurrences of a prefix in several tries can be merged word by word.
+	 * 
+	 * O(l + w) where l is the length of the prefix and w the number of words
+	 * starting with it
+	 * 
+	 * @param prefix
+	 *            The prefix of a word
+	 * @return The term id of each word (stop words, which have no
+	 *         occurrences, are left out)
+	 * @throws IllegalStateException
+	 *             if the trie is not frozen (see freeze)
+	 */
+	public int[] prefixTerms(String prefix) {
+		if (frozen == null) {
+			throw new IllegalStateException("The trie is not frozen");
+		}
+		int node = frozen.find(prefix, true);
+		if (node < 0) {
+			return new int[0];
+		}
+		int endRank = frozen.endRank(node);
+		int[] terms = new int[endRank - frozen.firstRank(node)];
+		int count = 0;
+		for (int rank = frozen.firstRank(node); rank < endRank; ++rank) {
+			int from = postings.rankStart(rank);
+			if (from < postings.rankStart(rank + 1)) {
+				// The arena only knows ranks: the token says whose slice it is
+				terms[count++] = postings.termAt(postings.position(from));
+			}
+		}
+		return Arrays.copyOf(terms, count);
+	}
+
+	/**
+	 * Looks up many words at once (see termId). Once frozen, the words are
+	 * looked up in sorted order, in one walk of the trie that shares the nodes
+	 * of common prefixes between neighbouring words (see FrozenTrie.findAll).
+	 * 
+	 * O(w log w + L) where w is the number of words and L the number of
+	 * characters not shared with the previous word in sorted order (O(w * l)
+	 * before the trie is frozen, l the length of a word)
+	 * 
+	 * @param words
+	 *            The words to look up (none may be null)
+	 * @param pool
+	 *            Pool to spread large batches over, or null to look every
+	 *            word up on the calling thread. Ignored before the trie is
+	 *            frozen (see freeze).
+	 * @return Each word's term id (or -1, see termId), at its index in words
+	 */
+	public int[] termIds(String[] words, ForkJoinPool pool) {
+		int[] terms = new int[words.length];
+		if (frozen == null) {
+			for (int i = 0; i < words.length; ++i) {
+				terms[i] = termId(words[i]);
+			}
+			return terms;
+		}
+		int[] nodes = nodesOf(words, false, pool);
+		for (int i = 0; i < words.length; ++i) {
+			terms[i] = nodes[i] < 0 ? -1 : frozen.term(nodes[i]);
+		}
+		return terms;
+	}
+
+	/**
+	 * Counts many words at once (see count and termIds).
+	 * 
+	 * O(w log w + L) see termIds
+	 * 
+	 * @param words
+	 *            The words to be counted in the document (none may be null)
+	 * @param pool
+	 *            Pool to spread large batches over, or null (see termIds)
+	 * @return The number of occurrences of each word, at its index in words
+	 */
+	public int[] counts(String[] words, ForkJoinPool pool) {
+		int[] counts = termIds(words, pool);
+		for (int i = 0; i < counts.length; ++i) {
+			counts[i] = counts[i] < 0 ? 0 : postings.count(counts[i]);
+		}
+		return counts;
+	}
+
+	/**
+	 * Finds the occurrences of many prefixes at once (see findPrefix). Once
+	 * frozen, the prefixes are found in one walk of the trie, as in termIds,
+	 * and each result is a view of a slice of the postings.
+	 * 
+	 * O(p log p + L) once frozen, where p is the number of prefixes and L the
+	 * number of characters not shared with the previous prefix in sorted
+	 * order (the cost of findPrefix for each before then)
+	 * 
+	 * @param prefixes
+	 *            The prefixes to find (none may be null)
+	 * @param pool
+	 *            Pool to spread large batches over, or null (see termIds)
+	 * @return The occurrences of each prefix, at its index in prefixes
+	 */
+	public OccurrenceList[] findPrefixes(String[] prefixes, ForkJoinPool pool) {
+		OccurrenceList[] found = new OccurrenceList[prefixes.length];
+		if (frozen == null) {
+			for (int i = 0; i < prefixes.length; ++i) {
+				found[i] = findPrefix(prefixes[i]);
+			}
+			return found;
+		}
+		int[] nodes = nodesOf(prefixes, true, pool);
+		for (int i = 0; i < prefixes.length; ++i) {
+			int node = nodes[i];
+			found[i] = node < 0 ? OccurrenceList.EMPTY
+					: postings.slice(
+							postings.rankStart(frozen.firstRank(node)),
+							postings.rankStart(frozen.endRank(node)));
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the occurrences of many phrases at once (see findPhrase). The
+	 * words of every phrase are looked up together first (see termIds), so a
+	 * word shared by several phrases is found once, then the phrases are
+	 * matched, spread over the pool if there is one.
+	 * 
+	 * O(w log w + L + sum of r * l) where w is the number of words in all the
+	 * phrases, L as in termIds, and r * l the cost of matching each phrase
+	 * (see findPhrase)
+	 * 
+	 * @param phrases
+	 *            The phrases to find, each split into words (none may be
+	 *            null)
+	 * @param pool
+	 *            Pool to spread large batches over, or null (see termIds)
+	 * @return The occurrences of each phrase, at its index in phrases
+	 */
+	public OccurrenceList[] findPhrases(String[][] phrases, ForkJoinPool pool) {
+		// Every word of every phrase, end to end
+		int[] starts = new int[phrases.length + 1];
+		for (int i = 0; i < phrases.length; ++i) {
+			starts[i + 1] = starts[i] + phrases[i].length;
+		}
+		String[] words = new String[starts[phrases.length]];
+		for (int i = 0; i < phrases.length; ++i) {
+			System.arraycopy(phrases[i], 0, words, starts[i],
+					phrases[i].length);
+		}
+		int[] terms = termIds(words, pool);
+
+		OccurrenceList[] found = new OccurrenceList[phrases.length];
+		inChunks(frozen == null ? null : pool, phrases.length, PHRASE_CHUNK,
+				(from, to) -> {
+					for (int i = from; i < to; ++i) {
+						found[i] = findPhrase(
+								Arrays.copyOfRange(terms, starts[i],
+										starts[i + 1]));
+					}
+				});
+		return found;
+	}
+
+	/**
+	 * O(w log w + L) see termIds
+	 * 
+	 * @param words
+	 *            Strings to find in the frozen trie
+	 * @param prefix
+	 *            Whether they are prefixes (see FrozenTrie.find)
+	 * @param pool
+	 *            Pool to spread large batches over, or null
+	 * @return Each string's node (or -1), at its index in words
+	 */
+	private int[] nodesOf(String[] words, boolean prefix, ForkJoinPool pool) {
+		int[] order = FrozenTrie.sortedOrder(words);
+		int[] nodes = new int[words.length];
+		// Each chunk is a run of neighbouring words, walked on its own
+		inChunks(pool, words.length, WORD_CHUNK, (from, to) -> frozen
+				.findAll(words, order, from, to, prefix, nodes));
+		return nodes;
+	}
+
+	/**
+	 * Does some work over a range of indices, split into chunks run on a pool
+	 * if there is one, it has more than one thread, and there is more than
+	 * one chunk of work.
+	 * 
+	 * @param pool
+	 *            The pool, or null to do all the work on the calling thread
+	 * @param count
+	 *            The number of indices (the range is 0 to count)
+	 * @param chunk
+	 *            The most indices a chunk may have
+	 * @param work
+	 *            The work to do over a chunk
+	 */
+	private static void inChunks(ForkJoinPool pool, int count, int chunk,
+			Chunk work) {
+		if (pool == null || pool.getParallelism() < 2 || count <= chunk) {
+			work.run(0, count);
+		} else {
+			pool.invoke(new Batch(work, 0, count, chunk));
+		}
+	}
+
+	/**
+	 * Searches the document for lines that contain any of the words in the
+	 * 'words' parameter. Implements simple "or" logic when searching for the
+	 * words. The words do not need to be contiguous on the line.
+	 * 
+	 * O(w * c * l) where w is the number of words, c the number of line
+	 * containers and l the number of lines in a container (64 lines per step
+	 * once a container is a bitmap, see LineBitmap.or)
+	 * 
+	 * @param words
+	 *            Array of words to find on a single line in the document.
+	 * @return List of line numbers on which any of the words appear in the
+	 *         document. Returns an empty list if none of the words appear in
+	 *         any line in the document.
+	 */
+	public LineList someWordsOnLine(String[] words) {
+		LineBitmap lines = LineBitmap.EMPTY;
+		for (String word : words) {
+			// O(l) (see findWord javadoc)
+			int term = termId(word);
+			// (Stop words have no lines, so are ignored)
+			if (term >= 0) {
+				lines = lines.or(postings.lines(term));
+			}
+		}
+		return toList(lines);
+	}
+
+	/**
+	 * Searches sections of the document, given as line intervals, for words.
+	 * A section matches if it contains every required word, at least one of
+	 * the optional words (if any are given) and none of the excluded words.
+	 * Each word's postings are cut down to a section with a binary search, so
+	 * sections are never scanned.
+	 * 
+	 * O(s * w * log f + r) where s is the number of sections, w the number of
+	 * words, f the frequency of a word and r the number of results
+	 * 
+	 * @param intervals
+	 *            Flattened [start, end) line intervals, one per section
+	 * @param required
+	 *            Words that must all be in a section
+	 * @param optional
+	 *            Words of which at least one must be in a section. Null or
+	 *            empty if there is no such condition.
+	 * @param excluded
+	 *            Words that must not be in a section. May be null.
+	 * @return List of triples, where each triple indicates the line and column
+	 *         number and word found, for each occurrence of a required or
+	 *         optional word in a matching section.
+	 */
+	public List<Triple<Integer, Integer, String>> sectionSearch(int[] intervals,
+			String[] required, String[] optional, String[] excluded) {
+		// Not used for method behaviour, only for returning results.
+		List<Triple<Integer, Integer, String>> found = new LinkedList<Triple<Integer, Integer, String>>();
+
+		int[] requiredTerms = termsOf(required);
+		int[] optionalTerms = termsOf(optional);
+		int[] excludedTerms = termsOf(excluded);
+		// A required word that isn't in the document isn't in any section
+		if (indexOf(requiredTerms, requiredTerms.length, -1) >= 0) {
+			return found;
+		}
+		// Stop words are ignored
+		requiredTerms = withoutStopWords(requiredTerms);
+		optionalTerms = withoutStopWords(optionalTerms);
+		excludedTerms = withoutStopWords(excludedTerms);
+
+		for (int i = 0; i < intervals.length; i += 2) {
+			int startLine = intervals[i];
+			int endLine = intervals[i + 1];
+
+			// Does the section meet every condition?
+			boolean matches = true;
+			for (int term : requiredTerms) {
+				if (!inLines(term, startLine, endLine)) {
+					matches = false;
+					break;
+				}
+			}
+			if (matches && optionalTerms.length > 0) {
+				matches = false;
+				for (int term : optionalTerms) {
+					if (inLines(term, startLine, endLine)) {
+						matches = true;
+						break;
+					}
+				}
+			}
+			if (matches) {
+				for (int term : excludedTerms) {
+					if (inLines(term, startLine, endLine)) {
+						matches = false;
+						break;
+					}
+				}
+			}
+			if (!matches) {
+				continue;
+			}
+
+			// It does: collect the words' occurrences within it
+			addInLines(found, requiredTerms, startLine, endLine);
+			addInLines(found, optionalTerms, startLine, endLine);
+		}
+		return found;
+	}
+
+	/**
+	 * Looks up the term id of every word.
+	 * 
+	 * O(w log n) where w is the number of words (see findWord javadoc)
+	 * 
+	 * @param words
+	 *            The words, may be null
+	 * @return The term id of each word, -1 for words not in the document
+	 */
+	private int[] termsOf(String[] words) {
+		if (words == null) {
+			return new int[0];
+		}
+		int[] terms = new int[words.length];
+		for (int i = 0; i < words.length; ++i) {
+			terms[i] = termId(words[i]);
+		}
+		return terms;
+	}
+
+	/**
+	 * O(t) where t is the number of terms
+	 * 
+	 * @param terms
+	 *            Term ids, or -1s
+	 * @return The terms that are not stop words
+	 */
+	private int[] withoutStopWords(int[] terms) {
+		int[] kept = new int[terms.length];
+		int size = 0;
+		for (int term : terms) {
+			if (term < 0 || !postings.isIgnored(term)) {
+				kept[size++] = term;
+			}
+		}
+		return Arrays.copyOf(kept, size);
+	}
+
+	/**
+	 * O(log f) where f is the frequency of the term
+	 * 
+	 * @param term
+	 *            A term id, or -1
+	 * @param startLine
+	 *            First line of the interval
+	 * @param endLine
+	 *            Line after the last line of the interval
+	 * @return Whether the term occurs on any line in the interval
+	 */
+	private boolean inLines(int term, int startLine, int endLine) {
+		if (term < 0) {
+			return false;
+		}
+		return postings.lowerBound(term, startLine) < postings.lowerBound(term,
+				endLine);
+	}
+
+	/**
+	 * Adds every occurrence of the words within a line interval to a list.
+	 * 
+	 * O(w * log f + r) where w is the number of words, f the frequency of a
+	 * word and r the number of occurrences added
+	 * 
+	 * @param found
+	 *            The list to add to
+	 * @param terms
+	 *            The term id of each word, or -1
+	 * @param startLine
+	 *            First line of the interval
+	 * @param endLine
+	 *            Line after the last line of the interval
+	 */
+	private void addInLines(List<Triple<Integer, Integer, String>> found,
+			int[] terms, int startLine, int endLine) {
+		for (int i = 0; i < terms.length; ++i) {
+			// Missing, or the same word asked for twice
+			if (terms[i] < 0 || indexOf(terms, i, terms[i]) >= 0) {
+				continue;
+			}
+			int end = postings.lowerBound(terms[i], endLine);
+			for (int index = postings.lowerBound(terms[i],
+					startLine); index < end; ++index) {
+				long occurrence = postings.occurrence(index);
+				found.add(new Triple<Integer, Integer, String>(
+						Postings.line(occurrence), Postings.column(occurrence),
+						vocabulary[terms[i]]));
+			}
+		}
+	}
+
+	/**
+	 * Searches the trie in a depth-first pre-order fashion, adding the
+	 * occurrences of every word found to a List as it goes.
+	 * 
+	 * O(n) where n is the found number of words with the word at 'start' as its
+	 * prefix + the number of nodes between them and 'start'
+	 * 
+	 * n is also linear because maximum number of nodes in a compressed trie
+	 * storing S words is 2*S (still linear and therefore proportional to word
+	 * count))
+	 *
+	 * @param prefixLocations
+	 *            The occurrences to be added to
+	 * @param start
+	 *            The trieNode at which the search should begin
+	 */
+	private void preOrder(OccurrenceList.Builder prefixLocations,
+			trieNode start) {
+
+		trieNode spider = start;
+		while (true) {
+			// Are there words on the current node?
+			if (spider.term >= 0) {
+				// Add them all to the list (O(n), n = number of word
+				// instances)
+				addOccurrences(prefixLocations, spider.term);
+			}
+			// Does this node have children?
+			if (spider.child != null) {
+				// Move down to child
+				spider = spider.child;
+				continue;
+			}
+
+			// No children; are we still at the 'root' node?
+			if (spider == start) {
+				return;
+			}
+
+			// No children, and not at the 'root' node; does this node have a
+			// sibling?
+			if (spider.nextSibling != null) {
+				// Move across to sibling
+				spider = spider.nextSibling;
+				continue;
+			}
+
+			// No children, and not at the 'root' node, and no siblings; Is our
+			// parent the 'root' node?
+			// (Are we at the top of the last subtree?)
+			if (spider.parent == start) {
+				return;
+			}
+
+			// Not at the top of the last subtree; move back up the tree to
+			// another unsearched sibling, or if there aren't any, return the
+			// list
+			while (spider.parent.nextSibling == null) {
+				// No unsearched subtrees found yet...
+				spider = spider.parent;
+				// Is this node the top of the last subtree?
+				if (spider.parent == start) {
+					// It is, return list
+					return;
+				}
+			}
+			// Unsearched subtree/node found, continue search.
+			spider = spider.parent.nextSibling;
+		}
+	}
+
+	/**
+	 * Adds every occurrence of a term, in document order.
+	 * 
+	 * O(n) where n is the number of occurrences of the term
+	 * 
+	 * @param locations
+	 *            The occurrences to add to
+	 * @param term
+	 *            A term id
+	 */
+	private void addOccurrences(OccurrenceList.Builder locations, int term) {
+		int end = postings.end(term);
+		for (int index = postings.start(term); index < end; ++index) {
+			locations.add(postings.occurrence(index));
+		}
+	}
+
+	// ##############################################################
+
+	/**
+	 * Finds the occurrences of a phrase one at a time, in document order.
+	 * 
+	 * The rarest word's occurrences give the only token positions the phrase
+	 * can start at, and each candidate is checked against the other words
+	 * (rarest first) by comparing the term ids at the following token
+	 * positions. Stop words are candidates like any other word (see
+	 * Postings.allStart), so a phrase of stop words costs as much as its
+	 * rarest word's occurrences, too. Only occurrences that lie wholly
+	 * within a range of tokens are found (the whole document, or a line
+	 * interval of it).
+	 */
+	private class PhraseMatches implements Spliterator<Pair<Integer, Integer>> {
+		// Term id of each word of the phrase
+		private final int[] terms;
+		// Offsets within the phrase, rarest word first
+		private final int[] order;
+		// Offset of the rarest word, -1 if a word isn't in the document
+		private final int rarest;
+		// The token positions a phrase may cover: from first up to limit
+		private final int first;
+		private final int limit;
+		// The candidates left: indices into the postings of the rarest word
+		private int next;
+		private int end;
+		// The last occurrence found by advance, packed
+		private long match;
+
+		private PhraseMatches(int[] terms) {
+			this(terms, 0, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * @param terms
+		 *            Term id of each word of the phrase (-1 for words not in
+		 *            the document)
+		 * @param startLine
+		 *            First line the phrase may be on
+		 * @param endLine
+		 *            Line after the last line the phrase may be on
+		 */
+		private PhraseMatches(int[] terms, int startLine, int endLine) {
+			this.terms = terms;
+			int wordCount = terms.length;
+			order = new int[wordCount];
+			first = postings.lineStart(startLine);
+			limit = postings.lineStart(endLine);
+			for (int i = 0; i < wordCount; ++i) {
+				if (terms[i] < 0) {
+					// A word NOT found == phrase doesn't exist in text
+					rarest = -1;
+					return;
+				}
+			}
+
+			// Offsets within the phrase, rarest word first
+			// O(l^2) (phrases are short)
+			for (int i = 0; i < wordCount; ++i) {
+				int j = i;
+				while (j > 0 && postings.count(terms[order[j - 1]]) > postings
+						.count(terms[i])) {
+					order[j] = order[j - 1];
+					--j;
+				}
+				order[j] = i;
+			}
+
+			if (wordCount == 0) {
+				rarest = -1;
+				return;
+			}
+			rarest = order[0];
+			// Every occurrence of the rarest word in the lines, in document
+			// order (a stop word's too)
+			int from = postings.allStart(terms[rarest]);
+			int to = postings.allEnd(terms[rarest]);
+			next = postings.lowerBound(from, to, startLine);
+			end = postings.lowerBound(from, to, endLine);
+		}
+
+		private PhraseMatches(PhraseMatches other, int next, int end) {
+			terms = other.terms;
+			order = other.order;
+			rarest = other.rarest;
+			first = other.first;
+			limit = other.limit;
+			this.next = next;
+			this.end = end;
+		}
+
+		/**
+		 * Finds the next occurrence, and puts it in match.
+		 * 
+		 * O(l * k) where l is the length of the phrase and k the number of
+		 * candidates passed over
+		 * 
+		 * @return Whether there was another occurrence
+		 */
+		private boolean advance() {
+			int wordCount = terms.length;
+			// O(r) r = frequency of the rarest word
+			while (next < end) {
+				int start = postings.position(next++) - rarest;
+				// Phrase would run off either end of the range
+				if (start < first) {
+					continue;
+				}
+				if (start + wordCount > limit) {
+					next = end;
+					return false;
+				}
+				// Check the other words at their token positions
+				if (phraseAt(start, terms, order)) {
+					match = postings.token(start);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean tryAdvance(
+				Consumer<? super Pair<Integer, Integer>> action) {
+			if (!advance()) {
+				return false;
+			}
+			action.accept(new Pair<Integer, Integer>(Postings.line(match),
+					Postings.column(match)));
+			return true;
+		}
+
+		@Override
+		public Spliterator<Pair<Integer, Integer>> trySplit() {
+			int middle = (next + end) >>> 1;
+			if (middle - next < 2) {
+				return null;
+			}
+			// The first half of the candidates, as they come first
+			PhraseMatches first = new PhraseMatches(this, next, middle);
+			next = middle;
+			return first;
+		}
+
+		@Override
+		public long estimateSize() {
+			// The candidates left (an upper bound on the occurrences)
+			return end - next;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+	}
+
+	/**
+	 * Work to do over a range of indices (see inChunks).
+	 */
+	private interface Chunk {
+		void run(int from, int to);
+	}
+
+	/**
+	 * A range of indices, split in half until it is no bigger than a chunk.
+	 */
+	private static class Batch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Chunk work;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		private Batch(Chunk work, int from, int to, int chunk) {
+			this.work = work;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunk) {
+				work.run(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Batch(work, from, middle, chunk),
+					new Batch(work, middle, to, chunk));
+		}
+	}
+
+	/**
+	 * O(1)
+	 * 
+	 * @param first
+	 *            The first character of a node
+	 * @return The node's slot in a dense parent, or -1 if it has none (it is
+	 *         then only found through the parent's sorted children)
+	 */
+	private static int slot(char first) {
+		if (first >= 'a' && first <= 'z') {
+			return first - 'a';
+		}
+		return first == '\'' ? SLOTS - 1 : -1;
+	}
+
+	private class trieNode {
+		// This word's slot in the postings (term id).
+		// If trieNode doesn't represent the end of a word term == -1 always
+		private int term;
+		// The ordered series of characters this node represents
+		private String value;
+		// The lexicographically next child of this node's parent
+		private trieNode nextSibling;
+		// The lexicographically previous child of this node's parent
+		private trieNode prevSibling;
+		// The lexicographically first child of this node
+		private trieNode child;
+		// This node's parent node
+		private trieNode parent;
+		// First character of each child, ascending
+		private char[] childKeys;
+		// The children, parallel to childKeys
+		private trieNode[] children;
+		// Number of children
+		private int childCount;
+		// Children starting with 'a' to 'z' (0 - 25) or an apostrophe (26).
+		// Only nodes with many children (the upper levels) have it
+		private trieNode[] slots;
+
+		/**
+		 * Creates extraneous (root) node
+		 * 
+		 * O(1)
+		 */
+		public trieNode() {
+			term = -1;
+			value = "";
+		}
+
+		//
+		/**
+		 * Creates node that does not represent the end of a word.
+		 * 
+		 * O(1)
+		 * 
+		 * @param value
+		 *            The string representing the word section.
+		 * @param parent
+		 *            The node represeting the preceding word section.
+		 */
+		public trieNode(String value, trieNode parent) {
+			term = -1;
+			this.parent = parent;
+			this.value = value;
+		}
+
+		/**
+		 * Creates end of word node. It is given a term id when its first
+		 * occurrence is added.
+		 * 
+		 * O(1)
+		 * 
+		 * @param value
+		 *            The string representing the word (or end of word).
+		 */
+		public trieNode(String value) {
+			term = -1;
+			this.value = value;
+		}
+
+		/**
+		 * Finds the child starting with a character. Siblings never share a
+		 * first character, so there is at most one.
+		 * 
+		 * O(1) for nodes with many children, O(log c) otherwise where c is the
+		 * number of children
+		 * 
+		 * @param first
+		 *            A character
+		 * @return The child starting with it, or null if there is none
+		 */
+		private trieNode child(char first) {
+			if (slots != null) {
+				int slot = slot(first);
+				if (slot >= 0) {
+					return slots[slot];
+				}
+			}
+			int index = indexOf(first);
+			return index < 0 ? null : children[index];
+		}
+
+		/**
+		 * O(log c) where c is the number of children
+		 * 
+		 * @param first
+		 *            A character
+		 * @return The last child starting with a character before it, or null
+		 *         if there is none
+		 */
+		private trieNode childBefore(char first) {
+			int index = indexOf(first);
+			// Children from the insertion point on come after 'first'
+			int before = (index < 0 ? -index - 1 : index) - 1;
+			return before < 0 ? null : children[before];
+		}
+
+		/**
+		 * Indexes a child by its first character, replacing the child already
+		 * starting with it (if any).
+		 * 
+		 * O(c) where c is the number of children (O(log c) when replacing)
+		 * 
+		 * @param node
+		 *            A child of this node
+		 */
+		private void putChild(trieNode node) {
+			char first = node.value.charAt(0);
+			int index = indexOf(first);
+			if (index < 0) {
+				index = -index - 1;
+				if (children == null) {
+					childKeys = new char[2];
+					children = new trieNode[2];
+				} else if (childCount == children.length) {
+					childKeys = Arrays.copyOf(childKeys, childCount * 2);
+					children = Arrays.copyOf(children, childCount * 2);
+				}
+				// Shuffle later children along to keep first chars sorted
+				System.arraycopy(childKeys, index, childKeys, index + 1,
+						childCount - index);
+				System.arraycopy(children, index, children, index + 1,
+						childCount - index);
+				childKeys[index] = first;
+				++childCount;
+			}
+			children[index] = node;
+
+			if (slots == null && childCount >= DENSE_CHILDREN) {
+				// Enough children to be worth a slot for every letter
+				slots = new trieNode[SLOTS];
+				for (int i = 0; i < childCount; ++i) {
+					int slot = slot(childKeys[i]);
+					if (slot >= 0) {
+						slots[slot] = children[i];
+					}
+				}
+			} else if (slots != null) {
+				int slot = slot(first);
+				if (slot >= 0) {
+					slots[slot] = node;
+				}
+			}
+		}
+
+		/**
+		 * Binary search of the children's first characters.
+		 * 
+		 * O(log c) where c is the number of children
+		 * 
+		 * @param first
+		 *            A character
+		 * @return The index of the child starting with it, or (-(insertion
+		 *         point) - 1) if there is none
+		 */
+		private int indexOf(char first) {
+			if (childCount == 0) {
+				return -1;
+			}
+			return Arrays.binarySearch(childKeys, 0, childCount, first);
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package comp3506.assn2.utils;
+
+import java.util.Arrays;
+
+/**
+ * A compressed trie that can no longer change, laid out in a handful of
+ * primitive arrays instead of linked node objects.
+ *
+ * Nodes are numbered in breadth-first (level) order, as in a LOUDS encoding,
+ * with the root as node 0. Every node's children are then numbered one after
+ * another, so a node's children are a range of node numbers, and a child is
+ * found by a binary search over their first characters. The edge labels of
+ * all nodes are stored end to end in one shared char array.
+ *
+ * Every word is also given a rank, its place in lexicographical order. The
+ * words below any node have consecutive ranks, so each node keeps the range of
+ * ranks below it. With the postings laid out in rank order (see
+ * Postings.order), every occurrence of every word starting with a prefix is
+ * then one slice of the postings.
+ */
+public class FrozenTrie {
+	// Number of characters of each string sortedOrder sorts by (5 bits each)
+	private static final int KEY_CHARS = 6;
+	// Every node's edge label, end to end
+	private final char[] labels;
+	// The first char of each node's label in labels (nodes + 1 entries)
+	private final int[] labelStarts;
+	// Each node's first child (nodes + 1 entries: a node's children run up to
+	// the next node's first child)
+	private final int[] childStarts;
+	// Each node's term id, or -1 if no word ends at it
+	private final int[] terms;
+	// Rank of the first word at or below each node (a node's own word comes
+	// before the words below it)
+	private final int[] firstRanks;
+	// One past the rank of the last word at or below each node
+	private final int[] endRanks;
+
+	/**
+	 * @param labels
+	 *            Every node's edge label, end to end, in level order
+	 * @param labelStarts
+	 *            Start of each node's label (nodes + 1 entries)
+	 * @param childStarts
+	 *            Each node's first child (nodes + 1 entries)
+	 * @param terms
+	 *            Each node's term id, or -1
+	 */
+	public FrozenTrie(char[] labels, int[] labelStarts, int[] childStarts,
+			int[] terms) {
+		this.labels = labels;
+		this.labelStarts = labelStarts;
+		this.childStarts = childStarts;
+		this.terms = terms;
+
+		int nodes = terms.length;
+		firstRanks = new int[nodes];
+		endRanks = new int[nodes];
+		// Number of words at or below each node: children are numbered after
+		// their parent, so go backwards
+		for (int node = nodes - 1; node >= 0; --node) {
+			int words = terms[node] >= 0 ? 1 : 0;
+			int end = childStarts[node + 1];
+			for (int child = childStarts[node]; child < end; ++child) {
+				words += endRanks[child];
+			}
+			endRanks[node] = words;
+		}
+		// Then hand out ranks from the root down, in lexicographical order
+		for (int node = 0; node < nodes; ++node) {
+			endRanks[node] += firstRanks[node];
+			int rank = firstRanks[node] + (terms[node] >= 0 ? 1 : 0);
+			int end = childStarts[node + 1];
+			for (int child = childStarts[node]; child < end; ++child) {
+				firstRanks[child] = rank;
+				// (Still the number of words below child)
+				rank += endRanks[child];
+			}
+		}
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of nodes (including the root)
+	 */
+	public int size() {
+		return terms.length;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param node
+	 *            A node
+	 * @return The node's term id, or -1 if no word ends at it
+	 */
+	public int term(int node) {
+		return terms[node];
+	}
+
+	/**
+	 * Finds the node at which a string ends.
+	 *
+	 * O(l * log a) where l is the length of the string and a the length of
+	 * the alphabet
+	 *
+	 * @param word
+	 *            The string to search for
+	 * @param prefix
+	 *            Whether the string may end part way through a node's label
+	 *            (as a prefix does)
+	 * @return The node at which the string ends (or whose label it ends in),
+	 *         or -1 if there is no such node
+	 */
+	public int find(String word, boolean prefix) {
+		int node = 0;
+		int wordIndex = 0;
+		int wordLength = word.length();
+		while (wordIndex < wordLength) {
+			node = child(node, word.charAt(wordIndex));
+			if (node < 0) {
+				return -1;
+			}
+			// The first character matches already
+			int start = labelStarts[node];
+			int labelLength = labelStarts[node + 1] - start;
+			int matched = 1;
+			int limit = Math.min(labelLength, wordLength - wordIndex);
+			while (matched < limit && labels[start + matched] == word
+					.charAt(wordIndex + matched)) {
+				++matched;
+			}
+			wordIndex += matched;
+			if (matched < labelLength) {
+				// Either the word ends within the label, or they differ
+				return prefix && wordIndex == wordLength ? node : -1;
+			}
+		}
+		// The empty string isn't in the trie
+		return node == 0 ? -1 : node;
+	}
+
+	/**
+	 * Finds the nodes at which many strings end, in one walk: the strings are
+	 * visited in sorted order, and each one starts from the deepest node on
+	 * the previous one's path that is still within their common prefix,
+	 * instead of from the root.
+	 *
+	 * O(L * log a) where L is the number of characters not shared with the
+	 * previous string in the order, and a the length of the alphabet
+	 *
+	 * @param words
+	 *            The strings to search for
+	 * @param order
+	 *            Indices into words, in sorted order of the strings (see
+	 *            sortedOrder)
+	 * @param from
+	 *            First index into order to search for
+	 * @param to
+	 *            One past the last index into order to search for
+	 * @param prefix
+	 *            Whether the strings may end part way through a node's label
+	 *            (as prefixes do)
+	 * @param nodes
+	 *            Where to put each string's node (or -1, see find), at the
+	 *            string's index in words
+	 */
+	public void findAll(String[] words, int[] order, int from, int to,
+			boolean prefix, int[] nodes) {
+		// The nodes whose whole label the previous string matched, from the
+		// root down, and the length of the string up to the end of each label
+		int[] path = new int[16];
+		int[] depths = new int[16];
+		int pathLength = 1;
+		String previous = "";
+		for (int i = from; i < to; ++i) {
+			String word = words[order[i]];
+			int shared = commonPrefix(previous, word);
+			// Back up to the deepest node both strings reach
+			while (depths[pathLength - 1] > shared) {
+				--pathLength;
+			}
+			int node = path[pathLength - 1];
+			int wordIndex = depths[pathLength - 1];
+			int wordLength = word.length();
+			int found = node;
+			while (wordIndex < wordLength) {
+				node = child(node, word.charAt(wordIndex));
+				if (node < 0) {
+					found = -1;
+					break;
+				}
+				int start = labelStarts[node];
+				int labelLength = labelStarts[node + 1] - start;
+				int matched = 1;
+				int limit = Math.min(labelLength, wordLength - wordIndex);
+				while (matched < limit && labels[start + matched] == word
+						.charAt(wordIndex + matched)) {
+					++matched;
+				}
+				wordIndex += matched;
+				if (matched < labelLength) {
+					found = prefix && wordIndex == wordLength ? node : -1;
+					break;
+				}
+				// Whole label matched: the next string may start here
+				if (pathLength == path.length) {
+					path = Arrays.copyOf(path, pathLength * 2);
+					depths = Arrays.copyOf(depths, pathLength * 2);
+				}
+				path[pathLength] = node;
+				depths[pathLength++] = wordIndex;
+				found = node;
+			}
+			// The empty string isn't in the trie
+			nodes[order[i]] = found == 0 ? -1 : found;
+			previous = word;
+		}
+	}
+
+	/**
+	 * Orders strings so that strings sharing a start are next to each other:
+	 * by their first six characters, then by index. (findAll is correct in
+	 * any order, this is only so it can share more of its walk.) Each string's
+	 * start is packed into the top of a long with its index below, so sorting
+	 * is a primitive sort rather than a sort comparing strings.
+	 *
+	 * O(w log w) where w is the number of strings
+	 *
+	 * @param words
+	 *            Some strings
+	 * @return Indices into words, in that order (for findAll)
+	 */
+	public static int[] sortedOrder(String[] words) {
+		long[] keys = new long[words.length];
+		for (int i = 0; i < words.length; ++i) {
+			String word = words[i];
+			long start = 0;
+			for (int j = 0; j < KEY_CHARS; ++j) {
+				start = start << 5 | (j < word.length() ? code(word.charAt(j))
+						: 0);
+			}
+			keys[i] = start << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[words.length];
+		for (int i = 0; i < words.length; ++i) {
+			order[i] = (int) keys[i];
+		}
+		return order;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return A character's 5 bit code for sortedOrder: 'a' to 'z' in order,
+	 *         then the apostrophe, then everything else (0 is the end of the
+	 *         string)
+	 */
+	private static int code(char c) {
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 2;
+		}
+		return c == '\'' ? 28 : 31;
+	}
+
+	/**
+	 * @return The length of the longest common prefix of the two strings
+	 */
+	private static int commonPrefix(String a, String b) {
+		int limit = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < limit && a.charAt(i) == b.charAt(i)) {
+			++i;
+		}
+		return i;
+	}
+
+	/**
+	 * O(log a) where a is the length of the alphabet
+	 *
+	 * @param node
+	 *            A node
+	 * @param first
+	 *            A character
+	 * @return The node's child whose label starts with the character, or -1
+	 */
+	private int child(int node, char first) {
+		int low = childStarts[node];
+		int high = childStarts[node + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char c = labels[labelStarts[middle]];
+			if (c < first) {
+				low = middle + 1;
+			} else if (c > first) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param node
+	 *            A node
+	 * @return The rank of the first word at or below the node
+	 */
+	public int firstRank(int node) {
+		return firstRanks[node];
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param node
+	 *            A node
+	 * @return One past the rank of the last word at or below the node
+	 */
+	public int endRank(int node) {
+		return endRanks[node];
+	}
+
+	/**
+	 * O(v) where v is the number of nodes
+	 *
+	 * @return The term id of every word, by rank (in lexicographical order)
+	 */
+	public int[] order() {
+		int[] order = new int[endRanks[0]];
+		for (int node = 0; node < terms.length; ++node) {
+			if (terms[node] >= 0) {
+				order[firstRanks[node]] = terms[node];
+			}
+		}
+		return order;
+	}
+}
@@ -0,0 +1,770 @@
+package comp3506.assn2.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, compressed set of line numbers (in the style of a Roaring
+ * bitmap).
+ *
+ * Lines are split by their high 16 bits into containers of up to 65536 lines.
+ * A container holding few lines is a sorted array of their low 16 bits, and a
+ * container holding many is a 65536 bit bitmap. "and", "or" and "andNot" work
+ * a container at a time, and on two bitmap containers 64 lines at a time.
+ */
+public class LineBitmap {
+	// Containers with more lines than this are bitmaps (where a bitmap takes
+	// less space than an array)
+	private static final int ARRAY_LIMIT = 4096;
+	// Number of longs in a bitmap container
+	private static final int BITMAP_WORDS = 1 << 10;
+	// A sorted array is searched rather than merged when it is this many
+	// times larger than the other
+	private static final int SEARCH_RATIO = 16;
+
+	public static final LineBitmap EMPTY = new LineBitmap(new char[0],
+			new char[0][], new long[0][], new int[0], 0);
+
+	// High 16 bits of the lines in each container, ascending
+	private final char[] keys;
+	// Low 16 bits of each array container's lines, ascending (null for bitmap
+	// containers)
+	private final char[][] arrays;
+	// Each bitmap container's bits (null for array containers)
+	private final long[][] bitmaps;
+	// Number of lines in each container (never 0)
+	private final int[] cardinalities;
+	// Number of lines in the set
+	private final int size;
+
+	private LineBitmap(char[] keys, char[][] arrays, long[][] bitmaps,
+			int[] cardinalities, int size) {
+		this.keys = keys;
+		this.arrays = arrays;
+		this.bitmaps = bitmaps;
+		this.cardinalities = cardinalities;
+		this.size = size;
+	}
+
+	/**
+	 * Makes a set of lines.
+	 *
+	 * O(n) where n is the number of lines given
+	 *
+	 * @param lines
+	 *            Line numbers (not negative) in ascending order. Repeats are
+	 *            allowed.
+	 * @param length
+	 *            The number of valid entries in lines
+	 * @return The set of the lines
+	 */
+	public static LineBitmap of(int[] lines, int length) {
+		Builder builder = new Builder(Math.max(1, (length >>> 16) + 1));
+		char[] low = new char[Math.min(length, 1 << 16)];
+		int i = 0;
+		while (i < length) {
+			// The run of lines sharing the same high bits
+			int key = lines[i] >>> 16;
+			int count = 0;
+			for (; i < length && lines[i] >>> 16 == key; ++i) {
+				char value = (char) lines[i];
+				if (count == 0 || low[count - 1] != value) {
+					low[count++] = value;
+				}
+			}
+			builder.addArray((char) key, Arrays.copyOf(low, count), count);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of lines in the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return Whether the set has no lines
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * O(log c) where c is the number of containers
+	 *
+	 * @param line
+	 *            A line number
+	 * @return Whether the line is in the set
+	 */
+	public boolean contains(int line) {
+		int i = Arrays.binarySearch(keys, (char) (line >>> 16));
+		if (line < 0 || i < 0) {
+			return false;
+		}
+		if (bitmaps[i] != null) {
+			return hasBit(bitmaps[i], (char) line);
+		}
+		return Arrays.binarySearch(arrays[i], (char) line) >= 0;
+	}
+
+	/**
+	 * O(n) where n is the number of lines in the set
+	 *
+	 * @return The lines, in ascending order
+	 */
+	public int[] toArray() {
+		int[] lines = new int[size];
+		int size = 0;
+		for (int i = 0; i < keys.length; ++i) {
+			int high = keys[i] << 16;
+			if (arrays[i] != null) {
+				for (char low : arrays[i]) {
+					lines[size++] = high | low;
+				}
+				continue;
+			}
+			long[] bitmap = bitmaps[i];
+			for (int word = 0; word < BITMAP_WORDS; ++word) {
+				long bits = bitmap[word];
+				// Visit each set bit, lowest first
+				while (bits != 0) {
+					lines[size++] = high | (word << 6)
+							| Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+				}
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * O(log c + a) where c is the number of containers and a the size of a
+	 * container (or log a for an array container, 64 lines per step for a
+	 * bitmap)
+	 *
+	 * @param from
+	 *            A line number
+	 * @return The first line in the set at or after 'from', or -1 if there is
+	 *         none
+	 */
+	public int nextLine(int from) {
+		from = Math.max(from, 0);
+		int i = Arrays.binarySearch(keys, (char) (from >>> 16));
+		int low = from & 0xFFFF;
+		if (i < 0) {
+			// Starts at the beginning of the next container
+			i = -i - 1;
+			low = 0;
+		}
+		for (; i < keys.length; ++i, low = 0) {
+			int high = keys[i] << 16;
+			if (arrays[i] != null) {
+				int j = Arrays.binarySearch(arrays[i], (char) low);
+				if (j < 0) {
+					j = -j - 1;
+				}
+				if (j < arrays[i].length) {
+					return high | arrays[i][j];
+				}
+				continue;
+			}
+			long[] bitmap = bitmaps[i];
+			int word = low >>> 6;
+			// Ignore the lines before 'low' in its word
+			long bits = bitmap[word] & (-1L << low);
+			while (true) {
+				if (bits != 0) {
+					return high | (word << 6)
+							| Long.numberOfTrailingZeros(bits);
+				}
+				if (++word == BITMAP_WORDS) {
+					break;
+				}
+				bits = bitmap[word];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The lines in the set, one at a time. Each line costs O(1) (amortised
+	 * over the 64 lines of a bitmap word).
+	 *
+	 * O(1)
+	 *
+	 * @return The lines, in ascending order
+	 */
+	public Spliterator.OfInt spliterator() {
+		return new Lines();
+	}
+
+	/**
+	 * The lines in every one of some sets, found one at a time (lazily,
+	 * unlike and): each set skips ahead to the latest line any of them is on
+	 * until they all agree. Stopping early (as Stream.limit and
+	 * Stream.findFirst do) saves the rest of the work.
+	 *
+	 * O(1), then O(k * (log c + a)) per line, k the number of sets (see
+	 * nextLine)
+	 *
+	 * @param sets
+	 *            Sets of lines (at least one), smallest first for speed
+	 * @return The lines in all the sets, in ascending order
+	 */
+	public static Spliterator.OfInt intersection(LineBitmap[] sets) {
+		if (sets.length == 1) {
+			return sets[0].spliterator();
+		}
+		return new Intersection(sets);
+	}
+
+	/**
+	 * O(c * min(a, b)) where c is the number of containers, and a and b are the
+	 * sizes of a pair of containers (64 lines per step for two bitmaps)
+	 *
+	 * @param other
+	 *            Another set of lines
+	 * @return The lines in both sets
+	 */
+	public LineBitmap and(LineBitmap other) {
+		Builder builder = new Builder(Math.min(keys.length,
+				other.keys.length));
+		int i = 0;
+		int j = 0;
+		while (i < keys.length && j < other.keys.length) {
+			if (keys[i] < other.keys[j]) {
+				++i;
+			} else if (keys[i] > other.keys[j]) {
+				++j;
+			} else {
+				and(builder, keys[i], i, other, j);
+				++i;
+				++j;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * O(c * (a + b)) where c is the number of containers, and a and b are the
+	 * sizes of a pair of containers (64 lines per step for two bitmaps)
+	 *
+	 * @param other
+	 *            Another set of lines
+	 * @return The lines in either set
+	 */
+	public LineBitmap or(LineBitmap other) {
+		Builder builder = new Builder(keys.length + other.keys.length);
+		int i = 0;
+		int j = 0;
+		while (i < keys.length || j < other.keys.length) {
+			if (j == other.keys.length
+					|| (i < keys.length && keys[i] < other.keys[j])) {
+				builder.add(keys[i], arrays[i], bitmaps[i], cardinalities[i]);
+				++i;
+			} else if (i == keys.length || keys[i] > other.keys[j]) {
+				builder.add(other.keys[j], other.arrays[j], other.bitmaps[j],
+						other.cardinalities[j]);
+				++j;
+			} else {
+				or(builder, keys[i], i, other, j);
+				++i;
+				++j;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * O(c * a) where c is the number of containers, and a is the size of one
+	 * of this set's containers (or less, when the other set's matching
+	 * container is much smaller; 64 lines per step for two bitmaps)
+	 *
+	 * @param other
+	 *            Another set of lines
+	 * @return The lines in this set but not the other
+	 */
+	public LineBitmap andNot(LineBitmap other) {
+		Builder builder = new Builder(keys.length);
+		int j = 0;
+		for (int i = 0; i < keys.length; ++i) {
+			while (j < other.keys.length && other.keys[j] < keys[i]) {
+				++j;
+			}
+			if (j == other.keys.length || other.keys[j] != keys[i]) {
+				// Nothing to take away
+				builder.add(keys[i], arrays[i], bitmaps[i], cardinalities[i]);
+			} else {
+				andNot(builder, keys[i], i, other, j);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Intersects a pair of containers with the same key.
+	 *
+	 * O(min(a, b)) (see and)
+	 */
+	private void and(Builder builder, char key, int i, LineBitmap other,
+			int j) {
+		char[] array = arrays[i];
+		char[] otherArray = other.arrays[j];
+		if (array != null && otherArray != null) {
+			builder.addArray(key, intersect(array, otherArray), -1);
+		} else if (array != null) {
+			builder.addArray(key, filter(array, other.bitmaps[j], true), -1);
+		} else if (otherArray != null) {
+			builder.addArray(key, filter(otherArray, bitmaps[i], true), -1);
+		} else {
+			long[] bitmap = bitmaps[i];
+			long[] otherBitmap = other.bitmaps[j];
+			long[] result = new long[BITMAP_WORDS];
+			int cardinality = 0;
+			for (int word = 0; word < BITMAP_WORDS; ++word) {
+				result[word] = bitmap[word] & otherBitmap[word];
+				cardinality += Long.bitCount(result[word]);
+			}
+			builder.addBitmap(key, result, cardinality);
+		}
+	}
+
+	/**
+	 * Unites a pair of containers with the same key.
+	 *
+	 * O(a + b) (see or)
+	 */
+	private void or(Builder builder, char key, int i, LineBitmap other, int j) {
+		char[] array = arrays[i];
+		char[] otherArray = other.arrays[j];
+		if (array != null && otherArray != null
+				&& array.length + otherArray.length <= ARRAY_LIMIT) {
+			builder.addArray(key, union(array, otherArray), -1);
+			return;
+		}
+		long[] result = bitmaps[i] != null ? bitmaps[i].clone()
+				: toBitmap(array);
+		if (otherArray != null) {
+			for (char value : otherArray) {
+				result[value >>> 6] |= 1L << value;
+			}
+		} else {
+			long[] otherBitmap = other.bitmaps[j];
+			for (int word = 0; word < BITMAP_WORDS; ++word) {
+				result[word] |= otherBitmap[word];
+			}
+		}
+		int cardinality = 0;
+		for (long bits : result) {
+			cardinality += Long.bitCount(bits);
+		}
+		builder.addBitmap(key, result, cardinality);
+	}
+
+	/**
+	 * Takes one container from another with the same key.
+	 *
+	 * O(a) (see andNot)
+	 */
+	private void andNot(Builder builder, char key, int i, LineBitmap other,
+			int j) {
+		char[] array = arrays[i];
+		char[] otherArray = other.arrays[j];
+		if (array != null && otherArray != null) {
+			builder.addArray(key, difference(array, otherArray), -1);
+		} else if (array != null) {
+			builder.addArray(key, filter(array, other.bitmaps[j], false), -1);
+		} else {
+			long[] result = bitmaps[i].clone();
+			if (otherArray != null) {
+				for (char value : otherArray) {
+					result[value >>> 6] &= ~(1L << value);
+				}
+			} else {
+				long[] otherBitmap = other.bitmaps[j];
+				for (int word = 0; word < BITMAP_WORDS; ++word) {
+					result[word] &= ~otherBitmap[word];
+				}
+			}
+			int cardinality = 0;
+			for (long bits : result) {
+				cardinality += Long.bitCount(bits);
+			}
+			builder.addBitmap(key, result, cardinality);
+		}
+	}
+
+	/**
+	 * O(min(a, b) * log(max(a, b))) when one array is much larger than the
+	 * other, O(a + b) otherwise
+	 *
+	 * @param a
+	 *            A sorted array
+	 * @param b
+	 *            A sorted array
+	 * @return The values in both arrays, in order
+	 */
+	private static char[] intersect(char[] a, char[] b) {
+		if (a.length > b.length) {
+			return intersect(b, a);
+		}
+		char[] result = new char[a.length];
+		int size = 0;
+		if (a.length * SEARCH_RATIO < b.length) {
+			// Search the large array for each value of the small one
+			int from = 0;
+			for (char value : a) {
+				int index = Arrays.binarySearch(b, from, b.length, value);
+				if (index >= 0) {
+					result[size++] = value;
+					from = index + 1;
+				} else {
+					from = -index - 1;
+				}
+			}
+			return Arrays.copyOf(result, size);
+		}
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				++i;
+			} else if (a[i] > b[j]) {
+				++j;
+			} else {
+				result[size++] = a[i];
+				++i;
+				++j;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * O(a + b)
+	 *
+	 * @param a
+	 *            A sorted array
+	 * @param b
+	 *            A sorted array
+	 * @return The values in either array, in order
+	 */
+	private static char[] union(char[] a, char[] b) {
+		char[] result = new char[a.length + b.length];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[size++] = a[i++];
+			} else if (i == a.length || a[i] > b[j]) {
+				result[size++] = b[j++];
+			} else {
+				result[size++] = a[i];
+				++i;
+				++j;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * O(a * log b) when b is much larger than a, O(a + b) otherwise
+	 *
+	 * @param a
+	 *            A sorted array
+	 * @param b
+	 *            A sorted array
+	 * @return The values in a but not b, in order
+	 */
+	private static char[] difference(char[] a, char[] b) {
+		char[] result = new char[a.length];
+		int size = 0;
+		boolean search = a.length * SEARCH_RATIO < b.length;
+		int j = 0;
+		for (char value : a) {
+			if (search) {
+				int index = Arrays.binarySearch(b, j, b.length, value);
+				j = index >= 0 ? index : -index - 1;
+			} else {
+				while (j < b.length && b[j] < value) {
+					++j;
+				}
+			}
+			if (j == b.length || b[j] != value) {
+				result[size++] = value;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * O(a)
+	 *
+	 * @param array
+	 *            A sorted array
+	 * @param bitmap
+	 *            A bitmap container
+	 * @param keep
+	 *            Whether to keep the values that are in the bitmap (or the
+	 *            values that aren't)
+	 * @return The values of the array that are (or aren't) in the bitmap
+	 */
+	private static char[] filter(char[] array, long[] bitmap, boolean keep) {
+		char[] result = new char[array.length];
+		int size = 0;
+		for (char value : array) {
+			if (hasBit(bitmap, value) == keep) {
+				result[size++] = value;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	private static boolean hasBit(long[] bitmap, char value) {
+		return (bitmap[value >>> 6] & (1L << value)) != 0;
+	}
+
+	private static long[] toBitmap(char[] array) {
+		long[] bitmap = new long[BITMAP_WORDS];
+		for (char value : array) {
+			bitmap[value >>> 6] |= 1L << value;
+		}
+		return bitmap;
+	}
+
+	private static char[] toArray(long[] bitmap, int cardinality) {
+		char[] array = new char[cardinality];
+		int size = 0;
+		for (int word = 0; word < BITMAP_WORDS; ++word) {
+			long bits = bitmap[word];
+			while (bits != 0) {
+				array[size++] = (char) ((word << 6)
+						| Long.numberOfTrailingZeros(bits));
+				bits &= bits - 1;
+			}
+		}
+		return array;
+	}
+
+	// ##############################################################
+
+	/**
+	 * Walks the lines of the set in order (see spliterator).
+	 */
+	private class Lines implements Spliterator.OfInt {
+		// Current container
+		private int container;
+		// Next index in an array container
+		private int index;
+		// Next word of a bitmap container
+		private int word;
+		// Lines of the current bitmap word not yet visited
+		private long bits;
+		// Lines not yet visited
+		private long remaining = size;
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			while (container < keys.length) {
+				int high = keys[container] << 16;
+				char[] array = arrays[container];
+				if (array != null) {
+					if (index < array.length) {
+						--remaining;
+						action.accept(high | array[index++]);
+						return true;
+					}
+				} else {
+					long[] bitmap = bitmaps[container];
+					while (bits == 0 && word < BITMAP_WORDS) {
+						bits = bitmap[word++];
+					}
+					if (bits != 0) {
+						int line = high | ((word - 1) << 6)
+								| Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+						--remaining;
+						action.accept(line);
+						return true;
+					}
+				}
+				// On to the next container
+				++container;
+				index = 0;
+				word = 0;
+			}
+			return false;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | SIZED | NONNULL | IMMUTABLE;
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			// Natural order
+			return null;
+		}
+	}
+
+	/**
+	 * Finds the lines in all of some sets one at a time (see intersection).
+	 */
+	private static class Intersection implements Spliterator.OfInt {
+		private final LineBitmap[] sets;
+		// Where to look for the next line
+		private int from;
+
+		private Intersection(LineBitmap[] sets) {
+			this.sets = sets;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from < 0) {
+				return false;
+			}
+			int line = sets[0].nextLine(from);
+			int agreeing = 1;
+			// Leapfrog until every set has the line
+			while (line >= 0 && agreeing < sets.length) {
+				int next = sets[agreeing].nextLine(line);
+				if (next == line) {
+					++agreeing;
+				} else {
+					line = next < 0 ? -1 : sets[0].nextLine(next);
+					agreeing = 1;
+				}
+			}
+			if (line < 0) {
+				from = -1;
+				return false;
+			}
+			from = line + 1;
+			action.accept(line);
+			return true;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			// No more than the smallest set (not known exactly)
+			long smallest = Long.MAX_VALUE;
+			for (LineBitmap set : sets) {
+				smallest = Math.min(smallest, set.size);
+			}
+			return smallest;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			return null;
+		}
+	}
+
+	/**
+	 * Collects containers in key order, dropping empty ones and picking the
+	 * smaller representation for each.
+	 */
+	private static class Builder {
+		private char[] keys;
+		private char[][] arrays;
+		private long[][] bitmaps;
+		private int[] cardinalities;
+		private int containers;
+		private int size;
+
+		private Builder(int capacity) {
+			keys = new char[capacity];
+			arrays = new char[capacity][];
+			bitmaps = new long[capacity][];
+			cardinalities = new int[capacity];
+		}
+
+		/**
+		 * @param cardinality
+		 *            The length of the array, or -1 to use array.length
+		 */
+		private void addArray(char key, char[] array, int cardinality) {
+			if (cardinality < 0) {
+				cardinality = array.length;
+			}
+			if (cardinality > ARRAY_LIMIT) {
+				add(key, null, toBitmap(array), cardinality);
+			} else {
+				add(key, array, null, cardinality);
+			}
+		}
+
+		private void addBitmap(char key, long[] bitmap, int cardinality) {
+			if (cardinality <= ARRAY_LIMIT) {
+				add(key, toArray(bitmap, cardinality), null, cardinality);
+			} else {
+				add(key, null, bitmap, cardinality);
+			}
+		}
+
+		/**
+		 * Adds a container as it is (containers are never changed once built,
+		 * so they can be shared between sets).
+		 */
+		private void add(char key, char[] array, long[] bitmap,
+				int cardinality) {
+			if (cardinality == 0) {
+				return;
+			}
+			if (containers == keys.length) {
+				int capacity = Math.max(1, containers * 2);
+				keys = Arrays.copyOf(keys, capacity);
+				arrays = Arrays.copyOf(arrays, capacity);
+				bitmaps = Arrays.copyOf(bitmaps, capacity);
+				cardinalities = Arrays.copyOf(cardinalities, capacity);
+			}
+			keys[containers] = key;
+			arrays[containers] = array;
+			bitmaps[containers] = bitmap;
+			cardinalities[containers] = cardinality;
+			++containers;
+			size += cardinality;
+		}
+
+		private LineBitmap build() {
+			if (containers == 0) {
+				return EMPTY;
+			}
+			return new LineBitmap(Arrays.copyOf(keys, containers),
+					Arrays.copyOf(arrays, containers),
+					Arrays.copyOf(bitmaps, containers),
+					Arrays.copyOf(cardinalities, containers), size);
+		}
+	}
+}
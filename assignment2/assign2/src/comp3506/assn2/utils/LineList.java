@@ -0,0 +1,51 @@
+package comp3506.assn2.utils;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only list of line numbers in ascending order, as a view over an int
+ * array. Lines are only boxed when an element is asked for through the List
+ * interface; lineAt() reads the array directly.
+ */
+public class LineList extends AbstractList<Integer> implements RandomAccess {
+	public static final LineList EMPTY = new LineList(new int[0]);
+
+	// The lines (never modified)
+	private final int[] lines;
+
+	/**
+	 * O(1)
+	 *
+	 * @param lines
+	 *            The lines, in ascending order. They must not be modified
+	 *            afterwards.
+	 */
+	public LineList(int[] lines) {
+		this.lines = lines;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            An index in the list
+	 * @return The line at that index
+	 */
+	public int lineAt(int index) {
+		return lines[index];
+	}
+
+	/**
+	 * O(1). Boxes the line.
+	 */
+	@Override
+	public Integer get(int index) {
+		return lines[index];
+	}
+
+	@Override
+	public int size() {
+		return lines.length;
+	}
+}
@@ -0,0 +1,153 @@
+package comp3506.assn2.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A read-only list of word occurrences (line and column pairs), as a view over
+ * packed occurrences (see Postings.pack), or over a slice of the postings
+ * arena (token positions, whose packed occurrences are in the token stream).
+ *
+ * A Pair is only made when an element is asked for through the List
+ * interface; lineAt() and columnAt() read the packed values directly, so
+ * counting or paging through the results allocates almost nothing.
+ */
+public class OccurrenceList extends AbstractList<Pair<Integer, Integer>>
+		implements RandomAccess {
+	public static final OccurrenceList EMPTY = new OccurrenceList(new long[0],
+			0, 0);
+
+	// Packed line/column of the occurrences (never modified)
+	private final long[] occurrences;
+	// Where each occurrence is in occurrences, or null if they are in order
+	private final int[] positions;
+	// Index of the first occurrence in occurrences (or positions)
+	private final int from;
+	// Number of occurrences
+	private final int size;
+
+	/**
+	 * O(1)
+	 *
+	 * @param occurrences
+	 *            Packed line/column values. They must not be modified
+	 *            afterwards.
+	 * @param from
+	 *            Index of the first occurrence in the list
+	 * @param to
+	 *            Index after the last occurrence in the list
+	 */
+	public OccurrenceList(long[] occurrences, int from, int to) {
+		this(occurrences, null, from, to);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param occurrences
+	 *            Packed line/column values (such as a token stream). They
+	 *            must not be modified afterwards.
+	 * @param positions
+	 *            Index in occurrences of each occurrence (such as the
+	 *            postings arena). They must not be modified afterwards.
+	 * @param from
+	 *            Index in positions of the first occurrence in the list
+	 * @param to
+	 *            Index in positions after the last occurrence in the list
+	 */
+	OccurrenceList(long[] occurrences, int[] positions, int from, int to) {
+		this.occurrences = occurrences;
+		this.positions = positions;
+		this.from = from;
+		this.size = to - from;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            An index in the list
+	 * @return The line of the occurrence
+	 */
+	public int lineAt(int index) {
+		return Postings.line(packedAt(index));
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            An index in the list
+	 * @return The column of the occurrence
+	 */
+	public int columnAt(int index) {
+		return Postings.column(packedAt(index));
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            An index in the list
+	 * @return The packed line/column of the occurrence
+	 */
+	public long packedAt(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index
+					+ ", Size: " + size);
+		}
+		if (positions == null) {
+			return occurrences[from + index];
+		}
+		return occurrences[positions[from + index]];
+	}
+
+	/**
+	 * O(1). Makes a new Pair.
+	 */
+	@Override
+	public Pair<Integer, Integer> get(int index) {
+		long occurrence = packedAt(index);
+		return new Pair<Integer, Integer>(Postings.line(occurrence),
+				Postings.column(occurrence));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	// ##############################################################
+
+	/**
+	 * Collects packed occurrences into a growing array, for results that
+	 * aren't already a slice of the postings.
+	 */
+	static class Builder {
+		private long[] occurrences = new long[16];
+		private int size;
+
+		/**
+		 * O(1) (amortised)
+		 *
+		 * @param occurrence
+		 *            A packed line/column
+		 */
+		void add(long occurrence) {
+			if (size == occurrences.length) {
+				occurrences = Arrays.copyOf(occurrences, size * 2);
+			}
+			occurrences[size++] = occurrence;
+		}
+
+		/**
+		 * O(1). The builder must not be used afterwards.
+		 *
+		 * @return The occurrences added, in order
+		 */
+		OccurrenceList build() {
+			return new OccurrenceList(occurrences, 0, size);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package comp3506.assn2.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a CompressedTrie over a document on a ForkJoinPool.
+ *
+ * The document is split in half (at a line break) until the pieces are small,
+ * each piece is tokenized into its own partial trie, and the partial tries are
+ * appended back together in document order (see CompressedTrie.append). The
+ * result is the same trie as adding every word on a single thread.
+ */
+public class ParallelIndexer {
+	// Pieces smaller than this (in bytes) are not split any further
+	private static final int MINIMUM_PIECE = 1 << 16;
+
+	/**
+	 * Indexes every word of a document.
+	 *
+	 * O(n / p + n log k) where n is the length of the document, p the
+	 * parallelism, and k the number of pieces (merges happen in parallel at
+	 * every level but the top)
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param parallelism
+	 *            Number of threads to build with
+	 * @param stopWords
+	 *            The trie's stop words, or null
+	 * @return The trie of every word in the document
+	 */
+	public static CompressedTrie build(ByteBuffer text, int parallelism,
+			StopWords stopWords) {
+		// A few pieces per thread keeps every thread busy
+		int pieceSize = Math.max(MINIMUM_PIECE,
+				text.limit() / (parallelism * 4) + 1);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.invoke(new Piece(text, 0, text.limit(), pieceSize,
+					stopWords)).trie;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Finds the start of the line after the one 'offset' is on.
+	 *
+	 * O(l) where l is the length of a line
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param offset
+	 *            Any offset in the document
+	 * @param to
+	 *            Offset to stop looking at
+	 * @return Offset just after the next line break, or 'to' if there is none
+	 */
+	private static int nextLine(ByteBuffer text, int offset, int to) {
+		while (offset < to) {
+			if (text.get(offset++) == '\n') {
+				return offset;
+			}
+		}
+		return to;
+	}
+
+	// ##############################################################
+
+	/**
+	 * A piece of the document, indexing itself. Its result's line numbers are
+	 * relative to the piece (its first line is line 1).
+	 */
+	private static class Piece extends RecursiveTask<Piece> {
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer text;
+		private final int from;
+		private final int to;
+		private final int pieceSize;
+		private final StopWords stopWords;
+
+		// The piece's words
+		private CompressedTrie trie;
+		// How many line breaks the piece has
+		private int lines;
+
+		private Piece(ByteBuffer text, int from, int to, int pieceSize,
+				StopWords stopWords) {
+			this.text = text;
+			this.from = from;
+			this.to = to;
+			this.pieceSize = pieceSize;
+			this.stopWords = stopWords;
+		}
+
+		@Override
+		protected Piece compute() {
+			int middle = to;
+			if (to - from > pieceSize) {
+				middle = nextLine(text, from + (to - from) / 2, to);
+			}
+			// Small enough (or one long line): index it here
+			if (middle == to) {
+				trie = new CompressedTrie(stopWords);
+				lines = Tokenizer.tokenize(text, from, to, 1, trie) - 1;
+				return this;
+			}
+
+			Piece right = new Piece(text, middle, to, pieceSize,
+					stopWords);
+			right.fork();
+			Piece left = new Piece(text, from, middle, pieceSize,
+					stopWords).compute();
+			right.join();
+
+			// The right half's text follows the left half's
+			left.trie.append(right.trie, left.lines);
+			trie = left.trie;
+			lines = left.lines + right.lines;
+			return this;
+		}
+	}
+}
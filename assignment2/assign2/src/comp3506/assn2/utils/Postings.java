@@ -0,0 +1,771 @@
+package comp3506.assn2.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Primitive, array-backed store of every word occurrence in a document.
+ *
+ * Occurrences are recorded in document order as they are added (the token
+ * stream). When a query first needs them, their token positions are laid out
+ * again grouped by term in one shared arena, so that all occurrences of a term
+ * sit next to each other in document order. The terms' slices follow each
+ * other in term id order, or in any other order given to order() (such as
+ * lexicographical order, so words sharing a prefix sit next to each other
+ * too). A line and column are packed into a single long, which is kept once,
+ * in the token stream: the arena only holds where to find it. Ignored terms
+ * (stop words) have their slices after all of those, where no order reaches
+ * them (see ignore).
+ *
+ * That is 16 bytes per occurrence (8 for the line/column, 4 for the term and 4
+ * in the arena), and nothing in here allocates an object per occurrence.
+ */
+public class Postings {
+	// Initial capacity of the token stream
+	private static final int INITIAL_CAPACITY = 1024;
+	// Number of values read or written at a time by read() and write()
+	private static final int BLOCK_SIZE = 8192;
+
+	// Packed line/column of every token, in document order
+	private long[] tokens;
+	// Term of every token, in document order
+	private int[] tokenTerms;
+	// Number of tokens added so far
+	private int size;
+
+	// Number of occurrences of each term
+	private int[] termCounts;
+	// Terms left out of the arena (stop words), see ignore()
+	private boolean[] ignored;
+	// Number of distinct terms
+	private int termCount;
+
+	// Token position of every occurrence, grouped by term
+	private int[] arena;
+	// Each term's place in the arena (null when in term id order)
+	private int[] ranks;
+	// The first arena entry of each rank (termCount + 1 entries)
+	private int[] termStarts;
+	// The first arena entry of each ignored term, after every rank's slice
+	// (termCount + 1 entries, other terms' slices are empty)
+	private int[] ignoredStarts;
+	// The first token position of every line (lines + 2 entries)
+	private int[] lineStarts;
+	// The lines each term is on, made when first asked for (see lines())
+	private LineBitmap[] lineBitmaps;
+	// Whether the arena reflects every added token
+	private boolean sealed;
+
+	public Postings() {
+		tokens = new long[INITIAL_CAPACITY];
+		tokenTerms = new int[INITIAL_CAPACITY];
+		termCounts = new int[INITIAL_CAPACITY];
+		ignored = new boolean[INITIAL_CAPACITY];
+		sealed = false;
+	}
+
+	/**
+	 * Packs a line and column into a single long.
+	 *
+	 * O(1)
+	 *
+	 * @param line
+	 *            Line number
+	 * @param column
+	 *            Column number
+	 * @return The line in the high 32 bits and the column in the low 32 bits
+	 */
+	public static long pack(int line, int column) {
+		return ((long) line << 32) | (column & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param packed
+	 *            A packed line/column
+	 * @return The line
+	 */
+	public static int line(long packed) {
+		return (int) (packed >>> 32);
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param packed
+	 *            A packed line/column
+	 * @return The column
+	 */
+	public static int column(long packed) {
+		return (int) packed;
+	}
+
+	/**
+	 * Registers a new, distinct term.
+	 *
+	 * O(1) (amortised)
+	 *
+	 * @return The new term's id
+	 */
+	public int newTerm() {
+		if (termCount == termCounts.length) {
+			termCounts = Arrays.copyOf(termCounts, termCount * 2);
+			ignored = Arrays.copyOf(ignored, termCount * 2);
+		}
+		// An order given before no longer covers every term
+		ranks = null;
+		sealed = false;
+		return termCount++;
+	}
+
+	/**
+	 * Sets the order of the terms' slices in the arena (term id order until
+	 * then). Registering another term goes back to term id order.
+	 *
+	 * O(t) where t is the number of terms (plus the cost of seal the next
+	 * time the arena is used)
+	 *
+	 * @param terms
+	 *            Every term id, once each, in the order wanted
+	 * @throws IllegalArgumentException
+	 *             if terms does not hold every term id
+	 */
+	public void order(int[] terms) throws IllegalArgumentException {
+		if (terms.length != termCount) {
+			throw new IllegalArgumentException("Not every term is ordered");
+		}
+		int[] newRanks = new int[termCount];
+		Arrays.fill(newRanks, -1);
+		for (int rank = 0; rank < termCount; ++rank) {
+			if (newRanks[terms[rank]] >= 0) {
+				throw new IllegalArgumentException("Term ordered twice");
+			}
+			newRanks[terms[rank]] = rank;
+		}
+		ranks = newRanks;
+		sealed = false;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The term's place in the arena order (see order)
+	 */
+	private int rank(int term) {
+		return ranks == null ? term : ranks[term];
+	}
+
+	/**
+	 * Leaves a term's occurrences out of its place in the arena order, as is
+	 * done for stop words. The term still has its place in the token stream
+	 * (so phrases containing it can be matched) and its count, but its
+	 * postings slice (start to end) is empty, so it is in no rank's slice.
+	 * Its occurrences are kept apart, for phrases and counts within lines (see
+	 * allStart).
+	 *
+	 * O(1)
+	 *
+	 * @param term
+	 *            A term id
+	 */
+	public void ignore(int term) {
+		ignored[term] = true;
+		sealed = false;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param term
+	 *            A term id
+	 * @return Whether the term's occurrences are left out of the arena order
+	 */
+	public boolean isIgnored(int term) {
+		return ignored[term];
+	}
+
+	/**
+	 * Adds the next token of the document.
+	 *
+	 * O(1) (amortised)
+	 *
+	 * @param term
+	 *            The term id of the token
+	 * @param line
+	 *            The line on which the token is located
+	 * @param column
+	 *            The column at which the token begins
+	 */
+	public void add(int term, int line, int column) {
+		if (size == tokens.length) {
+			tokens = Arrays.copyOf(tokens, size * 2);
+			tokenTerms = Arrays.copyOf(tokenTerms, size * 2);
+		}
+		tokens[size] = pack(line, column);
+		tokenTerms[size] = term;
+		++size;
+		++termCounts[term];
+		sealed = false;
+	}
+
+	/**
+	 * Adds every token of another document's postings after the tokens of this
+	 * one, as if the other document's text followed this one's.
+	 *
+	 * O(n) where n is the number of tokens in other
+	 *
+	 * @param other
+	 *            The postings of the following text
+	 * @param termMap
+	 *            The term id in this postings of every term id in other. The
+	 *            terms must already be registered (see newTerm).
+	 * @param lineOffset
+	 *            Number of lines in this document before other's first line
+	 */
+	public void append(Postings other, int[] termMap, int lineOffset) {
+		if (size + other.size > tokens.length) {
+			int capacity = Math.max(tokens.length * 2, size + other.size);
+			tokens = Arrays.copyOf(tokens, capacity);
+			tokenTerms = Arrays.copyOf(tokenTerms, capacity);
+		}
+		// Lines are in the high half of a packed token
+		long shift = (long) lineOffset << 32;
+		for (int position = 0; position < other.size; ++position) {
+			tokens[size + position] = other.tokens[position] + shift;
+			tokenTerms[size + position] = termMap[other.tokenTerms[position]];
+		}
+		for (int term = 0; term < other.termCount; ++term) {
+			termCounts[termMap[term]] += other.termCounts[term];
+		}
+		size += other.size;
+		sealed = false;
+	}
+
+	/**
+	 * Makes new, sealed postings of this document followed by another, leaving
+	 * these postings as they are (so they can still be read meanwhile).
+	 *
+	 * Only the other document is grouped by term: each of this arena's slices
+	 * is copied across whole and the other's occurrences of the term follow it,
+	 * and this document's line starts are kept. The lines of terms the other
+	 * document doesn't have are kept too.
+	 *
+	 * O(n + t + m) where n is the number of tokens here, t the number of terms
+	 * and m the number of tokens in other, but only other's tokens are sorted:
+	 * the O(n) part is copying arrays (see System.arraycopy)
+	 *
+	 * @param other
+	 *            The postings of the following text
+	 * @param termMap
+	 *            The term id in the new postings of every term id in other.
+	 *            Terms new to this document are numbered on from termCount(),
+	 *            and are ignored if they are ignored in other.
+	 * @param lineOffset
+	 *            Number of lines in this document before other's first line
+	 * @param terms
+	 *            Every term id of the new postings, once each, in arena order
+	 *            (see order)
+	 * @return The postings of both documents
+	 * @throws IllegalArgumentException
+	 *             if terms does not hold every term id, or other's lines
+	 *             would not all come after this document's
+	 */
+	public Postings appended(Postings other, int[] termMap, int lineOffset,
+			int[] terms) throws IllegalArgumentException {
+		if (size > 0 && lineOffset < line(tokens[size - 1])) {
+			throw new IllegalArgumentException("Lines overlap");
+		}
+		seal();
+		Postings postings = new Postings();
+		int newTermCount = terms.length;
+		int capacity = Math.max(newTermCount, INITIAL_CAPACITY);
+		postings.termCount = newTermCount;
+		postings.termCounts = Arrays.copyOf(termCounts, capacity);
+		postings.ignored = Arrays.copyOf(ignored, capacity);
+		for (int term = 0; term < other.termCount; ++term) {
+			int mapped = termMap[term];
+			postings.termCounts[mapped] += other.termCounts[term];
+			if (mapped >= termCount && other.ignored[term]) {
+				postings.ignored[mapped] = true;
+			}
+		}
+		postings.order(terms);
+
+		// The token stream: this one, then other's moved down by lineOffset
+		int newSize = size + other.size;
+		postings.size = newSize;
+		postings.tokens = Arrays.copyOf(tokens,
+				Math.max(newSize, INITIAL_CAPACITY));
+		postings.tokenTerms = Arrays.copyOf(tokenTerms,
+				postings.tokens.length);
+		long shift = (long) lineOffset << 32;
+		for (int position = 0; position < other.size; ++position) {
+			postings.tokens[size + position] = other.tokens[position] + shift;
+			postings.tokenTerms[size + position] = termMap[other.tokenTerms[position]];
+		}
+
+		// Next free arena slot of each term
+		int[] fill = postings.layOut();
+		// This document's occurrences of a term come first, as they are
+		for (int term = 0; term < termCount; ++term) {
+			int from = allStart(term);
+			int length = allEnd(term) - from;
+			System.arraycopy(arena, from, postings.arena, fill[term], length);
+			fill[term] += length;
+		}
+		// Then other's, in document order
+		for (int position = size; position < newSize; ++position) {
+			postings.arena[fill[postings.tokenTerms[position]]++] = position;
+		}
+
+		// Other's tokens are all on later lines, so this document's line
+		// starts still hold (the line after its last token starts at size)
+		int oldLastLine = lineStarts.length - 2;
+		int lastLine = newSize == 0 ? 0
+				: Math.max(oldLastLine, line(postings.tokens[newSize - 1]));
+		postings.lineStarts = Arrays.copyOf(lineStarts, lastLine + 2);
+		int line = oldLastLine + 1;
+		for (int position = size; position < newSize; ++position) {
+			int tokenLine = line(postings.tokens[position]);
+			while (line < tokenLine) {
+				postings.lineStarts[++line] = position;
+			}
+		}
+		while (line < lastLine + 1) {
+			postings.lineStarts[++line] = newSize;
+		}
+
+		// Terms other doesn't have are on the same lines as before
+		postings.lineBitmaps = new LineBitmap[newTermCount];
+		boolean[] changed = new boolean[termCount];
+		for (int term = 0; term < other.termCount; ++term) {
+			if (termMap[term] < termCount && other.termCounts[term] > 0) {
+				changed[termMap[term]] = true;
+			}
+		}
+		for (int term = 0; term < termCount; ++term) {
+			if (!changed[term]) {
+				postings.lineBitmaps[term] = lineBitmaps[term];
+			}
+		}
+		postings.sealed = true;
+		return postings;
+	}
+
+	/**
+	 * Writes the token stream (the term id and packed line/column of every
+	 * token, in document order).
+	 *
+	 * O(n) where n is the number of tokens
+	 *
+	 * @param out
+	 *            Where to write
+	 * @throws IOException
+	 *             if out cannot be written to
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(termCount);
+		out.writeInt(size);
+		// Arrays go out a block at a time rather than value by value
+		ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE * 8);
+		for (int position = 0; position < size; position += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, size - position);
+			block.asIntBuffer().put(tokenTerms, position, length);
+			out.write(block.array(), 0, length * 4);
+		}
+		for (int position = 0; position < size; position += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, size - position);
+			block.asLongBuffer().put(tokens, position, length);
+			out.write(block.array(), 0, length * 8);
+		}
+	}
+
+	/**
+	 * Reads a token stream written by write().
+	 *
+	 * O(n) where n is the number of tokens
+	 *
+	 * @param in
+	 *            Where to read from
+	 * @return The postings
+	 * @throws IOException
+	 *             if in cannot be read from, or does not hold valid postings
+	 */
+	public static Postings read(DataInput in) throws IOException {
+		Postings postings = new Postings();
+		int termCount = in.readInt();
+		int size = in.readInt();
+		if (termCount < 0 || size < 0) {
+			throw new IOException("Corrupt postings");
+		}
+		postings.termCount = termCount;
+		postings.termCounts = new int[Math.max(termCount, INITIAL_CAPACITY)];
+		postings.ignored = new boolean[postings.termCounts.length];
+		postings.size = size;
+		postings.tokenTerms = new int[Math.max(size, INITIAL_CAPACITY)];
+		postings.tokens = new long[postings.tokenTerms.length];
+
+		ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE * 8);
+		for (int position = 0; position < size; position += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, size - position);
+			in.readFully(block.array(), 0, length * 4);
+			block.asIntBuffer().get(postings.tokenTerms, position, length);
+		}
+		for (int position = 0; position < size; ++position) {
+			int term = postings.tokenTerms[position];
+			if (term < 0 || term >= termCount) {
+				throw new IOException("Corrupt postings");
+			}
+			++postings.termCounts[term];
+		}
+		for (int position = 0; position < size; position += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, size - position);
+			in.readFully(block.array(), 0, length * 8);
+			block.asLongBuffer().get(postings.tokens, position, length);
+		}
+		return postings;
+	}
+
+	/**
+	 * Groups the token stream by term into the arena. Only does work if tokens
+	 * have been added since the last time.
+	 *
+	 * O(n) where n is the number of tokens (a counting sort by term)
+	 */
+	public void seal() {
+		if (sealed) {
+			return;
+		}
+		// Next free arena slot of each term
+		int[] fill = layOut();
+		// Walking in document order keeps each term's slice in document order
+		for (int position = 0; position < size; ++position) {
+			arena[fill[tokenTerms[position]]++] = position;
+		}
+
+		// Tokens are in line order, so each line's tokens are a run
+		int lastLine = size == 0 ? 0 : line(tokens[size - 1]);
+		lineStarts = new int[lastLine + 2];
+		int line = 0;
+		for (int position = 0; position < size; ++position) {
+			int tokenLine = line(tokens[position]);
+			while (line < tokenLine) {
+				lineStarts[++line] = position;
+			}
+		}
+		// Lines after the last token start (and end) at the end
+		while (line < lastLine + 1) {
+			lineStarts[++line] = size;
+		}
+		lineBitmaps = new LineBitmap[termCount];
+		sealed = true;
+	}
+
+	/**
+	 * Works out where each term's slice of the arena starts (by rank, then
+	 * the ignored terms' after them) and makes a new, empty arena.
+	 *
+	 * O(t) where t is the number of terms (plus allocating the arena)
+	 *
+	 * @return The start of each term's slice, by term id
+	 */
+	private int[] layOut() {
+		// Each rank's slice length, then where each slice starts
+		termStarts = new int[termCount + 1];
+		for (int term = 0; term < termCount; ++term) {
+			termStarts[rank(term) + 1] = ignored[term] ? 0 : termCounts[term];
+		}
+		for (int rank = 0; rank < termCount; ++rank) {
+			termStarts[rank + 1] += termStarts[rank];
+		}
+		// The ignored terms' slices follow, in term id order
+		ignoredStarts = new int[termCount + 1];
+		ignoredStarts[0] = termStarts[termCount];
+		for (int term = 0; term < termCount; ++term) {
+			ignoredStarts[term + 1] = ignoredStarts[term]
+					+ (ignored[term] ? termCounts[term] : 0);
+		}
+		arena = new int[ignoredStarts[termCount]];
+
+		int[] starts = new int[termCount];
+		for (int term = 0; term < termCount; ++term) {
+			starts[term] = ignored[term] ? ignoredStarts[term]
+					: termStarts[rank(term)];
+		}
+		return starts;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of tokens in the document
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of distinct terms
+	 */
+	public int termCount() {
+		return termCount;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The number of occurrences of the term (including ignored ones)
+	 */
+	public int count(int term) {
+		return termCounts[term];
+	}
+
+	/**
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The arena index of the term's first occurrence
+	 */
+	public int start(int term) {
+		seal();
+		return termStarts[rank(term)];
+	}
+
+	/**
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The arena index one past the term's last occurrence
+	 */
+	public int end(int term) {
+		seal();
+		return termStarts[rank(term) + 1];
+	}
+
+	/**
+	 * Where every occurrence of a term is, whether it is ignored (see ignore)
+	 * or not. For a term that isn't ignored, this is start(term).
+	 *
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The arena index of the term's first occurrence
+	 */
+	public int allStart(int term) {
+		seal();
+		return ignored[term] ? ignoredStarts[term] : termStarts[rank(term)];
+	}
+
+	/**
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The arena index one past the term's last occurrence, whether it
+	 *         is ignored or not (see allStart)
+	 */
+	public int allEnd(int term) {
+		seal();
+		return ignored[term] ? ignoredStarts[term + 1]
+				: termStarts[rank(term) + 1];
+	}
+
+	/**
+	 * The terms ranked from r1 up to r2 (see order) have their occurrences
+	 * from rankStart(r1) up to rankStart(r2) in the arena.
+	 *
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param rank
+	 *            A place in the arena order, up to the number of terms
+	 * @return The arena index of the first occurrence of the term with that
+	 *         rank
+	 */
+	public int rankStart(int rank) {
+		seal();
+		return termStarts[rank];
+	}
+
+	/**
+	 * Finds where a line falls among a term's occurrences, so a term's
+	 * postings can be cut down to a line interval.
+	 *
+	 * O(log f) where f is the number of occurrences of the term
+	 *
+	 * @param term
+	 *            A term id
+	 * @param line
+	 *            A line number
+	 * @return The arena index of the term's first occurrence on or after the
+	 *         line, or end(term) if there is none
+	 */
+	public int lowerBound(int term, int line) {
+		return lowerBound(start(term), end(term), line);
+	}
+
+	/**
+	 * Finds where a line falls in part of one term's slice of the arena.
+	 *
+	 * O(log (to - from))
+	 *
+	 * @param from
+	 *            First arena index to look at
+	 * @param to
+	 *            Arena index after the last one to look at (from and to must
+	 *            be within one term's slice, see start, end and allStart)
+	 * @param line
+	 *            A line number
+	 * @return The first arena index from 'from' whose occurrence is on or
+	 *         after the line, or 'to' if there is none
+	 */
+	public int lowerBound(int from, int to, int line) {
+		// Columns are at least 1, so this sorts before everything on the line
+		long key = pack(line, 0);
+		int low = from;
+		int high = to;
+		// A term's slice is in document order: binary search it
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (tokens[arena[middle]] < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * O(1). Only valid between allStart() and allEnd() of some term.
+	 *
+	 * @param index
+	 *            An arena index
+	 * @return The packed line/column of the occurrence
+	 */
+	public long occurrence(int index) {
+		return tokens[arena[index]];
+	}
+
+	/**
+	 * A view of a slice of the arena, without copying it (see
+	 * OccurrenceList). The arena is never modified once sealed (sealing again
+	 * makes a new one), and a token is never changed once added, so the view
+	 * stays as it is while more tokens are added.
+	 *
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param from
+	 *            The arena index of the first occurrence
+	 * @param to
+	 *            The arena index after the last occurrence
+	 * @return The occurrences from 'from' up to 'to'
+	 */
+	OccurrenceList slice(int from, int to) {
+		seal();
+		return new OccurrenceList(tokens, arena, from, to);
+	}
+
+	/**
+	 * O(1). Only valid between allStart() and allEnd() of some term.
+	 *
+	 * @param index
+	 *            An arena index
+	 * @return The token position of the occurrence in the document
+	 */
+	public int position(int index) {
+		return arena[index];
+	}
+
+	/**
+	 * The tokens on line l are the positions from lineStart(l) up to
+	 * lineStart(l + 1).
+	 *
+	 * O(n) on the first call after tokens were added (see seal), O(1)
+	 * otherwise
+	 *
+	 * @param line
+	 *            A line number
+	 * @return The position of the first token on or after the line
+	 */
+	public int lineStart(int line) {
+		seal();
+		if (line >= lineStarts.length) {
+			return size;
+		}
+		return lineStarts[Math.max(line, 0)];
+	}
+
+	/**
+	 * The set of lines a term is on. Made from the term's slice of the arena
+	 * the first time it is asked for, then kept.
+	 *
+	 * Once sealed, this is safe to call from many threads without locking:
+	 * threads racing on a term may each make its bitmap, but they make equal
+	 * ones, and as LineBitmap is immutable (all its fields are final) a
+	 * thread that sees another's bitmap sees all of it (as with
+	 * String.hashCode).
+	 *
+	 * O(f) the first time for each term, where f is the frequency of the term
+	 * (plus the cost of seal), O(1) afterwards
+	 *
+	 * @param term
+	 *            A term id
+	 * @return The lines the term is on (empty for ignored terms)
+	 */
+	public LineBitmap lines(int term) {
+		seal();
+		LineBitmap lines = lineBitmaps[term];
+		if (lines == null) {
+			int start = start(term);
+			int length = end(term) - start;
+			int[] termLines = new int[length];
+			for (int i = 0; i < length; ++i) {
+				termLines[i] = line(tokens[arena[start + i]]);
+			}
+			lines = LineBitmap.of(termLines, length);
+			lineBitmaps[term] = lines;
+		}
+		return lines;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param position
+	 *            A token position in the document
+	 * @return The packed line/column of the token
+	 */
+	public long token(int position) {
+		return tokens[position];
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param position
+	 *            A token position in the document
+	 * @return The term id of the token
+	 */
+	public int termAt(int position) {
+		return tokenTerms[position];
+	}
+}
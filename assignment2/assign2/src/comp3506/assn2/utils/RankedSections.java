@@ -0,0 +1,414 @@
+package comp3506.assn2.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ranks the sections of a document by how relevant they are to some words,
+ * using Okapi BM25.
+ *
+ * The statistics BM25 needs are worked out once, when the index is built: how
+ * often each term occurs in each section (a list of sections and frequencies
+ * per term, in section order), the length of each section in tokens, and an
+ * upper bound on the score each term can add to any section.
+ *
+ * Queries walk the terms' section lists together, a section at a time, keeping
+ * the best k in a bounded heap. With the upper bounds, this uses MaxScore
+ * pruning: once the heap is full, terms whose bounds add up to no more than
+ * the k-th best score can't get a section into the heap on their own, so only
+ * the other (essential) terms' sections are candidates, and a candidate stops
+ * being scored as soon as what is left can't lift it into the heap.
+ */
+public class RankedSections {
+	// BM25 term frequency saturation
+	private static final double K1 = 1.2;
+	// BM25 length normalisation
+	private static final double B = 0.75;
+
+	private final Sections sections;
+	// Each term's entries run from termStarts[term] to termStarts[term + 1]
+	private final int[] termStarts;
+	// The sections each term occurs in, in ascending order
+	private final int[] sectionIds;
+	// How often the term occurs in each of those sections
+	private final int[] frequencies;
+	// Most any section can score from each term alone
+	private final double[] upperBounds;
+	// K1 * (1 - B + B * length / average length) for each section
+	private final double[] norms;
+
+	/**
+	 * O(n log s + t) where n is the number of words in the document, s the
+	 * number of sections and t the number of terms
+	 *
+	 * @param postings
+	 *            The document's postings (sealed)
+	 * @param sections
+	 *            The document's sections
+	 */
+	public RankedSections(Postings postings, Sections sections) {
+		this.sections = sections;
+		int sectionCount = sections.size();
+		int termCount = postings.termCount();
+
+		// Section lengths, in tokens (stop words included)
+		norms = new double[sectionCount];
+		long totalLength = 0;
+		for (int section = 0; section < sectionCount; ++section) {
+			int length = postings.lineStart(sections.endLine(section))
+					- postings.lineStart(sections.startLine(section));
+			norms[section] = length;
+			totalLength += length;
+		}
+		double averageLength = sectionCount == 0 ? 1
+				: Math.max(1.0, (double) totalLength / sectionCount);
+		for (int section = 0; section < sectionCount; ++section) {
+			norms[section] = K1
+					* (1 - B + B * norms[section] / averageLength);
+		}
+
+		// Each term's occurrences are in document order, so its sections
+		// come in runs
+		termStarts = new int[termCount + 1];
+		int[] ids = new int[Math.max(16, termCount)];
+		int[] counts = new int[ids.length];
+		int entries = 0;
+		for (int term = 0; term < termCount; ++term) {
+			termStarts[term] = entries;
+			int end = postings.end(term);
+			for (int index = postings.start(term); index < end; ++index) {
+				int section = sections
+						.sectionOf(Postings.line(postings.occurrence(index)));
+				if (section < 0) {
+					// Before the first section
+					continue;
+				}
+				if (entries > termStarts[term] && ids[entries - 1] == section) {
+					++counts[entries - 1];
+					continue;
+				}
+				if (entries == ids.length) {
+					ids = Arrays.copyOf(ids, entries * 2);
+					counts = Arrays.copyOf(counts, entries * 2);
+				}
+				ids[entries] = section;
+				counts[entries++] = 1;
+			}
+		}
+		termStarts[termCount] = entries;
+		sectionIds = Arrays.copyOf(ids, entries);
+		frequencies = Arrays.copyOf(counts, entries);
+
+		upperBounds = new double[termCount];
+		for (int term = 0; term < termCount; ++term) {
+			double best = 0;
+			for (int i = termStarts[term]; i < termStarts[term + 1]; ++i) {
+				best = Math.max(best, saturate(frequencies[i],
+						norms[sectionIds[i]]));
+			}
+			upperBounds[term] = idf(term) * best;
+		}
+	}
+
+	/**
+	 * Finds the k sections that score highest for some terms.
+	 *
+	 * O(q * e * log e + k log k) at worst, where q is the number of terms and
+	 * e the number of sections the most common of them is in; sections only
+	 * the non-essential terms are in are never looked at (see class javadoc)
+	 *
+	 * @param terms
+	 *            Term ids of the words (-1 for words not in the document;
+	 *            repeats count once)
+	 * @param titles
+	 *            Titles of the sections to rank, or null or an empty array
+	 *            for every section. Unknown titles are ignored.
+	 * @param k
+	 *            The most sections to return (at least 1; more than the
+	 *            number of sections returns them all)
+	 * @return Title and score of the best sections, best first (ties in
+	 *         document order). Sections none of the words are in are left out.
+	 * @throws IllegalArgumentException
+	 *             if k is less than 1
+	 */
+	public List<Pair<String, Double>> search(int[] terms, String[] titles,
+			int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1");
+		}
+		boolean[] allowed = allowed(titles);
+
+		// The distinct terms that are in some section, lowest bound first
+		int[] query = new int[terms.length];
+		int queryLength = 0;
+		for (int term : terms) {
+			if (term < 0 || termStarts[term] == termStarts[term + 1]) {
+				continue;
+			}
+			boolean repeat = false;
+			for (int i = 0; i < queryLength && !repeat; ++i) {
+				repeat = query[i] == term;
+			}
+			if (repeat) {
+				continue;
+			}
+			// Insertion sort (there are only a few words)
+			int i = queryLength++;
+			while (i > 0 && upperBounds[query[i - 1]] > upperBounds[term]) {
+				query[i] = query[i - 1];
+				--i;
+			}
+			query[i] = term;
+		}
+
+		// Bound on what terms 0 to i - 1 can add, together
+		double[] below = new double[queryLength + 1];
+		double[] idfs = new double[queryLength];
+		// Each term's next entry, and where its entries end
+		int[] positions = new int[queryLength];
+		int[] ends = new int[queryLength];
+		for (int i = 0; i < queryLength; ++i) {
+			below[i + 1] = below[i] + upperBounds[query[i]];
+			idfs[i] = idf(query[i]);
+			positions[i] = termStarts[query[i]];
+			ends[i] = termStarts[query[i] + 1];
+		}
+
+		// No more than every section can be returned, so a huge k must not
+		// size the heap (with no sections there are no candidates either)
+		Heap heap = new Heap(Math.min(k, sections.size()));
+		// Terms before this one are non-essential
+		int essential = 0;
+		while (true) {
+			// The next section an essential term is in
+			int candidate = Integer.MAX_VALUE;
+			for (int i = essential; i < queryLength; ++i) {
+				if (positions[i] < ends[i]) {
+					candidate = Math.min(candidate,
+							sectionIds[positions[i]]);
+				}
+			}
+			if (candidate == Integer.MAX_VALUE) {
+				break;
+			}
+
+			double score = 0;
+			for (int i = essential; i < queryLength; ++i) {
+				if (positions[i] < ends[i]
+						&& sectionIds[positions[i]] == candidate) {
+					score += idfs[i] * saturate(frequencies[positions[i]],
+							norms[candidate]);
+					++positions[i];
+				}
+			}
+			if (!allowed[candidate]) {
+				continue;
+			}
+			// Then the non-essential terms, highest bound first, while they
+			// can still lift it into the heap
+			for (int i = essential - 1; i >= 0; --i) {
+				if (heap.isFull() && score + below[i + 1] <= heap.minimum()) {
+					break;
+				}
+				positions[i] = seek(positions[i], ends[i], candidate);
+				if (positions[i] < ends[i]
+						&& sectionIds[positions[i]] == candidate) {
+					score += idfs[i] * saturate(frequencies[positions[i]],
+							norms[candidate]);
+				}
+			}
+
+			if (heap.offer(candidate, score)) {
+				// A higher bar: more terms may become non-essential
+				while (heap.isFull() && essential < queryLength
+						&& below[essential + 1] <= heap.minimum()) {
+					++essential;
+				}
+			}
+		}
+
+		return heap.toList(sections);
+	}
+
+	/**
+	 * @return Whether each section is to be ranked
+	 */
+	private boolean[] allowed(String[] titles) {
+		boolean[] allowed = new boolean[sections.size()];
+		if (titles == null || titles.length == 0) {
+			Arrays.fill(allowed, true);
+			return allowed;
+		}
+		for (String title : titles) {
+			int section = sections.indexOf(title);
+			if (section >= 0) {
+				allowed[section] = true;
+			}
+		}
+		return allowed;
+	}
+
+	/**
+	 * Galloping search of a term's entries.
+	 *
+	 * O(log d) where d is the distance moved
+	 *
+	 * @return The first entry from 'from' to 'end' whose section is at least
+	 *         'section' (end if there is none)
+	 */
+	private int seek(int from, int end, int section) {
+		int step = 1;
+		int low = from;
+		int high = from;
+		while (high < end && sectionIds[high] < section) {
+			low = high + 1;
+			high += step;
+			step <<= 1;
+		}
+		high = Math.min(high, end);
+		// Binary search in [low, high)
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sectionIds[middle] < section) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return The BM25 inverse document frequency of a term
+	 */
+	private double idf(int term) {
+		int sectionCount = norms.length;
+		int frequency = termStarts[term + 1] - termStarts[term];
+		return Math.log(
+				1 + (sectionCount - frequency + 0.5) / (frequency + 0.5));
+	}
+
+	/**
+	 * @return The BM25 weight of a term occurring 'frequency' times in a
+	 *         section with the given norm (before idf)
+	 */
+	private static double saturate(int frequency, double norm) {
+		return frequency * (K1 + 1) / (frequency + norm);
+	}
+
+	// ##############################################################
+
+	/**
+	 * The best sections so far, in a min-heap of at most k entries (so the
+	 * k-th best is at the top). Of equal scores, the earlier section wins.
+	 */
+	private static class Heap {
+		private final int[] sections;
+		private final double[] scores;
+		private int size;
+
+		private Heap(int capacity) {
+			sections = new int[capacity];
+			scores = new double[capacity];
+		}
+
+		private boolean isFull() {
+			return size == sections.length;
+		}
+
+		/**
+		 * @return The lowest score in the heap
+		 */
+		private double minimum() {
+			return scores[0];
+		}
+
+		/**
+		 * O(log k)
+		 *
+		 * @return Whether the section was added (pushing out the lowest if
+		 *         the heap was full)
+		 */
+		private boolean offer(int section, double score) {
+			if (score <= 0) {
+				return false;
+			}
+			if (!isFull()) {
+				int i = size++;
+				// Sift up
+				while (i > 0 && worse(score, section, (i - 1) / 2)) {
+					sections[i] = sections[(i - 1) / 2];
+					scores[i] = scores[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				sections[i] = section;
+				scores[i] = score;
+				return true;
+			}
+			// Sections come in document order, so a tie loses
+			if (score <= scores[0]) {
+				return false;
+			}
+			// Replace the top and sift down
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && worse(scores[child + 1],
+						sections[child + 1], child)) {
+					++child;
+				}
+				if (!worse(scores[child], sections[child], score, section)) {
+					break;
+				}
+				sections[i] = sections[child];
+				scores[i] = scores[child];
+				i = child;
+			}
+			sections[i] = section;
+			scores[i] = score;
+			return true;
+		}
+
+		/**
+		 * @return Whether (score, section) ranks below entry i
+		 */
+		private boolean worse(double score, int section, int i) {
+			return worse(score, section, scores[i], sections[i]);
+		}
+
+		/**
+		 * @return Whether (score, section) ranks below (otherScore,
+		 *         otherSection)
+		 */
+		private static boolean worse(double score, int section,
+				double otherScore, int otherSection) {
+			return score < otherScore
+					|| (score == otherScore && section > otherSection);
+		}
+
+		/**
+		 * O(k log k)
+		 *
+		 * @return The entries, best first
+		 */
+		private List<Pair<String, Double>> toList(Sections titles) {
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; ++i) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> worse(scores[a], sections[a], b) ? 1
+					: worse(scores[b], sections[b], a) ? -1 : 0);
+			List<Pair<String, Double>> ranked = new ArrayList<Pair<String, Double>>(
+					size);
+			for (int i : order) {
+				ranked.add(new Pair<String, Double>(
+						titles.title(sections[i]), scores[i]));
+			}
+			return ranked;
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package comp3506.assn2.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The sections (e.g. plays or books) of a document, as listed by its index
+ * file. A section runs from its start line up to, but not including, the start
+ * line of the next section. The last section runs to the end of the document.
+ */
+public class Sections {
+	// Initial capacity of the section table
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Start line of every section, in ascending order
+	private int[] startLines;
+	// Title of every section, parallel to startLines
+	private String[] titles;
+	// Number of sections
+	private int size;
+	// Title -> index into startLines
+	private Map<String, Integer> lookup;
+
+	public Sections() {
+		startLines = new int[INITIAL_CAPACITY];
+		titles = new String[INITIAL_CAPACITY];
+		lookup = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Makes a table of the same sections, which can be added to without
+	 * changing this one.
+	 *
+	 * O(s) where s is the number of sections
+	 *
+	 * @return The copy
+	 */
+	public Sections copy() {
+		Sections copy = new Sections();
+		copy.startLines = Arrays.copyOf(startLines, startLines.length);
+		copy.titles = Arrays.copyOf(titles, titles.length);
+		copy.size = size;
+		copy.lookup = new HashMap<String, Integer>(lookup);
+		return copy;
+	}
+
+	/**
+	 * Adds a section to the table. Sections are kept sorted by start line, so
+	 * they may be added in any order, although adding them in document order
+	 * (as the index files list them) is O(1).
+	 *
+	 * O(1) (amortised) when added in order, O(s) otherwise where s is the
+	 * number of sections
+	 *
+	 * @param title
+	 *            The section's title
+	 * @param startLine
+	 *            The line on which the section begins
+	 */
+	public void add(String title, int startLine) {
+		if (size == startLines.length) {
+			startLines = Arrays.copyOf(startLines, size * 2);
+			titles = Arrays.copyOf(titles, size * 2);
+		}
+		// Shuffle later sections along to keep start lines sorted
+		int i = size;
+		while (i > 0 && startLines[i - 1] > startLine) {
+			startLines[i] = startLines[i - 1];
+			titles[i] = titles[i - 1];
+			lookup.put(titles[i], i);
+			--i;
+		}
+		startLines[i] = startLine;
+		titles[i] = title;
+		lookup.put(title, i);
+		++size;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of sections
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param title
+	 *            A section title
+	 * @return The section's index, or -1 if there is no such section
+	 */
+	public int indexOf(String title) {
+		Integer index = lookup.get(title);
+		if (index == null) {
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            A section index
+	 * @return The title of the section
+	 */
+	public String title(int index) {
+		return titles[index];
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            A section index
+	 * @return The first line of the section
+	 */
+	public int startLine(int index) {
+		return startLines[index];
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            A section index
+	 * @return The line after the last line of the section
+	 */
+	public int endLine(int index) {
+		if (index + 1 < size) {
+			return startLines[index + 1];
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Finds the section a line belongs to.
+	 *
+	 * O(log s) where s is the number of sections
+	 *
+	 * @param line
+	 *            A line number
+	 * @return The index of the section containing the line, or -1 if the line
+	 *         comes before the first section
+	 */
+	public int sectionOf(int line) {
+		int low = 0;
+		int high = size - 1;
+		// Binary search for the last section starting at or before line
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (startLines[middle] <= line) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Writes the section table.
+	 *
+	 * O(s) where s is the number of sections
+	 *
+	 * @param out
+	 *            Where to write
+	 * @throws IOException
+	 *             if out cannot be written to
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; ++i) {
+			out.writeUTF(titles[i]);
+			out.writeInt(startLines[i]);
+		}
+	}
+
+	/**
+	 * Reads a section table written by write().
+	 *
+	 * O(s) where s is the number of sections
+	 *
+	 * @param in
+	 *            Where to read from
+	 * @return The section table
+	 * @throws IOException
+	 *             if in cannot be read from, or does not hold a section table
+	 */
+	public static Sections read(DataInput in) throws IOException {
+		Sections sections = new Sections();
+		int size = in.readInt();
+		if (size < 0) {
+			throw new IOException("Corrupt section table");
+		}
+		for (int i = 0; i < size; ++i) {
+			String title = in.readUTF();
+			sections.add(title, in.readInt());
+		}
+		return sections;
+	}
+
+	/**
+	 * Turns a list of titles into the line intervals to search.
+	 *
+	 * O(t log t) where t is the number of titles
+	 *
+	 * @param titles
+	 *            Titles of the sections to search within. The entire document
+	 *            is searched if titles is null or an empty array.
+	 * @return Flattened [start, end) line intervals in document order, one per
+	 *         distinct known title. Unknown titles are ignored.
+	 */
+	public int[] intervals(String[] titles) {
+		if (titles == null || titles.length == 0) {
+			return new int[] { 1, Integer.MAX_VALUE };
+		}
+		int[] indices = new int[titles.length];
+		int count = 0;
+		for (String title : titles) {
+			int index = indexOf(title);
+			if (index >= 0) {
+				indices[count++] = index;
+			}
+		}
+		Arrays.sort(indices, 0, count);
+
+		int[] intervals = new int[count * 2];
+		int size = 0;
+		for (int i = 0; i < count; ++i) {
+			// The same title asked for twice
+			if (i > 0 && indices[i] == indices[i - 1]) {
+				continue;
+			}
+			intervals[size++] = startLine(indices[i]);
+			intervals[size++] = endLine(indices[i]);
+		}
+		return Arrays.copyOf(intervals, size);
+	}
+}
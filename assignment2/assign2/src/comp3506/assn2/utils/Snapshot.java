@@ -0,0 +1,228 @@
+package comp3506.assn2.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A built index saved in a compact binary file, so it can be loaded again
+ * without re-reading the document.
+ *
+ * Layout (big-endian, see DataOutput):
+ *
+ * magic, version, fingerprint of each source file (length and last modified
+ * time), the stop words, the trie (vocabulary then token stream, see
+ * CompressedTrie.write), the section table (see Sections.write), the number
+ * of lines in the document, then a CRC32 of everything before it.
+ */
+public class Snapshot {
+	// "A2IX"
+	private static final int MAGIC = 0x41324958;
+	// Bumped whenever the layout changes
+	private static final int VERSION = 3;
+	// Size of the read/write buffers
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// Fingerprint of the files the index was built from
+	private long[] sources;
+	private CompressedTrie trie;
+	private Sections sections;
+	private StopWords stopWords;
+	// Number of lines in the document
+	private int lines;
+
+	/**
+	 * @param sources
+	 *            Fingerprint of the files the index was built from (see
+	 *            fingerprint)
+	 * @param trie
+	 *            The document's words
+	 * @param sections
+	 *            The document's sections
+	 * @param stopWords
+	 *            The stop words used, or null
+	 * @param lines
+	 *            The number of lines in the document
+	 */
+	public Snapshot(long[] sources, CompressedTrie trie, Sections sections,
+			StopWords stopWords, int lines) {
+		this.sources = sources;
+		this.trie = trie;
+		this.sections = sections;
+		this.stopWords = stopWords;
+		this.lines = lines;
+	}
+
+	public long[] getSources() {
+		return sources;
+	}
+
+	public CompressedTrie getTrie() {
+		return trie;
+	}
+
+	public Sections getSections() {
+		return sections;
+	}
+
+	public StopWords getStopWords() {
+		return stopWords;
+	}
+
+	public int getLines() {
+		return lines;
+	}
+
+	/**
+	 * Identifies the current version of some files by their length and last
+	 * modified time. Null or empty file names (no file given) get -1s.
+	 *
+	 * O(f) where f is the number of files
+	 *
+	 * @param fileNames
+	 *            The files
+	 * @return Length and last modified time of each file, in turn
+	 * @throws FileNotFoundException
+	 *             if a file is named but is not there
+	 */
+	public static long[] fingerprint(String... fileNames)
+			throws FileNotFoundException {
+		long[] fingerprint = new long[fileNames.length * 2];
+		for (int i = 0; i < fileNames.length; ++i) {
+			if (fileNames[i] == null || fileNames[i].isEmpty()) {
+				fingerprint[i * 2] = -1;
+				fingerprint[i * 2 + 1] = -1;
+				continue;
+			}
+			File file = new File(fileNames[i]);
+			// A missing file must not fingerprint the same as no file
+			if (!file.isFile()) {
+				throw new FileNotFoundException(fileNames[i]);
+			}
+			fingerprint[i * 2] = file.length();
+			fingerprint[i * 2 + 1] = file.lastModified();
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * O(f) where f is the number of files
+	 *
+	 * @param fingerprint
+	 *            The current fingerprint of the source files
+	 * @return Whether the index was built from exactly these files
+	 */
+	public boolean isBuiltFrom(long[] fingerprint) {
+		return Arrays.equals(sources, fingerprint);
+	}
+
+	/**
+	 * Writes the snapshot to a file, replacing it if it exists.
+	 *
+	 * O(n + v) where n is the number of words in the document and v the size of
+	 * the vocabulary
+	 *
+	 * @param path
+	 *            The file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void save(Path path) throws IOException {
+		CRC32 checksum = new CRC32();
+		try (OutputStream file = Files.newOutputStream(path)) {
+			DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+					new BufferedOutputStream(file, BUFFER_SIZE), checksum));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(sources.length);
+			for (long value : sources) {
+				out.writeLong(value);
+			}
+			String[] stopWordList = stopWords == null ? new String[0]
+					: stopWords.toArray();
+			out.writeInt(stopWordList.length);
+			for (String stopWord : stopWordList) {
+				out.writeUTF(stopWord);
+			}
+			trie.write(out);
+			sections.write(out);
+			out.writeInt(lines);
+			// The checksum itself isn't checksummed
+			long value = checksum.getValue();
+			out.writeLong(value);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by save().
+	 *
+	 * O(n + v * l) where n is the number of words in the document, v the
+	 * size of the vocabulary and l the cost of inserting a word (see
+	 * CompressedTrie.read)
+	 *
+	 * @param path
+	 *            The file to read
+	 * @return The snapshot
+	 * @throws IOException
+	 *             if the file cannot be read, is of another version, or is
+	 *             corrupt
+	 */
+	public static Snapshot load(Path path) throws IOException {
+		CRC32 checksum = new CRC32();
+		try (InputStream file = Files.newInputStream(path)) {
+			DataInputStream in = new DataInputStream(new CheckedInputStream(
+					new BufferedInputStream(file, BUFFER_SIZE), checksum));
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not an index snapshot");
+			}
+			if (in.readInt() != VERSION) {
+				throw new IOException(path + " is from another version");
+			}
+			int sourceCount = in.readInt();
+			if (sourceCount < 0 || sourceCount > 64) {
+				throw new IOException(path + " is corrupt");
+			}
+			long[] sources = new long[sourceCount];
+			for (int i = 0; i < sourceCount; ++i) {
+				sources[i] = in.readLong();
+			}
+			int stopWordCount = in.readInt();
+			if (stopWordCount < 0) {
+				throw new IOException(path + " is corrupt");
+			}
+			String[] stopWordList = new String[stopWordCount];
+			for (int i = 0; i < stopWordCount; ++i) {
+				stopWordList[i] = in.readUTF();
+			}
+			StopWords stopWords = new StopWords(stopWordList);
+			CompressedTrie trie = CompressedTrie.read(in, stopWords);
+			Sections sections = Sections.read(in);
+			int lines = in.readInt();
+			if (lines < 0) {
+				throw new IOException(path + " is corrupt");
+			}
+			// Everything read so far must match the stored checksum
+			long expected = checksum.getValue();
+			if (in.readLong() != expected || in.read() != -1) {
+				throw new IOException(path + " is corrupt");
+			}
+			return new Snapshot(sources, trie, sections, stopWords, lines);
+		} catch (RuntimeException e) {
+			// e.g. a corrupt length leading to a huge or negative array
+			throw new IOException(path + " is corrupt", e);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package comp3506.assn2.utils;
+
+import java.util.Arrays;
+
+/**
+ * A fixed set of (lower case) stop words, such as "the", "and" and "of".
+ *
+ * The words are kept in an open-addressing hash table at most a quarter full,
+ * so a lookup is nearly always a single probe. Words can be looked up straight
+ * from a char buffer, so the tokenizer can check every word without first
+ * making a String of it.
+ */
+public class StopWords {
+	// The stop words, in the order given
+	private String[] words;
+	// Index into words + 1 of each hash slot (0 == empty)
+	private int[] slots;
+	// slots.length - 1 (slots.length is a power of 2)
+	private int mask;
+
+	/**
+	 * O(s) where s is the number of stop words
+	 *
+	 * @param stopWords
+	 *            The stop words. Case does not matter, and duplicates are
+	 *            dropped.
+	 */
+	public StopWords(String[] stopWords) {
+		int capacity = Integer.highestOneBit(Math.max(stopWords.length, 1) * 4)
+				* 2;
+		slots = new int[capacity];
+		mask = capacity - 1;
+		words = new String[stopWords.length];
+		int size = 0;
+		for (String stopWord : stopWords) {
+			String word = stopWord.toLowerCase();
+			if (word.isEmpty() || indexOf(word) >= 0) {
+				continue;
+			}
+			int slot = word.hashCode() & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			words[size] = word;
+			slots[slot] = ++size;
+		}
+		words = Arrays.copyOf(words, size);
+	}
+
+	/**
+	 * O(1) (expected)
+	 *
+	 * @param word
+	 *            A lower case word
+	 * @return The index of the word among the stop words, or -1 if it is not a
+	 *         stop word
+	 */
+	public int indexOf(String word) {
+		int slot = word.hashCode() & mask;
+		while (slots[slot] != 0) {
+			if (words[slots[slot] - 1].equals(word)) {
+				return slots[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * O(l) where l is the length of the word (expected)
+	 *
+	 * @param chars
+	 *            Holds a lower case word from index 0
+	 * @param length
+	 *            The length of the word
+	 * @return The index of the word among the stop words, or -1 if it is not a
+	 *         stop word
+	 */
+	public int indexOf(char[] chars, int length) {
+		// Same hash as String.hashCode
+		int hash = 0;
+		for (int i = 0; i < length; ++i) {
+			hash = 31 * hash + chars[i];
+		}
+		int slot = hash & mask;
+		while (slots[slot] != 0) {
+			String word = words[slots[slot] - 1];
+			if (word.length() == length && matches(word, chars)) {
+				return slots[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * O(l) where l is the length of the word
+	 *
+	 * @param word
+	 *            A word
+	 * @param chars
+	 *            At least as long as word
+	 * @return Whether chars starts with word
+	 */
+	private static boolean matches(String word, char[] chars) {
+		for (int i = 0; i < word.length(); ++i) {
+			if (word.charAt(i) != chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @return The number of stop words
+	 */
+	public int size() {
+		return words.length;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param index
+	 *            The index of a stop word
+	 * @return The stop word
+	 */
+	public String word(int index) {
+		return words[index];
+	}
+
+	/**
+	 * O(s) where s is the number of stop words
+	 *
+	 * @return The stop words
+	 */
+	public String[] toArray() {
+		return words.clone();
+	}
+}
@@ -0,0 +1,299 @@
+package comp3506.assn2.utils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Splits a document into words straight from its bytes.
+ *
+ * Bytes are decoded as UTF-8, a sequence at a time, and a word's column is its
+ * offset in UTF-16 chars within the line (+1), as it would be in the line read
+ * as a String: a curly quote or dash is one column, though it takes 3 bytes.
+ * A word is a run of letters, which may contain an apostrophe as long as a
+ * letter follows it. Every other character ends a word, as does the end of a
+ * line. (A character outside the BMP is two chars, neither of them a letter.)
+ * A byte that doesn't start a valid sequence is one column, and not a letter.
+ */
+public class Tokenizer {
+	// Character classes
+	private static final byte OTHER = 0;
+	private static final byte LETTER = 1;
+	private static final byte APOSTROPHE = 2;
+
+	// The class of every character up to U+00FF (every ASCII byte is one)
+	private static final byte[] CLASSES = new byte[256];
+	// The lower case version of every character up to U+00FF
+	private static final char[] LOWER = new char[256];
+	// Stands in for a byte that doesn't start a valid UTF-8 sequence
+	private static final int REPLACEMENT = 0xFFFD;
+
+	static {
+		for (int b = 0; b < 256; ++b) {
+			char c = (char) b;
+			if (c == '\'') {
+				CLASSES[b] = APOSTROPHE;
+			} else if (Character.isLetter(c)) {
+				CLASSES[b] = LETTER;
+			} else {
+				CLASSES[b] = OTHER;
+			}
+			LOWER[b] = Character.toLowerCase(c);
+		}
+	}
+
+	/**
+	 * Memory maps a whole file, read only.
+	 *
+	 * O(1) (pages are only read when touched)
+	 *
+	 * @param fileName
+	 *            The file to map
+	 * @return The file's contents
+	 * @throws FileNotFoundException
+	 *             if the file cannot be opened. The name of the file is the
+	 *             exception's message.
+	 */
+	public static MappedByteBuffer map(String fileName)
+			throws FileNotFoundException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+				StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} catch (IOException | RuntimeException e) {
+			FileNotFoundException notFound = new FileNotFoundException(
+					fileName);
+			notFound.initCause(e);
+			throw notFound;
+		}
+	}
+
+	/**
+	 * Adds every word between two byte offsets to a trie, in document order.
+	 * The range should start at the beginning of a line.
+	 *
+	 * O(b) where b is the number of bytes in the range (plus the cost of
+	 * CompressedTrie.add for each word)
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param from
+	 *            Offset of the first byte to read
+	 * @param to
+	 *            Offset after the last byte to read
+	 * @param firstLine
+	 *            The line number of the line at 'from'
+	 * @param trie
+	 *            The trie to add the words to
+	 * @return The line number of the line at 'to'
+	 */
+	public static int tokenize(ByteBuffer text, int from, int to,
+			int firstLine, CompressedTrie trie) {
+		// Holds the lower case letters of the current word
+		char[] word = new char[64];
+		int wordLength = 0;
+		int wordColumn = 0;
+
+		int line = firstLine;
+		// Chars (UTF-16) before the current one on its line
+		int column = 0;
+		// Checked for every word, before it is made into a String
+		StopWords stopWords = trie.getStopWords();
+
+		int i = from;
+		while (i < to) {
+			// Decode the character at i (ASCII, the bulk of any text, needs no
+			// decoding)
+			int b = text.get(i) & 0xFF;
+			int c = b;
+			int length = 1;
+			if (b >= 0x80) {
+				int decoded = decode(text, i, to);
+				c = decoded >>> 3;
+				length = decoded & 7;
+			}
+			byte type = classOf(c);
+
+			// An apostrophe is only part of a word with letters both sides
+			if (type == LETTER || (type == APOSTROPHE && wordLength > 0
+					&& i + length < to && classAt(text, i + length, to) == LETTER)) {
+				if (wordLength == 0) {
+					wordColumn = column + 1;
+				} else if (wordLength == word.length) {
+					word = Arrays.copyOf(word, wordLength * 2);
+				}
+				word[wordLength++] = c < 256 ? LOWER[c]
+						: Character.toLowerCase((char) c);
+			} else {
+				// Any other character ends the word (a stray apostrophe is
+				// just skipped: a line break or other character always
+				// follows it)
+				if (wordLength > 0 && type != APOSTROPHE) {
+					addWord(trie, stopWords, word, wordLength, line, wordColumn);
+					wordLength = 0;
+				}
+				if (c == '\n') {
+					++line;
+					column = 0;
+					++i;
+					continue;
+				}
+			}
+			column += Character.charCount(c);
+			i += length;
+		}
+		// Last line has no line break
+		if (wordLength > 0) {
+			addWord(trie, stopWords, word, wordLength, line, wordColumn);
+		}
+		return line;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param c
+	 *            A code point
+	 * @return Its class (OTHER, LETTER or APOSTROPHE). Outside the BMP that is
+	 *         OTHER, as neither of its chars is a letter.
+	 */
+	private static byte classOf(int c) {
+		if (c < 256) {
+			return CLASSES[c];
+		}
+		return c <= 0xFFFF && Character.isLetter((char) c) ? LETTER : OTHER;
+	}
+
+	/**
+	 * O(1)
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param i
+	 *            Offset of the first byte of a character
+	 * @param to
+	 *            Offset after the last byte that may be read
+	 * @return The class of the character at i
+	 */
+	private static byte classAt(ByteBuffer text, int i, int to) {
+		int b = text.get(i) & 0xFF;
+		return classOf(b < 0x80 ? b : decode(text, i, to) >>> 3);
+	}
+
+	/**
+	 * Decodes the UTF-8 sequence that starts with a non-ASCII byte.
+	 *
+	 * O(1)
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param i
+	 *            Offset of the sequence's first byte
+	 * @param to
+	 *            Offset after the last byte that may be read
+	 * @return The code point, shifted left 3, or'd with the length of the
+	 *         sequence in bytes. A byte that doesn't start a valid sequence is
+	 *         REPLACEMENT, 1 byte long.
+	 */
+	private static int decode(ByteBuffer text, int i, int to) {
+		int b = text.get(i) & 0xFF;
+		int length;
+		int c;
+		int min;
+		if (b >= 0xC2 && b <= 0xDF) {
+			length = 2;
+			c = b & 0x1F;
+			min = 0x80;
+		} else if (b >= 0xE0 && b <= 0xEF) {
+			length = 3;
+			c = b & 0x0F;
+			min = 0x800;
+		} else if (b >= 0xF0 && b <= 0xF4) {
+			length = 4;
+			c = b & 0x07;
+			min = 0x10000;
+		} else {
+			// A continuation byte, or one never used
+			return REPLACEMENT << 3 | 1;
+		}
+		if (i + length > to) {
+			return REPLACEMENT << 3 | 1;
+		}
+		for (int j = 1; j < length; ++j) {
+			int next = text.get(i + j) & 0xFF;
+			if ((next & 0xC0) != 0x80) {
+				return REPLACEMENT << 3 | 1;
+			}
+			c = c << 6 | (next & 0x3F);
+		}
+		// Overlong forms, surrogates and code points past U+10FFFF are
+		// invalid too
+		if (c < min || c > 0x10FFFF || (c >= 0xD800 && c <= 0xDFFF)) {
+			return REPLACEMENT << 3 | 1;
+		}
+		return c << 3 | length;
+	}
+
+	/**
+	 * Counts the lines of some text. A line break ends a line, and so does the
+	 * end of the text if there is anything after the last line break.
+	 *
+	 * O(n) where n is the length of the text
+	 *
+	 * @param text
+	 *            The document's bytes
+	 * @param from
+	 *            Offset of the first byte of the text
+	 * @param to
+	 *            Offset one past the last byte of the text
+	 * @return The number of lines
+	 */
+	public static int lineCount(ByteBuffer text, int from, int to) {
+		int lines = 0;
+		for (int i = from; i < to; ++i) {
+			if (text.get(i) == '\n') {
+				++lines;
+			}
+		}
+		// Last line has no line break
+		if (to > from && text.get(to - 1) != '\n') {
+			++lines;
+		}
+		return lines;
+	}
+
+	/**
+	 * Adds a word to a trie. Stop words, and words already in the trie, are
+	 * found straight from the buffer, so a String is only made for the first
+	 * occurrence of each word.
+	 *
+	 * O(l) where l is the length of the word (see CompressedTrie.add)
+	 *
+	 * @param trie
+	 *            The trie to add the word to
+	 * @param stopWords
+	 *            The trie's stop words, or null
+	 * @param word
+	 *            Holds the lower case word from index 0
+	 * @param length
+	 *            The length of the word
+	 * @param line
+	 *            The line on which the word is located
+	 * @param column
+	 *            The column at which the word begins
+	 */
+	private static void addWord(CompressedTrie trie, StopWords stopWords,
+			char[] word, int length, int line, int column) {
+		int stopWord = stopWords == null ? -1 : stopWords.indexOf(word, length);
+		if (stopWord >= 0) {
+			trie.addStopWord(stopWord, line, column);
+		} else {
+			trie.add(word, length, line, column);
+		}
+	}
+}
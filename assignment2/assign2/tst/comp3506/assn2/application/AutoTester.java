@@ -1,185 +1,682 @@
-package comp3506.assn2.application;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.List;
-import java.util.Scanner;
-
-import comp3506.assn2.utils.CompressedTrie;
-import comp3506.assn2.utils.Pair;
-
-/**
- * Hook class used by automated testing tool. The testing tool will instantiate
- * an object of this class to test the functionality of your assignment. You
- * must implement the constructor stub below and override the methods from the
- * Search interface so that they call the necessary code in your application.
- * 
- * @author
- */
-public class AutoTester implements Search {
-	// The data structure of choice
-	private CompressedTrie trie;
-
-	/**
-	 * Create an object that performs search operations on a document. If
-	 * indexFileName or stopWordsFileName are null or an empty string the
-	 * document should be loaded and all searches will be across the entire
-	 * document with no stop words. All files are expected to be in the files
-	 * sub-directory and file names are to include the relative path to the
-	 * files (e.g. "files\\shakespeare.txt").
-	 * 
-	 * @param documentFileName
-	 *            Name of the file containing the text of the document to be
-	 *            searched.
-	 * @param indexFileName
-	 *            Name of the file containing the index of sections in the
-	 *            document.
-	 * @param stopWordsFileName
-	 *            Name of the file containing the stop words ignored by most
-	 *            searches.
-	 * @throws FileNotFoundException
-	 *             if any of the files cannot be loaded. The name of the file(s)
-	 *             that could not be loaded should be passed to the
-	 *             FileNotFoundException's constructor.
-	 * @throws IllegalArgumentException
-	 *             if documentFileName is null or an empty string.
-	 */
-	public AutoTester(String documentFileName, String indexFileName,
-			String stopWordsFileName)
-			throws FileNotFoundException, IllegalArgumentException {
-
-		// Create Data Structure
-
-		trie = new CompressedTrie();
-
-		// Add text to data structure
-		File file = new File(documentFileName);
-
-		// We'll scan the document line by line
-		Scanner lineScanner = new Scanner(file);
-		lineScanner.useDelimiter(System.getProperty("line.separator"));
-		int lineCounter = 1;
-
-		String line = "";
-		int lineLength = line.length();
-		int lineIndex = 0;
-
-		// We'll scan the line char by char
-		int wordColumn = 0;
-		String word = "";
-		char nextChar = '0';
-
-		// Used to determine if a word has been completed and should be added to
-		// the Data Structure
-		boolean startOfWordToggle = true;
-
-		while (lineScanner.hasNext()) {
-			// Get the line and length of line
-			line = lineScanner.next();
-			lineLength = line.length();
-
-			// For every char in the line...
-			for (lineIndex = 0; lineIndex < line.length(); lineIndex++) {
-				// Get the char
-				nextChar = line.charAt(lineIndex);
-
-				// Word characters are either ' or [a-z]
-				if (nextChar == '\'' || Character.isLetter(nextChar)) {
-					// last char of the line is a ' so it's not part of the word
-					if (nextChar == '\'' && lineIndex == line.length() - 1) {
-						continue;
-					}
-					// char is a ' and we're either at the start of a word or
-					// the char after ' is not a letter (more punctuation, etc)
-					if (nextChar == '\'' && (word.length() < 1 || !(Character
-							.isLetter(line.charAt(lineIndex + 1))))) {
-						continue;
-					}
-					// Char is hereafter added to the word, so set column and
-					// toggle
-					if (startOfWordToggle) {
-						wordColumn = lineIndex;
-						startOfWordToggle = false;
-					}
-					// Add char to word
-					word += nextChar;
-				}
-
-				// Is the char whitespace, or not a ' or [a-z], or at the
-				// end of a line?
-				if (Character.isWhitespace(nextChar)
-						|| !(nextChar == '\'' || Character.isLetter(nextChar))
-						|| lineIndex + 1 == lineLength) {
-					// We're at the end of word
-					if (word.length() > 0) {
-						// Add to data structer (O(log n) see method javadoc)
-						trie.add(word, lineCounter, wordColumn + 1);
-						word = "";
-					}
-					// reset toggle
-					startOfWordToggle = true;
-				}
-				//Next char in line
-			}
-			//next line
-			++lineCounter;
-		}
-		// All added!
-		lineScanner.close();
-
-	}
-
-	// See javadoc of CDT
-	public int wordCount(String word) throws IllegalArgumentException {
-		if (word == "" || word == null)
-			throw new IllegalArgumentException();
-		return trie.count(word);
-	}
-	// See javadoc of CDT
-	public List<Pair<Integer, Integer>> phraseOccurrence(String phrase)
-			throws IllegalArgumentException {
-		if (phrase == "" || phrase == null)
-			throw new IllegalArgumentException();
-		// delimit the phrase using space
-		String[] splitPhrase = phrase.split(" ");
-
-		return trie.findPhrase(splitPhrase);
-	}
-	// See javadoc of CDT
-	public List<Pair<Integer, Integer>> prefixOccurrence(String prefix)
-			throws IllegalArgumentException {
-		if (prefix == "" || prefix == null)
-			throw new IllegalArgumentException();
-
-		return trie.findPrefix(prefix);
-	}
-	// See javadoc of CDT
-	public List<Integer> wordsOnLine(String[] words)
-			throws IllegalArgumentException {
-		if (words == null)
-			throw new IllegalArgumentException();
-		// Check validity of words in array
-		for (String word : words) {
-			if (word == null || word == "")
-				throw new IllegalArgumentException();
-		}
-
-		return trie.wordsOnLine(words);
-
-	}
-	// See javadoc of CDT
-	public List<Integer> someWordsOnLine(String[] words)
-			throws IllegalArgumentException {
-		if (words == null)
-			throw new IllegalArgumentException();
-		// Check validity of words in array
-		for (String word : words) {
-			if (word == null || word == "")
-				throw new IllegalArgumentException();
-		}
-
-		return trie.someWordsOnLine(words);
-
-	}
-
-}
+package comp3506.assn2.application;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import comp3506.assn2.utils.CompressedTrie;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.ParallelIndexer;
+import comp3506.assn2.utils.RankedSections;
+import comp3506.assn2.utils.Sections;
+import comp3506.assn2.utils.Snapshot;
+import comp3506.assn2.utils.StopWords;
+import comp3506.assn2.utils.Tokenizer;
+import comp3506.assn2.utils.Triple;
+
+/**
+ * Hook class used by automated testing tool. The testing tool will instantiate
+ * an object of this class to test the functionality of your assignment. You
+ * must implement the constructor stub below and override the methods from the
+ * Search interface so that they call the necessary code in your application.
+ * 
+ * @author
+ */
+public class AutoTester implements Search {
+	// The data structure of choice. The fields are final (but for ranked, see
+	// ranked()) and the index is frozen before the constructor returns, so an
+	// AutoTester can be shared by any number of threads, which search it
+	// without locking.
+	private final CompressedTrie trie;
+	// The sections of the document (empty if there is no index file)
+	private final Sections sections;
+	// The stop words
+	private final StopWords stopWords;
+	// Per-section term statistics, for ranked searches (null until the first
+	// one, see ranked())
+	private volatile RankedSections ranked;
+	// Fingerprint of the files the index was built from (see Snapshot)
+	private final long[] sources;
+	// Number of lines in the document (text appended starts on the next)
+	private final int lines;
+
+	/**
+	 * Create an object that performs search operations on a document. If
+	 * indexFileName or stopWordsFileName are null or an empty string the
+	 * document should be loaded and all searches will be across the entire
+	 * document with no stop words. All files are expected to be in the files
+	 * sub-directory and file names are to include the relative path to the
+	 * files (e.g. "files\\shakespeare.txt").
+	 * 
+	 * @param documentFileName
+	 *            Name of the file containing the text of the document to be
+	 *            searched.
+	 * @param indexFileName
+	 *            Name of the file containing the index of sections in the
+	 *            document.
+	 * @param stopWordsFileName
+	 *            Name of the file containing the stop words ignored by most
+	 *            searches.
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be loaded. The name of the file(s)
+	 *             that could not be loaded should be passed to the
+	 *             FileNotFoundException's constructor.
+	 * @throws IllegalArgumentException
+	 *             if documentFileName is null or an empty string.
+	 */
+	public AutoTester(String documentFileName, String indexFileName,
+			String stopWordsFileName)
+			throws FileNotFoundException, IllegalArgumentException {
+		this(documentFileName, indexFileName, stopWordsFileName, 1);
+	}
+
+	/**
+	 * Create an object that performs search operations on a document, building
+	 * its index on several threads (see ParallelIndexer). The index is the
+	 * same as the one built on a single thread.
+	 * 
+	 * @param documentFileName
+	 *            Name of the file containing the text of the document to be
+	 *            searched.
+	 * @param indexFileName
+	 *            Name of the file containing the index of sections in the
+	 *            document.
+	 * @param stopWordsFileName
+	 *            Name of the file containing the stop words ignored by most
+	 *            searches.
+	 * @param threads
+	 *            Number of threads to build the index with. 1 builds it on the
+	 *            calling thread.
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be loaded.
+	 * @throws IllegalArgumentException
+	 *             if documentFileName is null or an empty string, or threads is
+	 *             less than 1.
+	 */
+	public AutoTester(String documentFileName, String indexFileName,
+			String stopWordsFileName, int threads)
+			throws FileNotFoundException, IllegalArgumentException {
+
+		if (documentFileName == null || documentFileName.isEmpty()
+				|| threads < 1)
+			throw new IllegalArgumentException();
+
+		// Use the saved index instead, if it was built from these same files
+		sources = Snapshot.fingerprint(documentFileName, indexFileName,
+				stopWordsFileName);
+		Snapshot snapshot = loadSnapshot(snapshotPath(documentFileName),
+				sources);
+		if (snapshot != null) {
+			trie = snapshot.getTrie();
+			sections = snapshot.getSections();
+			stopWords = snapshot.getStopWords();
+			lines = snapshot.getLines();
+			return;
+		}
+
+		stopWords = IndexFiles.readStopWords(stopWordsFileName);
+
+		// Add text to data structure, reading it straight from the mapped
+		// file (O(n log n) see Tokenizer and CompressedTrie.add javadoc)
+		MappedByteBuffer text = Tokenizer.map(documentFileName);
+		if (threads == 1) {
+			// Create Data Structure
+			trie = new CompressedTrie(stopWords);
+			Tokenizer.tokenize(text, 0, text.limit(), 1, trie);
+		} else {
+			trie = ParallelIndexer.build(text, threads, stopWords);
+		}
+		lines = Tokenizer.lineCount(text, 0, text.limit());
+		// Nothing more is added: drop the linked nodes for the array form
+		trie.freeze();
+
+		sections = IndexFiles.readSections(indexFileName);
+	}
+
+	/**
+	 * @param snapshotPath
+	 *            Where the saved index would be
+	 * @param sources
+	 *            Fingerprint of the files the index should be built from
+	 * @return The saved index, or null if there is none, it can't be read, or
+	 *         it was built from other files
+	 */
+	private static Snapshot loadSnapshot(Path snapshotPath, long[] sources) {
+		if (Files.isRegularFile(snapshotPath)) {
+			try {
+				Snapshot snapshot = Snapshot.load(snapshotPath);
+				if (snapshot.isBuiltFrom(sources)) {
+					return snapshot;
+				}
+			} catch (IOException e) {
+				// Unusable snapshot: build the index from the files instead
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an object that performs search operations using a saved index.
+	 * 
+	 * @param snapshot
+	 *            The saved index
+	 */
+	private AutoTester(Snapshot snapshot) {
+		this(snapshot.getSources(), snapshot.getTrie(),
+				snapshot.getSections(), snapshot.getStopWords(),
+				snapshot.getLines());
+	}
+
+	/**
+	 * Creates an object that performs search operations using a built index.
+	 * 
+	 * @param sources
+	 *            Fingerprint of the files the index was built from
+	 * @param trie
+	 *            The document's words (frozen)
+	 * @param sections
+	 *            The sections of the document
+	 * @param stopWords
+	 *            The stop words
+	 * @param lines
+	 *            Number of lines in the document
+	 */
+	private AutoTester(long[] sources, CompressedTrie trie, Sections sections,
+			StopWords stopWords, int lines) {
+		this.sources = sources;
+		this.trie = trie;
+		this.sections = sections;
+		this.stopWords = stopWords;
+		this.lines = lines;
+	}
+
+	/**
+	 * The file a document's saved index is looked for in by the constructor.
+	 * 
+	 * @param documentFileName
+	 *            Name of the file containing the text of the document.
+	 * @return The document's name with ".snapshot" added.
+	 */
+	public static Path snapshotPath(String documentFileName) {
+		return Paths.get(documentFileName + ".snapshot");
+	}
+
+	/**
+	 * Saves the index (see Snapshot), so it can be loaded with load() or be
+	 * picked up by the constructor when saved to snapshotPath().
+	 * 
+	 * O(n) where n is the number of words in the document
+	 * 
+	 * @param path
+	 *            The file to save to
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void save(Path path) throws IOException {
+		new Snapshot(sources, trie, sections, stopWords, lines).save(path);
+	}
+
+	/**
+	 * Loads an index saved with save(), whatever files it was built from.
+	 * 
+	 * O(n) where n is the number of words in the document
+	 * 
+	 * @param path
+	 *            The file to load
+	 * @return An object that performs search operations using the index
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid snapshot
+	 */
+	public static AutoTester load(Path path) throws IOException {
+		return new AutoTester(Snapshot.load(path));
+	}
+
+	/**
+	 * Adds lines to the end of the document, as append(newLines, null) does:
+	 * the new lines belong to the last section.
+	 *
+	 * O(m) where m is the number of words in the new lines, plus the costs
+	 * described at CompressedTrie.appended
+	 *
+	 * @param newLines
+	 *            The lines to add, in order (without line breaks)
+	 * @return An object that performs search operations on the longer
+	 *         document
+	 * @throws IllegalArgumentException
+	 *             if newLines is null or any line is null or has a line
+	 *             break in it.
+	 */
+	public AutoTester append(String[] newLines)
+			throws IllegalArgumentException {
+		return append(newLines, null);
+	}
+
+	/**
+	 * Adds lines to the end of the document, and sections that start in them.
+	 * Only the new lines are read: the index is extended, not built again
+	 * (see CompressedTrie.appended), and the section table is copied with the
+	 * new sections added. Lines before the first new section belong to the
+	 * last section.
+	 *
+	 * This object is left as it is, so threads searching it can carry on
+	 * while the new lines are added. The new object is as safe to share.
+	 *
+	 * O(m + s) where m is the number of words in the new lines and s the
+	 * number of sections, plus the costs described at CompressedTrie.appended
+	 *
+	 * @param newLines
+	 *            The lines to add, in order (without line breaks)
+	 * @param newSections
+	 *            The index file entries of the sections that start in the new
+	 *            lines, e.g. "EPILOGUE,22933" (numbered as lines of the whole
+	 *            document), or null for none.
+	 * @return An object that performs search operations on the longer
+	 *         document
+	 * @throws IllegalArgumentException
+	 *             if newLines is null or any line is null or has a line
+	 *             break in it, or any of newSections is null, not an index
+	 *             file entry or starts outside the new lines.
+	 */
+	public AutoTester append(String[] newLines, String[] newSections)
+			throws IllegalArgumentException {
+		if (newLines == null)
+			throw new IllegalArgumentException();
+		StringBuilder text = new StringBuilder();
+		for (String line : newLines) {
+			if (line == null || line.indexOf('\n') >= 0)
+				throw new IllegalArgumentException();
+			text.append(line).append('\n');
+		}
+		Sections newTable = sections;
+		if (newSections != null && newSections.length > 0) {
+			// The old table may be in use, so the sections go in a copy
+			newTable = sections.copy();
+			for (String entry : newSections) {
+				if (entry == null)
+					throw new IllegalArgumentException();
+				int startLine = IndexFiles.addEntry(newTable, entry);
+				if (startLine <= lines || startLine > lines + newLines.length)
+					throw new IllegalArgumentException();
+			}
+		}
+		// The tokenizer reads UTF-8, as documents are stored
+		ByteBuffer bytes = ByteBuffer.wrap(
+				text.toString().getBytes(StandardCharsets.UTF_8));
+		CompressedTrie tail = new CompressedTrie(stopWords);
+		Tokenizer.tokenize(bytes, 0, bytes.limit(), 1, tail);
+
+		// The document (and index, if sections were added) no longer match
+		// their files
+		long[] newSources = sources.clone();
+		int changed = newTable == sections ? 2 : 4;
+		for (int i = 0; i < changed && i < newSources.length; ++i) {
+			newSources[i] = Long.MIN_VALUE;
+		}
+		return new AutoTester(newSources, trie.appended(tail, lines),
+				newTable, stopWords, lines + newLines.length);
+	}
+
+	/**
+	 * Adds the text a document file has gained since it was indexed. Only the
+	 * new text is read: the index is extended, not built again (see
+	 * CompressedTrie.appended). The section table is read again if an index
+	 * file is given (so sections can be added for the new text); otherwise
+	 * the new text belongs to the last section.
+	 *
+	 * This object is left as it is, so threads searching it can carry on
+	 * while the new text is added. The new object is as safe to share.
+	 *
+	 * O(b + m) where b is the number of new bytes and m the number of words
+	 * in them, plus the costs described at CompressedTrie.appended (plus the
+	 * size of the index file if one is given)
+	 *
+	 * @param documentFileName
+	 *            Name of the file containing the text of the document.
+	 * @param fromOffset
+	 *            Byte offset in the file of the first new line (the length of
+	 *            the file when it was indexed, which must have ended in a
+	 *            line break)
+	 * @param indexFileName
+	 *            Name of the file containing the index of sections in the
+	 *            whole document, or null or an empty string to keep the
+	 *            sections as they are.
+	 * @return An object that performs search operations on the longer
+	 *         document
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be loaded.
+	 * @throws IllegalArgumentException
+	 *             if documentFileName is null or an empty string, or
+	 *             fromOffset is not the start of a line in the file.
+	 */
+	public AutoTester appendFrom(String documentFileName, long fromOffset,
+			String indexFileName)
+			throws FileNotFoundException, IllegalArgumentException {
+		if (documentFileName == null || documentFileName.isEmpty())
+			throw new IllegalArgumentException();
+		// Only the pages holding the new text are read
+		MappedByteBuffer text = Tokenizer.map(documentFileName);
+		if (fromOffset < 0 || fromOffset > text.limit() || (fromOffset > 0
+				&& text.get((int) fromOffset - 1) != '\n'))
+			throw new IllegalArgumentException();
+		int from = (int) fromOffset;
+		CompressedTrie tail = new CompressedTrie(stopWords);
+		Tokenizer.tokenize(text, from, text.limit(), 1, tail);
+
+		long[] newSources = sources.clone();
+		Sections newSections = sections;
+		if (indexFileName != null && !indexFileName.isEmpty()) {
+			newSections = IndexFiles.readSections(indexFileName);
+			if (newSources.length >= 4) {
+				System.arraycopy(Snapshot.fingerprint(indexFileName), 0,
+						newSources, 2, 2);
+			}
+		}
+		if (newSources.length >= 2) {
+			System.arraycopy(Snapshot.fingerprint(documentFileName), 0,
+					newSources, 0, 2);
+		}
+		return new AutoTester(newSources, trie.appended(tail, lines),
+				newSections, stopWords,
+				lines + Tokenizer.lineCount(text, from, text.limit()));
+	}
+
+	// See javadoc of CDT
+	public int wordCount(String word) throws IllegalArgumentException {
+		if (word == "" || word == null)
+			throw new IllegalArgumentException();
+		return trie.count(word);
+	}
+	// See javadoc of CDT
+	public List<Pair<Integer, Integer>> phraseOccurrence(String phrase)
+			throws IllegalArgumentException {
+		if (phrase == "" || phrase == null)
+			throw new IllegalArgumentException();
+		// delimit the phrase using space
+		String[] splitPhrase = phrase.split(" ");
+
+		return trie.findPhrase(splitPhrase);
+	}
+	// See javadoc of CDT
+	public List<Pair<Integer, Integer>> prefixOccurrence(String prefix)
+			throws IllegalArgumentException {
+		if (prefix == "" || prefix == null)
+			throw new IllegalArgumentException();
+
+		return trie.findPrefix(prefix);
+	}
+	// See javadoc of CDT
+	public List<Integer> wordsOnLine(String[] words)
+			throws IllegalArgumentException {
+		if (words == null)
+			throw new IllegalArgumentException();
+		// Check validity of words in array
+		for (String word : words) {
+			if (word == null || word == "")
+				throw new IllegalArgumentException();
+		}
+
+		return trie.wordsOnLine(words);
+
+	}
+	// See javadoc of CDT
+	public List<Integer> someWordsOnLine(String[] words)
+			throws IllegalArgumentException {
+		if (words == null)
+			throw new IllegalArgumentException();
+		// Check validity of words in array
+		for (String word : words) {
+			if (word == null || word == "")
+				throw new IllegalArgumentException();
+		}
+
+		return trie.someWordsOnLine(words);
+
+	}
+	// See javadoc of CDT
+	public List<Integer> wordsNotOnLine(String[] wordsRequired,
+			String[] wordsExcluded) throws IllegalArgumentException {
+		Arguments.checkWords(wordsRequired);
+		Arguments.checkWords(wordsExcluded);
+
+		return trie.wordsNotOnLine(wordsRequired, wordsExcluded);
+	}
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> simpleAndSearch(
+			String[] titles, String[] words) throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		Arguments.checkStrings(titles);
+
+		return trie.sectionSearch(sections.intervals(titles), words, null,
+				null);
+	}
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> simpleOrSearch(
+			String[] titles, String[] words) throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		Arguments.checkStrings(titles);
+
+		return trie.sectionSearch(sections.intervals(titles), new String[0],
+				words, null);
+	}
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> simpleNotSearch(
+			String[] titles, String[] wordsRequired, String[] wordsExcluded)
+			throws IllegalArgumentException {
+		Arguments.checkWords(wordsRequired);
+		Arguments.checkStrings(titles);
+		if (wordsExcluded != null) {
+			Arguments.checkStrings(wordsExcluded);
+		}
+
+		return trie.sectionSearch(sections.intervals(titles), wordsRequired,
+				null, wordsExcluded);
+	}
+	// See javadoc of CDT
+	public List<Triple<Integer, Integer, String>> compoundAndOrSearch(
+			String[] titles, String[] wordsRequired, String[] orWords)
+			throws IllegalArgumentException {
+		Arguments.checkWords(wordsRequired);
+		Arguments.checkStrings(titles);
+		if (orWords != null) {
+			Arguments.checkStrings(orWords);
+		}
+
+		return trie.sectionSearch(sections.intervals(titles), wordsRequired,
+				orWords, null);
+	}
+
+	/**
+	 * Ranks sections by how relevant they are to some words (Okapi BM25, see
+	 * RankedSections), instead of listing every occurrence as the other
+	 * section searches do.
+	 * 
+	 * @param titles
+	 *            Titles of the sections to rank. Every section is ranked if
+	 *            titles is null or an empty array.
+	 * @param words
+	 *            The words to rank sections by.
+	 * @param k
+	 *            The most sections to return.
+	 * @return Title and score of the k best sections, best first. Sections
+	 *         none of the words are in are left out.
+	 * @throws IllegalArgumentException
+	 *             if words is null or an empty array, any of the Strings in
+	 *             words or titles are null or empty, or k is less than 1.
+	 */
+	public List<Pair<String, Double>> rankedSectionSearch(String[] titles,
+			String[] words, int k) throws IllegalArgumentException {
+		Arguments.checkWords(words);
+		Arguments.checkStrings(titles);
+		if (k < 1)
+			throw new IllegalArgumentException();
+
+		return ranked().search(trie.termIds(words, null), titles, k);
+	}
+
+	/**
+	 * The per-section term statistics of the ranked searches, made by the
+	 * first one, so that building or loading an index (or appending to one)
+	 * doesn't pay for them unless sections are ranked.
+	 * 
+	 * RankedSections is immutable (all its fields are final) and the field is
+	 * volatile and only ever set once, under the lock, so any thread that
+	 * sees it sees all of it.
+	 * 
+	 * O(n log s + t) the first time (see RankedSections), O(1) afterwards
+	 * 
+	 * @return The statistics of this document's sections
+	 */
+	private RankedSections ranked() {
+		RankedSections result = ranked;
+		if (result == null) {
+			synchronized (this) {
+				result = ranked;
+				if (result == null) {
+					result = new RankedSections(trie.getPostings(), sections);
+					ranked = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The same occurrences as phraseOccurrence, found lazily as the stream is
+	 * consumed (see CompressedTrie.phraseSpliterator): limit, findFirst and
+	 * anyMatch stop the search as soon as they have their answer.
+	 * 
+	 * @param phrase
+	 *            The phrase to be found in the document.
+	 * @return The line and column of each occurrence, in document order.
+	 * @throws IllegalArgumentException
+	 *             if phrase is null or an empty String.
+	 */
+	public Stream<Pair<Integer, Integer>> phraseStream(String phrase)
+			throws IllegalArgumentException {
+		if (phrase == null || phrase.isEmpty())
+			throw new IllegalArgumentException();
+		return StreamSupport.stream(
+				trie.phraseSpliterator(phrase.split(" ")), false);
+	}
+
+	/**
+	 * The same occurrences as prefixOccurrence, read lazily from the index as
+	 * the stream is consumed (see CompressedTrie.prefixSpliterator).
+	 * 
+	 * @param prefix
+	 *            The prefix of a word that is to be found in the document.
+	 * @return The line and column of each occurrence.
+	 * @throws IllegalArgumentException
+	 *             if prefix is null or an empty String.
+	 */
+	public Stream<Pair<Integer, Integer>> prefixStream(String prefix)
+			throws IllegalArgumentException {
+		if (prefix == null || prefix.isEmpty())
+			throw new IllegalArgumentException();
+		return StreamSupport.stream(trie.prefixSpliterator(prefix), false);
+	}
+
+	/**
+	 * The same lines as wordsOnLine, found lazily as the stream is consumed
+	 * (see CompressedTrie.wordsOnLineSpliterator): limit, findFirst and
+	 * anyMatch stop the search as soon as they have their answer.
+	 * 
+	 * @param words
+	 *            Array of words to find on a single line in the document.
+	 * @return The line numbers, in ascending order.
+	 * @throws IllegalArgumentException
+	 *             if words is null or any of the Strings in it are null or
+	 *             empty.
+	 */
+	public IntStream wordsOnLineStream(String[] words)
+			throws IllegalArgumentException {
+		checkBatch(words);
+		return StreamSupport.intStream(trie.wordsOnLineSpliterator(words),
+				false);
+	}
+
+	/**
+	 * Counts many words at once: the same as calling wordCount on each, but
+	 * the words are looked up together (see CompressedTrie.counts).
+	 * 
+	 * @param words
+	 *            The words to be counted in the document.
+	 * @return The number of occurrences of each word, at its index in words.
+	 * @throws IllegalArgumentException
+	 *             if words is null or any of the Strings in it are null or
+	 *             empty.
+	 */
+	public int[] wordCounts(String[] words) throws IllegalArgumentException {
+		checkBatch(words);
+		return trie.counts(words, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Finds many prefixes at once: the same as calling prefixOccurrence on
+	 * each, but the prefixes are looked up together (see
+	 * CompressedTrie.findPrefixes).
+	 * 
+	 * @param prefixes
+	 *            The prefixes of words to be found in the document.
+	 * @return The occurrences of each prefix, at its index in prefixes.
+	 * @throws IllegalArgumentException
+	 *             if prefixes is null or any of the Strings in it are null or
+	 *             empty.
+	 */
+	public List<List<Pair<Integer, Integer>>> prefixOccurrences(
+			String[] prefixes) throws IllegalArgumentException {
+		checkBatch(prefixes);
+		return Arrays.<List<Pair<Integer, Integer>>> asList(
+				trie.findPrefixes(prefixes, ForkJoinPool.commonPool()));
+	}
+
+	/**
+	 * Finds many phrases at once: the same as calling phraseOccurrence on
+	 * each, but the words of all the phrases are looked up together and the
+	 * phrases are matched in parallel (see CompressedTrie.findPhrases).
+	 * 
+	 * @param phrases
+	 *            The phrases to be found in the document.
+	 * @return The occurrences of each phrase, at its index in phrases.
+	 * @throws IllegalArgumentException
+	 *             if phrases is null or any of the Strings in it are null or
+	 *             empty.
+	 */
+	public List<List<Pair<Integer, Integer>>> phraseOccurrences(
+			String[] phrases) throws IllegalArgumentException {
+		checkBatch(phrases);
+		// delimit each phrase using space
+		String[][] splitPhrases = new String[phrases.length][];
+		for (int i = 0; i < phrases.length; ++i) {
+			splitPhrases[i] = phrases[i].split(" ");
+		}
+		return Arrays.<List<Pair<Integer, Integer>>> asList(
+				trie.findPhrases(splitPhrases, ForkJoinPool.commonPool()));
+	}
+
+	/**
+	 * @param strings
+	 *            The arguments of a batch query
+	 * @throws IllegalArgumentException
+	 *             if strings is null or any of the Strings in it are null or
+	 *             empty (an empty batch is fine).
+	 */
+	private static void checkBatch(String[] strings)
+			throws IllegalArgumentException {
+		if (strings == null)
+			throw new IllegalArgumentException();
+		Arguments.checkStrings(strings);
+	}
+
+}
@@ -0,0 +1,257 @@
+package comp3506.assn2.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.utils.CompressedTrie;
+import comp3506.assn2.utils.StopWords;
+import comp3506.assn2.utils.Tokenizer;
+
+/**
+ * Measures how building the index scales with the size of the document.
+ *
+ * For each scale, a document made of that many copies of the given document
+ * (one after another) is written to a temporary file and indexed twice: once
+ * by the AutoTester constructor, and once by adding every word straight to a
+ * CompressedTrie (the tokenizer and CompressedTrie.add alone). Each row of the
+ * CSV output has the document size, the number of tokens, both wall times,
+ * the peak heap during the constructor, the heap still used by the index
+ * after a full GC, and the bytes allocated per token.
+ *
+ * Usage: BuildBenchmark [-scales 1,4,16,64] [-threads n] [-csv file]
+ * [document index stopWords]
+ *
+ * A scale the heap can't hold is reported as OutOfMemoryError, and larger
+ * scales are skipped: that row is where a single JVM (with the -Xmx given) has
+ * to give way to sharding.
+ */
+public class BuildBenchmark {
+	private static final String HEADER = "scale,bytes,tokens,build_ms,add_ms,"
+			+ "peak_heap_mb,retained_heap_mb,allocated_bytes_per_token";
+	private static final double MB = 1024 * 1024;
+
+	// Keeps the built index alive while its retained size is measured
+	private static volatile Object retained;
+
+	public static void main(String[] args) throws IOException {
+		int[] scales = { 1, 4, 16, 64 };
+		int threads = 1;
+		String csv = null;
+		String document = "files/shakespeare.txt";
+		String index = "files/shakespeare-index.txt";
+		String stopWords = "files/stop-words.txt";
+		int files = 0;
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-scales")) {
+				String[] values = args[++i].split(",");
+				scales = new int[values.length];
+				for (int j = 0; j < values.length; ++j) {
+					scales[j] = Integer.parseInt(values[j].trim());
+				}
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-csv")) {
+				csv = args[++i];
+			} else if (files == 0) {
+				document = args[i];
+				++files;
+			} else if (files == 1) {
+				index = args[i];
+				++files;
+			} else {
+				stopWords = args[i];
+				++files;
+			}
+		}
+
+		PrintWriter out = csv == null ? null : new PrintWriter(csv, "UTF-8");
+		System.out.println(HEADER);
+		if (out != null) {
+			out.println(HEADER);
+		}
+		for (int scale : scales) {
+			String row;
+			boolean outOfMemory = false;
+			Path copies = Files.createTempFile("build-benchmark", ".txt");
+			try {
+				replicate(Paths.get(document), copies, scale);
+				row = measure(scale, copies.toString(), index, stopWords,
+						threads);
+			} catch (OutOfMemoryError e) {
+				retained = null;
+				row = scale + "," + Files.size(copies)
+						+ ",OutOfMemoryError,,,,,";
+				outOfMemory = true;
+			} finally {
+				Files.deleteIfExists(copies);
+			}
+			System.out.println(row);
+			if (out != null) {
+				out.println(row);
+				out.flush();
+			}
+			if (outOfMemory) {
+				break;
+			}
+		}
+		if (out != null) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes a number of copies of a file, one after another.
+	 *
+	 * @param from
+	 *            The file to copy
+	 * @param to
+	 *            The file to write
+	 * @param copies
+	 *            The number of copies
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 */
+	private static void replicate(Path from, Path to, int copies)
+			throws IOException {
+		try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(to,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			for (int i = 0; i < copies; ++i) {
+				long copied = 0;
+				while (copied < size) {
+					copied += in.transferTo(copied, size - copied, out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builds the index of a document both ways and measures it.
+	 *
+	 * @return The CSV row
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	private static String measure(int scale, String document, String index,
+			String stopWordsFile, int threads) throws IOException {
+		// The tokenizer and CompressedTrie.add on their own
+		settle();
+		MappedByteBuffer text = Tokenizer.map(document);
+		long start = System.nanoTime();
+		CompressedTrie trie = new CompressedTrie(
+				new StopWords(readStopWords(stopWordsFile)));
+		Tokenizer.tokenize(text, 0, text.limit(), 1, trie);
+		long addNanos = System.nanoTime() - start;
+		int tokens = trie.getPostings().size();
+		trie = null;
+		text = null;
+
+		// The whole constructor
+		long before = settle();
+		resetPeaks();
+		long allocated = allocatedBytes();
+		start = System.nanoTime();
+		Search search = new AutoTester(document, index, stopWordsFile,
+				threads);
+		long buildNanos = System.nanoTime() - start;
+		// Allocations on other threads aren't seen
+		allocated = threads == 1 && allocated >= 0
+				? allocatedBytes() - allocated : -1;
+		long peak = peakHeap();
+		retained = search;
+		long after = settle();
+		retained = null;
+
+		return String.format(Locale.ROOT, "%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f",
+				scale, new File(document).length(), tokens, buildNanos / 1e6,
+				addNanos / 1e6, peak / MB, (after - before) / MB,
+				allocated < 0 ? Double.NaN : (double) allocated / tokens);
+	}
+
+	/**
+	 * @return The stop words in a file (one per line), none if there is no
+	 *         file
+	 */
+	private static String[] readStopWords(String fileName) throws IOException {
+		if (fileName == null || fileName.isEmpty()) {
+			return new String[0];
+		}
+		return Files.readAllLines(Paths.get(fileName)).stream()
+				.map(String::trim).filter(word -> !word.isEmpty())
+				.toArray(String[]::new);
+	}
+
+	/**
+	 * Collects garbage until the heap stops shrinking.
+	 *
+	 * @return The heap in use afterwards, in bytes
+	 */
+	private static long settle() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 10; ++i) {
+			System.gc();
+			long now = runtime.totalMemory() - runtime.freeMemory();
+			if (now >= used) {
+				return now;
+			}
+			used = now;
+		}
+		return used;
+	}
+
+	private static void resetPeaks() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * @return The sum of the heap pools' peak usage since resetPeaks (an upper
+	 *         bound on the peak heap, as pools peak at different times)
+	 */
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * @return Bytes allocated by this thread so far, or -1 if the JVM can't
+	 *         tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory
+				.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (sunThreads.isThreadAllocatedMemorySupported()
+					&& sunThreads.isThreadAllocatedMemoryEnabled()) {
+				return sunThreads.getThreadAllocatedBytes(
+						Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,556 @@
+package comp3506.assn2.benchmark;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.application.ShardedSearch;
+import comp3506.assn2.utils.CompressedTrie;
+import comp3506.assn2.utils.Postings;
+import comp3506.assn2.utils.Tokenizer;
+
+/**
+ * Measures every Search operation on one or more documents, so a change can
+ * be compared against a baseline run.
+ *
+ * Each benchmark is one operation with one kind of input: words from a
+ * frequency class (rare, mid or stop words), phrases of a given length taken
+ * from the text, or prefixes of a given length. It is run repeatedly for a
+ * warm-up period, then measured for a fixed period, cycling through a set of
+ * inputs chosen with a fixed seed. For each benchmark it reports throughput
+ * (ops/s), average time (us/op) and the bytes allocated per operation and per
+ * second (as measured by the JVM for the running thread). The batch
+ * operations of AutoTester are measured too, one batch of all the inputs per
+ * operation.
+ *
+ * With -shards, the Search operations are measured on a ShardedSearch of that
+ * many shards instead (its corpus name ends in "/" and the number of shards,
+ * so it is compared with a baseline of the same shards). The batches are
+ * skipped, and allocation is only counted on the calling thread, so work
+ * done on the pool's threads is missed.
+ *
+ * Usage: SearchBenchmark [-warmup ms] [-time ms] [-shards n] [-csv file]
+ * [-baseline file] [document index stopWords]...
+ *
+ * With no documents given, the provided Shakespeare and Bible corpora in the
+ * files directory are used (the Bible only if files/bible.txt is present).
+ * -csv writes the results as CSV, and -baseline compares the average times
+ * with a CSV written by an earlier run.
+ */
+public class SearchBenchmark {
+	// Inputs each benchmark cycles through
+	static final int INPUTS = 64;
+	// Operations run between checks of the clock
+	private static final int BATCH = 16;
+	// Seed for choosing inputs, so every run measures the same inputs
+	private static final long SEED = 3506;
+
+	// Frequency classes of words
+	static final String RARE = "rare";
+	static final String MID = "mid";
+	static final String STOP = "stop";
+
+	// Words occurring this often are rare
+	private static final int RARE_MIN = 2;
+	private static final int RARE_MAX = 5;
+	// Words occurring this often are of middling frequency
+	private static final int MID_MIN = 100;
+	private static final int MID_MAX = 1000;
+
+	// Phrase and prefix lengths measured
+	private static final int[] PHRASE_LENGTHS = { 2, 3, 5 };
+	private static final int[] PREFIX_LENGTHS = { 1, 2, 4 };
+
+	// Keeps results alive, so operations can't be optimised away
+	private static volatile long sink;
+
+	private long warmupNanos = 1000 * 1000000L;
+	private long timeNanos = 3000 * 1000000L;
+	// Shards to split each document into (0 to measure AutoTester)
+	private int shards = 0;
+	private final List<Result> results = new ArrayList<Result>();
+
+	public static void main(String[] args) throws IOException {
+		SearchBenchmark benchmark = new SearchBenchmark();
+		String csv = null;
+		String baseline = null;
+		List<String> documents = new ArrayList<String>();
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-warmup")) {
+				benchmark.warmupNanos = Long.parseLong(args[++i]) * 1000000L;
+			} else if (args[i].equals("-time")) {
+				benchmark.timeNanos = Long.parseLong(args[++i]) * 1000000L;
+			} else if (args[i].equals("-shards")) {
+				benchmark.shards = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-csv")) {
+				csv = args[++i];
+			} else if (args[i].equals("-baseline")) {
+				baseline = args[++i];
+			} else {
+				documents.add(args[i]);
+			}
+		}
+		if (documents.isEmpty()) {
+			documents.addAll(Arrays.asList("files/shakespeare.txt",
+					"files/shakespeare-index.txt", "files/stop-words.txt"));
+			if (new File("files/bible.txt").isFile()) {
+				documents.addAll(Arrays.asList("files/bible.txt",
+						"files/bible-index.txt", "files/stop-words.txt"));
+			}
+		}
+		if (documents.size() % 3 != 0) {
+			System.err.println("Usage: SearchBenchmark [-warmup ms] [-time ms]"
+					+ " [-shards n] [-csv file] [-baseline file]"
+					+ " [document index stopWords]...");
+			System.exit(2);
+		}
+
+		System.out.println(Result.HEADER);
+		for (int i = 0; i < documents.size(); i += 3) {
+			benchmark.run(documents.get(i), documents.get(i + 1),
+					documents.get(i + 2));
+		}
+		if (baseline != null) {
+			benchmark.compare(baseline);
+		}
+		if (csv != null) {
+			benchmark.writeCsv(csv);
+		}
+	}
+
+	/**
+	 * Runs every benchmark on a document.
+	 *
+	 * @param document
+	 *            The document's file
+	 * @param index
+	 *            The document's section index file
+	 * @param stopWords
+	 *            The stop words file
+	 * @throws FileNotFoundException
+	 *             if any of the files cannot be read
+	 */
+	private void run(String document, String index, String stopWords)
+			throws FileNotFoundException {
+		String corpus = new File(document).getName();
+		final AutoTester tester = shards > 0 ? null
+				: new AutoTester(document, index, stopWords);
+		final Search search = tester != null ? tester
+				: new ShardedSearch(document, index, stopWords, shards);
+		if (tester == null) {
+			corpus += "/" + shards;
+		}
+		Inputs inputs = new Inputs(document, index, stopWords);
+
+		for (String frequency : new String[] { RARE, MID, STOP }) {
+			final String[] words = inputs.words(frequency);
+			final String[] mid = inputs.words(MID);
+			final String[][] pairs = inputs.pairs(frequency);
+			final String[][] titles = inputs.titles();
+
+			measure(corpus, "wordCount", frequency,
+					i -> search.wordCount(words[i]));
+			measure(corpus, "wordsOnLine", frequency,
+					i -> search.wordsOnLine(pairs[i]).size());
+			measure(corpus, "someWordsOnLine", frequency,
+					i -> search.someWordsOnLine(pairs[i]).size());
+			measure(corpus, "wordsNotOnLine", frequency,
+					i -> search.wordsNotOnLine(new String[] { words[i] },
+							new String[] { mid[i] }).size());
+			measure(corpus, "simpleAndSearch", frequency,
+					i -> search.simpleAndSearch(titles[i], pairs[i]).size());
+			measure(corpus, "simpleOrSearch", frequency,
+					i -> search.simpleOrSearch(titles[i], pairs[i]).size());
+			measure(corpus, "simpleNotSearch", frequency,
+					i -> search.simpleNotSearch(titles[i],
+							new String[] { words[i] },
+							new String[] { mid[i] }).size());
+			measure(corpus, "compoundAndOrSearch", frequency,
+					i -> search.compoundAndOrSearch(titles[i],
+							new String[] { mid[i] }, pairs[i]).size());
+		}
+		for (int length : PHRASE_LENGTHS) {
+			final String[] phrases = inputs.phrases(length);
+			measure(corpus, "phraseOccurrence", "length=" + length,
+					i -> search.phraseOccurrence(phrases[i]).size());
+		}
+		for (int length : PREFIX_LENGTHS) {
+			final String[] prefixes = inputs.prefixes(length);
+			measure(corpus, "prefixOccurrence", "length=" + length,
+					i -> search.prefixOccurrence(prefixes[i]).size());
+		}
+
+		// Batches: each operation looks up all INPUTS queries at once
+		if (tester == null) {
+			// Only AutoTester has them
+			return;
+		}
+		final String[] words = inputs.words(MID);
+		final String[] phrases = inputs.phrases(PHRASE_LENGTHS[0]);
+		final String[] prefixes = inputs.prefixes(PREFIX_LENGTHS[1]);
+		measure(corpus, "wordCounts", "batch=" + INPUTS,
+				i -> tester.wordCounts(words)[i]);
+		measure(corpus, "phraseOccurrences", "batch=" + INPUTS,
+				i -> tester.phraseOccurrences(phrases).get(i).size());
+		measure(corpus, "prefixOccurrences", "batch=" + INPUTS,
+				i -> tester.prefixOccurrences(prefixes).get(i).size());
+	}
+
+	/**
+	 * Warms an operation up, then measures it and prints the result.
+	 *
+	 * @param corpus
+	 *            Name of the document
+	 * @param operation
+	 *            Name of the operation
+	 * @param parameter
+	 *            The kind of input
+	 * @param body
+	 *            Runs the operation on input i (0 to INPUTS - 1)
+	 */
+	private void measure(String corpus, String operation, String parameter,
+			Operation body) {
+		// Warm up (lets the JIT compile the operation)
+		long start = System.nanoTime();
+		int input = 0;
+		while (System.nanoTime() - start < warmupNanos) {
+			input = batch(body, input);
+		}
+
+		long operations = 0;
+		long allocated = allocatedBytes();
+		start = System.nanoTime();
+		long elapsed;
+		do {
+			input = batch(body, input);
+			operations += BATCH;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < timeNanos);
+		allocated = allocatedBytes() - allocated;
+
+		Result result = new Result(corpus, operation, parameter, operations,
+				elapsed, allocated);
+		results.add(result);
+		System.out.println(result);
+	}
+
+	/**
+	 * @return The next input to use
+	 */
+	private static int batch(Operation body, int input) {
+		long total = 0;
+		for (int i = 0; i < BATCH; ++i) {
+			total += body.run(input);
+			input = (input + 1) % INPUTS;
+		}
+		sink += total;
+		return input;
+	}
+
+	/**
+	 * @return Bytes allocated by this thread so far, or -1 if the JVM can't
+	 *         tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory
+				.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (sunThreads.isThreadAllocatedMemorySupported()
+					&& sunThreads.isThreadAllocatedMemoryEnabled()) {
+				return sunThreads.getThreadAllocatedBytes(
+						Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Prints how each average time compares with an earlier run's.
+	 *
+	 * @param baseline
+	 *            CSV file written by an earlier run
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private void compare(String baseline) throws IOException {
+		Map<String, Double> before = new HashMap<String, Double>();
+		List<String> lines = Files.readAllLines(Paths.get(baseline),
+				StandardCharsets.UTF_8);
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split(",");
+			before.put(fields[0] + "," + fields[1] + "," + fields[2],
+					Double.parseDouble(fields[4]));
+		}
+		System.out.println();
+		System.out.println("Compared with " + baseline
+				+ " (average time, lower is better)");
+		for (Result result : results) {
+			Double old = before.get(result.key());
+			if (old != null) {
+				System.out.println(String.format(Locale.ROOT,
+						"%-18s %-20s %-10s %12.3f -> %12.3f us/op (x%.2f)",
+						result.corpus, result.operation, result.parameter, old,
+						result.microsPerOp(), old / result.microsPerOp()));
+			}
+		}
+	}
+
+	/**
+	 * @param file
+	 *            The file to write the results to
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private void writeCsv(String file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("corpus,operation,parameter,ops/s,us/op,B/op,MB/s");
+			for (Result result : results) {
+				out.println(result.toCsv());
+			}
+		}
+	}
+
+	// ##############################################################
+
+	/**
+	 * One operation, given the index of its input.
+	 */
+	private interface Operation {
+		/**
+		 * @param input
+		 *            Which input to use (0 to INPUTS - 1)
+		 * @return Anything that depends on the result (e.g. its size)
+		 */
+		long run(int input);
+	}
+
+	/**
+	 * The measurements of one benchmark.
+	 */
+	private static class Result {
+		private static final String HEADER = String.format(Locale.ROOT,
+				"%-18s %-20s %-10s %12s %12s %12s %10s", "corpus",
+				"operation", "parameter", "ops/s", "us/op", "B/op", "MB/s");
+
+		private final String corpus;
+		private final String operation;
+		private final String parameter;
+		private final long operations;
+		private final long nanos;
+		// -1 if unknown
+		private final long allocated;
+
+		private Result(String corpus, String operation, String parameter,
+				long operations, long nanos, long allocated) {
+			this.corpus = corpus;
+			this.operation = operation;
+			this.parameter = parameter;
+			this.operations = operations;
+			this.nanos = nanos;
+			this.allocated = allocated;
+		}
+
+		private String key() {
+			return corpus + "," + operation + "," + parameter;
+		}
+
+		private double opsPerSecond() {
+			return operations * 1e9 / nanos;
+		}
+
+		private double microsPerOp() {
+			return nanos / 1e3 / operations;
+		}
+
+		private double bytesPerOp() {
+			return allocated < 0 ? Double.NaN : (double) allocated / operations;
+		}
+
+		private double megabytesPerSecond() {
+			return allocated < 0 ? Double.NaN : allocated * 1e3 / nanos;
+		}
+
+		private String toCsv() {
+			return String.format(Locale.ROOT, "%s,%.1f,%.3f,%.1f,%.1f", key(),
+					opsPerSecond(), microsPerOp(), bytesPerOp(),
+					megabytesPerSecond());
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT,
+					"%-18s %-20s %-10s %12.1f %12.3f %12.1f %10.1f", corpus,
+					operation, parameter, opsPerSecond(), microsPerOp(),
+					bytesPerOp(), megabytesPerSecond());
+		}
+	}
+
+	/**
+	 * The inputs of every benchmark on one document, chosen from the
+	 * document's own words with a fixed seed.
+	 */
+	static class Inputs {
+		private final Random random = new Random(SEED);
+		// Every word of the document (stop words included)
+		private final CompressedTrie trie;
+		private final String[] stopWords;
+		private final String[] titles;
+
+		Inputs(String document, String index, String stopWordsFile)
+				throws FileNotFoundException {
+			MappedByteBuffer text = Tokenizer.map(document);
+			trie = new CompressedTrie();
+			Tokenizer.tokenize(text, 0, text.limit(), 1, trie);
+			stopWords = lines(stopWordsFile, false);
+			titles = lines(index, true);
+		}
+
+		/**
+		 * @param fileName
+		 *            A file with an entry per line, or null
+		 * @param title
+		 *            Whether the lines are index entries ("TITLE,line"), of
+		 *            which only the titles are wanted
+		 * @return The file's non-empty lines
+		 */
+		private static String[] lines(String fileName, boolean title)
+				throws FileNotFoundException {
+			List<String> lines = new ArrayList<String>();
+			if (fileName == null || fileName.isEmpty()) {
+				return new String[0];
+			}
+			Scanner scanner = new Scanner(new File(fileName));
+			while (scanner.hasNextLine()) {
+				String line = scanner.nextLine().trim();
+				if (title && line.lastIndexOf(',') >= 0) {
+					line = line.substring(0, line.lastIndexOf(','));
+				}
+				if (!line.isEmpty()) {
+					lines.add(title ? line : line.toLowerCase());
+				}
+			}
+			scanner.close();
+			return lines.toArray(new String[0]);
+		}
+
+		/**
+		 * @param frequency
+		 *            RARE, MID or STOP
+		 * @return INPUTS words of the frequency class
+		 */
+		String[] words(String frequency) {
+			List<String> candidates = new ArrayList<String>();
+			if (frequency.equals(STOP)) {
+				candidates.addAll(Arrays.asList(stopWords));
+			} else {
+				int min = frequency.equals(RARE) ? RARE_MIN : MID_MIN;
+				int max = frequency.equals(RARE) ? RARE_MAX : MID_MAX;
+				for (int term = 0; term < trie.termCount(); ++term) {
+					int count = trie.count(trie.term(term));
+					if (count >= min && count <= max) {
+						candidates.add(trie.term(term));
+					}
+				}
+			}
+			if (candidates.isEmpty()) {
+				// e.g. no stop words file, or a small document: any word will
+				// do
+				for (int term = 0; term < trie.termCount(); ++term) {
+					candidates.add(trie.term(term));
+				}
+			}
+			String[] words = new String[INPUTS];
+			for (int i = 0; i < INPUTS; ++i) {
+				words[i] = candidates.get(random.nextInt(candidates.size()));
+			}
+			return words;
+		}
+
+		/**
+		 * @param frequency
+		 *            RARE, MID or STOP
+		 * @return INPUTS pairs of words of the frequency class
+		 */
+		String[][] pairs(String frequency) {
+			String[] first = words(frequency);
+			String[] second = words(frequency);
+			String[][] pairs = new String[INPUTS][];
+			for (int i = 0; i < INPUTS; ++i) {
+				pairs[i] = new String[] { first[i], second[i] };
+			}
+			return pairs;
+		}
+
+		/**
+		 * @return INPUTS lists of up to 3 section titles (some null, meaning
+		 *         the whole document)
+		 */
+		String[][] titles() {
+			String[][] chosen = new String[INPUTS][];
+			for (int i = 0; i < INPUTS; ++i) {
+				if (titles.length == 0 || i % 4 == 0) {
+					continue;
+				}
+				chosen[i] = new String[1 + random.nextInt(3)];
+				for (int j = 0; j < chosen[i].length; ++j) {
+					chosen[i][j] = titles[random.nextInt(titles.length)];
+				}
+			}
+			return chosen;
+		}
+
+		/**
+		 * @param length
+		 *            Number of words in a phrase
+		 * @return INPUTS phrases that occur in the document
+		 */
+		String[] phrases(int length) {
+			Postings postings = trie.getPostings();
+			String[] phrases = new String[INPUTS];
+			for (int i = 0; i < INPUTS; ++i) {
+				int start = random.nextInt(postings.size() - length);
+				StringBuilder phrase = new StringBuilder();
+				for (int j = 0; j < length; ++j) {
+					if (j > 0) {
+						phrase.append(' ');
+					}
+					phrase.append(trie.term(postings.termAt(start + j)));
+				}
+				phrases[i] = phrase.toString();
+			}
+			return phrases;
+		}
+
+		/**
+		 * @param length
+		 *            Number of characters in a prefix
+		 * @return INPUTS prefixes of middling words
+		 */
+		String[] prefixes(int length) {
+			String[] words = words(MID);
+			String[] prefixes = new String[INPUTS];
+			for (int i = 0; i < INPUTS; ++i) {
+				prefixes[i] = words[i].substring(0,
+						Math.min(length, words[i].length()));
+			}
+			return prefixes;
+		}
+	}
+}
@@ -0,0 +1,404 @@
+package comp3506.assn2.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.application.SearchServer;
+import comp3506.assn2.application.ShardedSearch;
+
+/**
+ * Load test for SearchServer over loopback: a number of client threads, each
+ * with its own keep-alive connection, send requests back to back for a
+ * warm-up period and then a measured period, and the server's throughput and
+ * the latency seen by the clients are reported.
+ *
+ * The requests cycle through every Search operation, with inputs chosen as
+ * SearchBenchmark chooses them (mid frequency words, 2 word phrases, prefixes
+ * of 2 characters, up to 3 section titles). The clients run in the same JVM
+ * as the server, so on a machine with few cores they compete with it for
+ * CPU: the figures are a lower bound for a server with the machine to itself.
+ *
+ * Usage: ServerBenchmark [-clients n] [-threads n] [-shards n] [-warmup ms]
+ * [-time ms] [-operations name,...] [document index stopWords]
+ *
+ * -threads is passed to SearchServer (0, the default, for a virtual thread
+ * per request where the JDK has them). -operations only sends requests for
+ * the operations named (e.g. wordCount alone, which costs next to nothing to
+ * run, measures the server's own overhead).
+ */
+public class ServerBenchmark {
+	// Bytes read from a response at a time
+	private static final int BUFFER = 16 * 1024;
+
+	private int clients = 16;
+	private int threads = 0;
+	private int shards = 0;
+	private long warmupNanos = 2000 * 1000000L;
+	private long timeNanos = 5000 * 1000000L;
+	// Operations requested (null for all of them)
+	private List<String> operations;
+
+	// Set when the warm-up is over, then when the measurement is
+	private volatile boolean measuring;
+	private volatile boolean stopped;
+
+	public static void main(String[] args) throws Exception {
+		ServerBenchmark benchmark = new ServerBenchmark();
+		List<String> files = new ArrayList<String>();
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-clients")) {
+				benchmark.clients = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads")) {
+				benchmark.threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-shards")) {
+				benchmark.shards = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-warmup")) {
+				benchmark.warmupNanos = Long.parseLong(args[++i]) * 1000000L;
+			} else if (args[i].equals("-time")) {
+				benchmark.timeNanos = Long.parseLong(args[++i]) * 1000000L;
+			} else if (args[i].equals("-operations")) {
+				benchmark.operations = Arrays.asList(args[++i].split(","));
+			} else {
+				files.add(args[i]);
+			}
+		}
+		if (files.isEmpty()) {
+			files.addAll(Arrays.asList("files/shakespeare.txt",
+					"files/shakespeare-index.txt", "files/stop-words.txt"));
+		}
+		if (files.size() != 3) {
+			System.err.println("Usage: ServerBenchmark [-clients n]"
+					+ " [-threads n] [-shards n] [-warmup ms] [-time ms]"
+					+ " [-operations name,...] [document index stopWords]");
+			System.exit(2);
+		}
+		benchmark.run(files.get(0), files.get(1), files.get(2));
+	}
+
+	/**
+	 * Serves a document on loopback and loads it with requests.
+	 *
+	 * @param document
+	 *            The document's file
+	 * @param index
+	 *            The document's section index file
+	 * @param stopWords
+	 *            The stop words file
+	 */
+	private void run(String document, String index, String stopWords)
+			throws Exception {
+		Search search = shards > 0
+				? new ShardedSearch(document, index, stopWords, shards)
+				: new AutoTester(document, index, stopWords);
+		SearchServer server = new SearchServer(search,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				threads);
+		String[] paths = paths(
+				new SearchBenchmark.Inputs(document, index, stopWords));
+
+		Client[] running = new Client[clients];
+		for (int i = 0; i < clients; ++i) {
+			running[i] = new Client(server.getAddress(), paths, i * paths.length / clients);
+			running[i].start();
+		}
+		Thread.sleep(warmupNanos / 1000000L);
+		measuring = true;
+		long start = System.nanoTime();
+		Thread.sleep(timeNanos / 1000000L);
+		stopped = true;
+		long elapsed = System.nanoTime() - start;
+
+		// Every measured latency, in nanoseconds
+		long[] latencies = new long[0];
+		long errors = 0;
+		long bytes = 0;
+		for (Client client : running) {
+			client.join();
+			int size = latencies.length;
+			latencies = Arrays.copyOf(latencies, size + client.count);
+			System.arraycopy(client.latencies, 0, latencies, size,
+					client.count);
+			errors += client.errors;
+			bytes += client.bytes;
+		}
+		server.stop();
+		Arrays.sort(latencies);
+
+		System.out.println(String.format(Locale.ROOT,
+				"%-8s %-8s %10s %12s %10s %10s %10s %10s %8s", "clients",
+				"threads", "requests", "requests/s", "MB/s", "p50 us",
+				"p99 us", "max us", "errors"));
+		System.out.println(String.format(Locale.ROOT,
+				"%-8d %-8s %10d %12.1f %10.1f %10.1f %10.1f %10.1f %8d",
+				clients, threads == 0 ? "default" : String.valueOf(threads),
+				latencies.length, latencies.length * 1e9 / elapsed,
+				bytes * 1e3 / elapsed, percentile(latencies, 0.5) / 1e3,
+				percentile(latencies, 0.99) / 1e3,
+				percentile(latencies, 1) / 1e3, errors));
+	}
+
+	/**
+	 * @param inputs
+	 *            The document's inputs
+	 * @return A request for every Search operation (of those asked for) for
+	 *         each input, the operations interleaved
+	 */
+	private String[] paths(SearchBenchmark.Inputs inputs) {
+		String[] words = inputs.words(SearchBenchmark.MID);
+		String[][] pairs = inputs.pairs(SearchBenchmark.MID);
+		String[][] titles = inputs.titles();
+		String[] phrases = inputs.phrases(2);
+		String[] prefixes = inputs.prefixes(2);
+		int inputCount = SearchBenchmark.INPUTS;
+		List<String> paths = new ArrayList<String>();
+		for (int i = 0; i < inputCount; ++i) {
+			String next = words[(i + 1) % inputCount];
+			paths.add("/wordCount?" + query("word", words[i]));
+			paths.add("/phraseOccurrence?" + query("phrase", phrases[i]));
+			paths.add("/prefixOccurrence?" + query("prefix", prefixes[i]));
+			paths.add("/wordsOnLine?" + query("word", pairs[i]));
+			paths.add("/someWordsOnLine?" + query("word", pairs[i]));
+			paths.add("/wordsNotOnLine?" + query("required", words[i]) + "&"
+					+ query("excluded", next));
+			paths.add("/simpleAndSearch?" + query("title", titles[i]) + "&"
+					+ query("word", pairs[i]));
+			paths.add("/simpleOrSearch?" + query("title", titles[i]) + "&"
+					+ query("word", pairs[i]));
+			paths.add("/simpleNotSearch?" + query("title", titles[i]) + "&"
+					+ query("required", words[i]) + "&"
+					+ query("excluded", next));
+			paths.add("/compoundAndOrSearch?" + query("title", titles[i])
+					+ "&" + query("required", next) + "&"
+					+ query("or", pairs[i]));
+		}
+		if (operations != null) {
+			// e.g. "/wordCount?word=..." is the wordCount operation
+			paths.removeIf(path -> !operations
+					.contains(path.substring(1, path.indexOf('?'))));
+		}
+		if (paths.isEmpty())
+			throw new IllegalArgumentException("No such operations");
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	/**
+	 * @param name
+	 *            A parameter's name
+	 * @param values
+	 *            Its values (none if null)
+	 * @return The parameter repeated for every value, encoded
+	 */
+	private static String query(String name, String... values) {
+		StringBuilder query = new StringBuilder();
+		if (values == null) {
+			return "";
+		}
+		for (String value : values) {
+			if (query.length() > 0) {
+				query.append('&');
+			}
+			query.append(name).append('=')
+					.append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+		}
+		return query.toString();
+	}
+
+	/**
+	 * @param sorted
+	 *            Sorted values
+	 * @param fraction
+	 *            Fraction of the values at or below the percentile
+	 * @return The percentile (0 if there are no values)
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[(int) Math.min(sorted.length - 1,
+				Math.ceil(fraction * sorted.length) - 1)];
+	}
+
+	// ##############################################################
+
+	/**
+	 * Sends requests one after another on a keep-alive connection until the
+	 * benchmark stops, keeping the latency of each sent while measuring. HTTP
+	 * is spoken straight over a socket, as HttpURLConnection costs more CPU
+	 * per request than the server does (and shares the machine with it).
+	 */
+	private class Client extends Thread {
+		private final InetSocketAddress address;
+		// Every request, ready to send
+		private final byte[][] requests;
+		private int next;
+
+		private long[] latencies = new long[1024];
+		private int count;
+		private long errors;
+		private long bytes;
+
+		// The connection (null until opened, or after it fails)
+		private Socket socket;
+		private InputStream in;
+		private OutputStream out;
+
+		private Client(InetSocketAddress address, String[] paths, int first) {
+			this.address = address;
+			requests = new byte[paths.length][];
+			for (int i = 0; i < paths.length; ++i) {
+				requests[i] = ("GET " + paths[i] + " HTTP/1.1\r\nHost: "
+						+ address.getHostString() + "\r\n\r\n")
+								.getBytes(StandardCharsets.ISO_8859_1);
+			}
+			this.next = first;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (!stopped) {
+				boolean measured = measuring;
+				long start = System.nanoTime();
+				long read;
+				boolean failed;
+				try {
+					if (socket == null) {
+						socket = new Socket();
+						socket.setTcpNoDelay(true);
+						socket.connect(address);
+						in = new BufferedInputStream(socket.getInputStream(),
+								BUFFER);
+						out = socket.getOutputStream();
+					}
+					out.write(requests[next]);
+					read = readResponse();
+					failed = read < 0;
+				} catch (IOException e) {
+					close();
+					read = 0;
+					failed = true;
+				}
+				long latency = System.nanoTime() - start;
+				next = (next + 1) % requests.length;
+				if (!measured) {
+					continue;
+				}
+				if (count == latencies.length) {
+					latencies = Arrays.copyOf(latencies, count * 2);
+				}
+				latencies[count++] = latency;
+				bytes += Math.abs(read);
+				if (failed) {
+					++errors;
+				}
+			}
+			close();
+		}
+
+		/**
+		 * Reads a whole response, so the connection is ready for the next.
+		 *
+		 * @return The length of the body, negated if the status was not 200
+		 * @throws IOException
+		 *             if the connection fails or the response is malformed
+		 */
+		private long readResponse() throws IOException {
+			// e.g. "HTTP/1.1 200 OK"
+			String status = readLine();
+			boolean ok = status.startsWith("200", status.indexOf(' ') + 1);
+			long length = 0;
+			boolean chunked = false;
+			boolean keepAlive = true;
+			for (String header = readLine(); !header.isEmpty();
+					header = readLine()) {
+				String lower = header.toLowerCase(Locale.ROOT);
+				if (lower.startsWith("content-length:")) {
+					length = Long.parseLong(lower.substring(15).trim());
+				} else if (lower.startsWith("transfer-encoding:")) {
+					chunked = lower.contains("chunked");
+				} else if (lower.startsWith("connection:")) {
+					keepAlive = !lower.contains("close");
+				}
+			}
+			long read = 0;
+			if (chunked) {
+				// Each chunk is its length in hex, the bytes, then a line
+				// break; the last has length 0
+				for (long size = Long.parseLong(readLine().trim(), 16); size > 0;
+						size = Long.parseLong(readLine().trim(), 16)) {
+					skip(size);
+					readLine();
+					read += size;
+				}
+				// Trailers (none), then the end
+				while (!readLine().isEmpty()) {
+				}
+			} else {
+				skip(length);
+				read = length;
+			}
+			if (!keepAlive) {
+				close();
+			}
+			return ok ? read : -read;
+		}
+
+		/**
+		 * @return The next line, without its line break
+		 */
+		private String readLine() throws IOException {
+			StringBuilder line = new StringBuilder();
+			for (int b = in.read(); b != '\n'; b = in.read()) {
+				if (b < 0)
+					throw new EOFException();
+				if (b != '\r') {
+					line.append((char) b);
+				}
+			}
+			return line.toString();
+		}
+
+		/**
+		 * Reads past some bytes.
+		 */
+		private void skip(long length) throws IOException {
+			while (length > 0) {
+				long skipped = in.skip(length);
+				if (skipped <= 0) {
+					if (in.read() < 0)
+						throw new EOFException();
+					skipped = 1;
+				}
+				length -= skipped;
+			}
+		}
+
+		/**
+		 * Closes the connection, so the next request opens a new one.
+		 */
+		private void close() {
+			try {
+				if (socket != null) {
+					socket.close();
+				}
+			} catch (IOException e) {
+				// Closed anyway
+			}
+			socket = null;
+		}
+	}
+}
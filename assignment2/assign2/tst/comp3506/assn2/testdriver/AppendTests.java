@@ -0,0 +1,210 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.TestingPair;
+import comp3506.assn2.utils.Triple;
+
+
+/**
+ * Tests that a document with lines appended gives the same word counts and
+ * phrase occurrences as an index built afresh from the whole text.
+ */
+public class AppendTests {
+
+	// Lines of shakespeare.txt in the document before anything is appended
+	private static final int BASE_LINES = 6000;
+	// Lines of shakespeare.txt appended after them
+	private static final int APPENDED_LINES = 120;
+	// Then some lines with words not in the document before
+	private static final String[] NEW_LINES = { "qwertyapp Zzyzx the Hamlet", "", "zzyzx's end of a king" };
+
+	private static String stopWordsFileName = "files\\stop-words.txt";
+	private static String[] appended;
+	private static File baseFile;
+	private static File wholeFile;
+	private static AutoTester base;
+	private static AutoTester fresh;
+	// Words and phrases around the join, to compare
+	private static Set<String> words = new LinkedHashSet<>();
+	private static Set<String> phrases = new LinkedHashSet<>();
+
+	@BeforeClass
+	public static void openFiles() throws IOException {
+		List<String> lines = Files.readAllLines(new File("files\\shakespeare.txt").toPath(), StandardCharsets.UTF_8);
+		List<String> baseLines = lines.subList(0, BASE_LINES);
+		List<String> appendedLines = new ArrayList<>(lines.subList(BASE_LINES, BASE_LINES + APPENDED_LINES));
+		appendedLines.addAll(Arrays.asList(NEW_LINES));
+		appended = appendedLines.toArray(new String[0]);
+
+		baseFile = write("append-base", baseLines);
+		List<String> wholeLines = new ArrayList<>(baseLines);
+		wholeLines.addAll(appendedLines);
+		wholeFile = write("append-whole", wholeLines);
+		base = new AutoTester(baseFile.getPath(), null, stopWordsFileName);
+		fresh = new AutoTester(wholeFile.getPath(), null, stopWordsFileName);
+
+		// Every word of the last few lines before the join and of the
+		// appended lines, and the runs of words across the join
+		List<String> sequence = new ArrayList<>();
+		for (String line : wholeLines.subList(BASE_LINES - 20, wholeLines.size())) {
+			for (String word : line.toLowerCase().split("[^\\p{L}']+")) {
+				if (!word.isEmpty()) {
+					sequence.add(word);
+				}
+			}
+		}
+		words.addAll(sequence);
+		for (int i = 0; i + 1 < sequence.size(); ++i) {
+			phrases.add(sequence.get(i) + " " + sequence.get(i + 1));
+			if (i + 2 < sequence.size()) {
+				phrases.add(sequence.get(i) + " " + sequence.get(i + 1) + " " + sequence.get(i + 2));
+			}
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testAppendLines() {
+		assertSameAsFresh(base.append(appended));
+	}
+
+	@Test(timeout=10000)
+	public void testAppendFromFile() throws IOException {
+		assertSameAsFresh(base.appendFrom(wholeFile.getPath(), baseFile.length(), null));
+	}
+
+	@Test(timeout=20000)
+	public void testAppendOneLineAtATime() {
+		AutoTester grown = base;
+		for (String line : appended) {
+			grown = grown.append(new String[] { line });
+		}
+		assertSameAsFresh(grown);
+	}
+
+	@Test(timeout=10000)
+	public void testOriginalIsUnchanged() {
+		int before = base.wordCount("zzyzx");
+		base.append(appended);
+		assertThat(before, is(equalTo(0)));
+		assertThat(base.wordCount("zzyzx"), is(equalTo(0)));
+		assertThat(base.phraseOccurrence("qwertyapp").size(), is(equalTo(0)));
+	}
+
+	@Test(timeout=10000)
+	public void testAppendSections() throws IOException {
+		String entry = "NEW PLAY," + (BASE_LINES + APPENDED_LINES + 1);
+		File indexFile = write("append-index", Arrays.asList(entry));
+		AutoTester indexed = new AutoTester(wholeFile.getPath(), indexFile.getPath(), stopWordsFileName);
+		AutoTester grown = base.append(appended, new String[] { entry });
+		assertSameAsFresh(grown);
+		String[] titles = { "NEW PLAY" };
+		for (String word : new String[] { "zzyzx", "hamlet", "king", "qwertyapp" }) {
+			String[] query = { word };
+			assertThat(word, describe(grown.simpleAndSearch(titles, query)),
+					is(equalTo(describe(indexed.simpleAndSearch(titles, query)))));
+		}
+		assertThat(grown.simpleAndSearch(titles, new String[] { "hamlet" }).size(), is(equalTo(1)));
+		List<Pair<String, Double>> ranked = grown.rankedSectionSearch(null, new String[] { "zzyzx" }, 5);
+		assertThat(ranked.size(), is(equalTo(1)));
+		assertThat(ranked.get(0).getLeftValue(), is(equalTo("NEW PLAY")));
+		// The original's sections are unchanged
+		assertThat(base.simpleAndSearch(titles, new String[] { "hamlet" }).size(), is(equalTo(0)));
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testAppendSectionBeforeNewLines() {
+		base.append(appended, new String[] { "OLD PLAY," + BASE_LINES });
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testAppendSectionAfterNewLines() {
+		base.append(appended, new String[] { "LATE PLAY," + (BASE_LINES + appended.length + 1) });
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testAppendSectionNotAnEntry() {
+		base.append(appended, new String[] { "NO START LINE" });
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testAppendNull() {
+		base.append(null);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testAppendLineBreak() {
+		base.append(new String[] { "one line\nand another" });
+	}
+
+	@Test(timeout=5000, expected=IllegalArgumentException.class)
+	public void testAppendFromMidLine() throws IOException {
+		base.appendFrom(wholeFile.getPath(), baseFile.length() - 3, null);
+	}
+
+	private static void assertSameAsFresh(AutoTester grown) {
+		for (String word : words) {
+			assertThat(word, grown.wordCount(word), is(equalTo(fresh.wordCount(word))));
+			assertThat(word, makeTestingPair(grown.phraseOccurrence(word)),
+					is(equalTo(makeTestingPair(fresh.phraseOccurrence(word)))));
+		}
+		for (String phrase : phrases) {
+			assertThat(phrase, makeTestingPair(grown.phraseOccurrence(phrase)),
+					is(equalTo(makeTestingPair(fresh.phraseOccurrence(phrase)))));
+		}
+	}
+
+	/**
+	 * @return Each triple as "line column word", in order
+	 */
+	private static List<String> describe(List<Triple<Integer, Integer, String>> triples) {
+		List<String> result = new ArrayList<>();
+		for (Triple<Integer, Integer, String> triple : triples) {
+			result.add(triple.getLeftValue() + " " + triple.getCentreValue() + " " + triple.getRightValue());
+		}
+		return result;
+	}
+
+	/**
+	 * @return A temporary file holding the lines, each ending in a line break
+	 */
+	private static File write(String prefix, List<String> lines) throws IOException {
+		File file = File.createTempFile(prefix, ".txt");
+		file.deleteOnExit();
+		StringBuilder text = new StringBuilder();
+		for (String line : lines) {
+			text.append(line).append('\n');
+		}
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * @param data The list of Pairs to be converted to a list of TestingPairs.
+	 */
+	private static List<TestingPair<Integer, Integer>> makeTestingPair(List<Pair<Integer, Integer>> data) {
+		List<TestingPair<Integer, Integer>> result = new ArrayList<>();
+		for (Pair<Integer, Integer> pair: data) {
+			result.add(new TestingPair<Integer, Integer>(pair));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,98 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.CachingSearch;
+import comp3506.assn2.application.Search;
+
+
+/**
+ * Tests for CachingSearch: arguments are checked as the Search contract
+ * requires, and different queries never share a cached result.
+ */
+public class CachingSearchTests {
+
+	private static Search searchApplication;
+	private CachingSearch cache;
+
+	@BeforeClass
+	public static void openFiles() throws FileNotFoundException {
+		searchApplication = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+	}
+
+	@Before
+	public void newCache() {
+		cache = new CachingSearch(searchApplication, 1 << 20);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testWordsOnLine_NullWords() {
+		cache.wordsOnLine(null);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testWordsOnLine_EmptyWords() {
+		cache.wordsOnLine(new String[0]);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testWordsOnLine_NullWord() {
+		cache.wordsOnLine(new String[] { "king", null });
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testSomeWordsOnLine_NullWords() {
+		cache.someWordsOnLine(null);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testSomeWordsOnLine_EmptyWords() {
+		cache.someWordsOnLine(new String[0]);
+	}
+
+	@Test(timeout=500)
+	public void testRepeatedQueryIsAHit() {
+		String[] words = { "king", "crown" };
+		assertThat(cache.wordsOnLine(words), is(equalTo(searchApplication.wordsOnLine(words))));
+		assertThat(cache.wordsOnLine(new String[] { "CROWN", "King" }), is(equalTo(searchApplication.wordsOnLine(words))));
+		assertThat("Same words in another order and case should hit.", cache.hits(), is(equalTo(1L)));
+	}
+
+	@Test(timeout=500)
+	public void testWordsOnLine_KeysDoNotCollide() {
+		// Spread into the key one string after another, these two would both
+		// be "king", separator, "crown"
+		String[] two = { "crown", "king" };
+		String[] one = { "crown\u0000king" };
+		assertThat(cache.wordsOnLine(two), is(equalTo(searchApplication.wordsOnLine(two))));
+		assertThat(cache.wordsOnLine(one), is(equalTo(searchApplication.wordsOnLine(one))));
+		assertThat(cache.hits(), is(equalTo(0L)));
+	}
+
+	@Test(timeout=500)
+	public void testSomeWordsOnLine_KeysDoNotCollide() {
+		String[] two = { "crown", "king" };
+		String[] one = { "crown\u0000king" };
+		assertThat(cache.someWordsOnLine(two), is(equalTo(searchApplication.someWordsOnLine(two))));
+		assertThat(cache.someWordsOnLine(one), is(equalTo(searchApplication.someWordsOnLine(one))));
+		assertThat(cache.hits(), is(equalTo(0L)));
+	}
+
+	@Test(timeout=500)
+	public void testOperationsDoNotShareKeys() {
+		String[] words = { "crown", "king" };
+		assertThat(cache.wordsOnLine(words), is(equalTo(searchApplication.wordsOnLine(words))));
+		assertThat(cache.someWordsOnLine(words), is(equalTo(searchApplication.someWordsOnLine(words))));
+		assertThat(cache.hits(), is(equalTo(0L)));
+	}
+}
@@ -0,0 +1,161 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.utils.TestingTriple;
+import comp3506.assn2.utils.TestingPair;
+import comp3506.assn2.utils.Triple;
+import comp3506.assn2.utils.Pair;
+
+
+/**
+ * Stress test for sharing one AutoTester between many threads: every Search
+ * method is run by 32 threads at once, and each result must match the result
+ * of the same query run on a single thread.
+ */
+public class ConcurrencyTests {
+
+	private static final int THREADS = 32;
+	// Times each thread runs through every query
+	private static final int ROUNDS = 5;
+
+	private static final String[] words = { "obscure", "rusty", "riper",
+			"decease", "beaver", "hoof", "love", "king", "crown", "death",
+			"the", "thee" };
+	private static final String[] titles = { "CYMBELINE",
+			"THE TRAGEDY OF HAMLET", "THE FIRST PART OF KING HENRY THE FOURTH",
+			"THE SECOND PART OF KING HENRY THE SIXTH", "KING RICHARD THE SECOND",
+			"VENUS AND ADONIS", "THE TRAGEDY OF ROMEO AND JULIET" };
+
+	// Queried by one thread only
+	private static Search reference;
+	// Queried by every thread, starting with nothing cached
+	private static Search shared;
+
+	@BeforeClass
+	public static void openFiles() {
+		try {
+			reference = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+			shared = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+		} catch (FileNotFoundException | IllegalArgumentException e) {
+			System.out.println("Opening files failed!");
+			e.printStackTrace();
+		}
+	}
+
+	@Test(timeout=120000)
+	public void testConcurrentReadersMatchSingleThread() throws Exception {
+		List<Query> queries = queries();
+		List<Object> expected = new ArrayList<>();
+		for (Query query : queries) {
+			expected.add(query.run(reference));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			// Hold every thread back until all of them are ready
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Integer>> mismatches = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; ++thread) {
+				int offset = thread;
+				mismatches.add(pool.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						start.await();
+						int mismatched = 0;
+						// Threads start at different queries, so different
+						// queries run at the same time
+						for (int i = 0; i < ROUNDS * queries.size(); ++i) {
+							int index = (offset + i) % queries.size();
+							if (!expected.get(index).equals(queries.get(index).run(shared))) {
+								++mismatched;
+							}
+						}
+						return mismatched;
+					}
+				}));
+			}
+			start.countDown();
+			int mismatched = 0;
+			for (Future<Integer> future : mismatches) {
+				mismatched += future.get();
+			}
+			assertThat("Results under concurrent readers differed from single-threaded results.", mismatched, is(equalTo(0)));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return A query for every Search method, over a mix of rare and common
+	 *         words, prefixes and stop words.
+	 */
+	private static List<Query> queries() {
+		List<Query> queries = new ArrayList<>();
+		for (int i = 0; i < words.length; ++i) {
+			String word = words[i];
+			String next = words[(i + 1) % words.length];
+			String[] both = { word, next };
+			String[] one = { word };
+			String[] other = { next };
+			queries.add(search -> search.wordCount(word));
+			queries.add(search -> makeTestingPair(search.phraseOccurrence(word)));
+			queries.add(search -> makeTestingPair(search.phraseOccurrence(word + " " + next)));
+			queries.add(search -> makeTestingPair(search.prefixOccurrence(word.substring(0, 2))));
+			queries.add(search -> search.wordsOnLine(both));
+			queries.add(search -> search.someWordsOnLine(both));
+			queries.add(search -> search.wordsNotOnLine(one, other));
+			queries.add(search -> makeTestingTriple(search.simpleAndSearch(titles, both)));
+			queries.add(search -> makeTestingTriple(search.simpleOrSearch(titles, both)));
+			queries.add(search -> makeTestingTriple(search.simpleNotSearch(titles, one, other)));
+			queries.add(search -> makeTestingTriple(search.compoundAndOrSearch(titles, one, both)));
+		}
+		return queries;
+	}
+
+	/**
+	 * A query whose result can be compared with equals().
+	 */
+	private interface Query {
+		Object run(Search search);
+	}
+
+	/**
+	 * @param data The list of Pairs to be converted to a list of TestingPairs.
+	 */
+	private static List<TestingPair<Integer, Integer>> makeTestingPair(List<Pair<Integer, Integer>> data) {
+		List<TestingPair<Integer, Integer>> result = new ArrayList<>();
+		for (Pair<Integer, Integer> pair: data) {
+			result.add(new TestingPair<Integer, Integer>(pair));
+		}
+		return result;
+	}
+
+	/**
+	 * @param data The list of Triples to be converted to a list of TestingTriples.
+	 */
+	private static List<TestingTriple<Integer, Integer, String>> makeTestingTriple(List<Triple<Integer, Integer, String>> data) {
+		List<TestingTriple<Integer, Integer, String>> result = new ArrayList<>();
+		for (Triple<Integer, Integer, String> triple: data) {
+			result.add(new TestingTriple<Integer, Integer, String>(triple));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,196 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Corpus;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.TestingPair;
+import comp3506.assn2.utils.TestingTriple;
+import comp3506.assn2.utils.Triple;
+
+
+/**
+ * Tests that each document of a Corpus searches as an AutoTester of the
+ * document on its own would, and that phrases are never matched across the
+ * end of one document and the start of the next.
+ */
+public class CorpusTests {
+
+	// Lines of shakespeare.txt making up the third document
+	private static final int SHAKESPEARE_LINES = 8000;
+	private static final String[] WORDS = { "king", "crown", "rome", "dead", "love", "death", "the", "of",
+			"thee", "sonnet", "beauty", "hamlet", "xyzzy" };
+
+	private static String stopWordsFileName = "files\\stop-words.txt";
+	private static String[] names = new String[3];
+	private static String[] indexNames = new String[3];
+	private static List<List<String>> titles = new ArrayList<>();
+	private static Corpus corpus;
+
+	@BeforeClass
+	public static void openFiles() throws IOException {
+		// The first document ends with "live the" and the second starts with
+		// "king", so "live the king" runs across the join
+		addDocument(0, "THE FIRST PART\nthe king is dead\nlong live the\n", "THE FIRST PART,1\n");
+		addDocument(1, "king of rome\nTHE SECOND PART\na crown for the king\nthe king of rome is dead\n",
+				"THE SECOND PART,2\n");
+		List<String> lines = Files.readAllLines(new File("files\\shakespeare.txt").toPath(), StandardCharsets.UTF_8);
+		StringBuilder text = new StringBuilder();
+		for (String line : lines.subList(0, SHAKESPEARE_LINES)) {
+			text.append(line).append('\n');
+		}
+		StringBuilder index = new StringBuilder();
+		for (String entry : Files.readAllLines(new File("files\\shakespeare-index.txt").toPath(), StandardCharsets.UTF_8)) {
+			int comma = entry.lastIndexOf(',');
+			if (comma >= 0 && Integer.parseInt(entry.substring(comma + 1).trim()) <= SHAKESPEARE_LINES) {
+				index.append(entry).append('\n');
+			}
+		}
+		addDocument(2, text.toString(), index.toString());
+		corpus = new Corpus(names, indexNames, stopWordsFileName);
+	}
+
+	@Test(timeout=10000)
+	public void testDocumentsMatchAutoTester() throws IOException {
+		for (int document = 0; document < names.length; ++document) {
+			AutoTester alone = new AutoTester(names[document], indexNames[document], stopWordsFileName);
+			assertSameResults(alone, corpus.document(names[document]), titles.get(document).toArray(new String[0]));
+		}
+	}
+
+	@Test(timeout=500)
+	public void testPhrasesDoNotCrossDocuments() {
+		assertThat(corpus.document(names[0]).phraseOccurrence("live the").size(), is(equalTo(1)));
+		assertThat(corpus.document(names[0]).phraseOccurrence("live the king").size(), is(equalTo(0)));
+		// The whole corpus finds only what the documents find on their own
+		for (String phrase : new String[] { "live the", "live the king", "the king", "dead king", "king of rome" }) {
+			int separately = 0;
+			for (String name : names) {
+				separately += corpus.document(name).phraseOccurrence(phrase).size();
+			}
+			assertThat(phrase, corpus.select().phraseOccurrence(phrase).size(), is(equalTo(separately)));
+		}
+	}
+
+	@Test(timeout=500)
+	public void testSelectionMapsBackToDocuments() {
+		// Named out of order, and with a name that is not a document
+		Search both = corpus.select(names[1], "no such document", names[0]);
+		for (String word : WORDS) {
+			List<TestingPair<Integer, Integer>> expected = new ArrayList<>();
+			expected.addAll(makeTestingPair(corpus.document(names[0]).phraseOccurrence(word)));
+			expected.addAll(makeTestingPair(corpus.document(names[1]).phraseOccurrence(word)));
+			List<TestingPair<Integer, Integer>> actual = new ArrayList<>();
+			for (Pair<Integer, Integer> occurrence : both.phraseOccurrence(word)) {
+				int line = occurrence.getLeftValue();
+				assertThat(corpus.documentOf(line) == 0 || corpus.documentOf(line) == 1, is(equalTo(true)));
+				actual.add(new TestingPair<>(corpus.localLine(line), occurrence.getRightValue()));
+			}
+			assertThat(word, actual, is(equalTo(expected)));
+		}
+	}
+
+	@Test(timeout=500)
+	public void testLineNumbering() {
+		assertThat(corpus.size(), is(equalTo(3)));
+		assertThat(corpus.firstLine(0), is(equalTo(1)));
+		assertThat(corpus.firstLine(1), is(equalTo(4)));
+		assertThat(corpus.firstLine(2), is(equalTo(8)));
+		assertThat(corpus.documentOf(3), is(equalTo(0)));
+		assertThat(corpus.documentOf(4), is(equalTo(1)));
+		assertThat(corpus.localLine(5), is(equalTo(2)));
+		assertThat(corpus.documentOf(0), is(equalTo(-1)));
+		assertThat(corpus.documentOf(8 + SHAKESPEARE_LINES), is(equalTo(-1)));
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testUnknownDocument() {
+		corpus.document("no such document");
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testRepeatedDocument() throws IOException {
+		new Corpus(new String[] { names[0], names[0] }, null, null);
+	}
+
+	private static void assertSameResults(Search expected, Search actual, String[] sectionTitles) {
+		for (int i = 0; i < WORDS.length; ++i) {
+			String word = WORDS[i];
+			String next = WORDS[(i + 1) % WORDS.length];
+			String[] pair = { word, next };
+			assertThat(word, actual.wordCount(word), is(equalTo(expected.wordCount(word))));
+			assertThat(word, makeTestingPair(actual.phraseOccurrence(word)),
+					is(equalTo(makeTestingPair(expected.phraseOccurrence(word)))));
+			assertThat(word, makeTestingPair(actual.phraseOccurrence("the " + word)),
+					is(equalTo(makeTestingPair(expected.phraseOccurrence("the " + word)))));
+			assertThat(word, makeTestingPair(actual.prefixOccurrence(word.substring(0, 2))),
+					is(equalTo(makeTestingPair(expected.prefixOccurrence(word.substring(0, 2))))));
+			assertThat(word, actual.wordsOnLine(pair), is(equalTo(expected.wordsOnLine(pair))));
+			assertThat(word, actual.someWordsOnLine(pair), is(equalTo(expected.someWordsOnLine(pair))));
+			assertThat(word, actual.wordsNotOnLine(new String[] { word }, new String[] { next }),
+					is(equalTo(expected.wordsNotOnLine(new String[] { word }, new String[] { next }))));
+			assertThat(word, makeTestingTriple(actual.simpleAndSearch(sectionTitles, pair)),
+					is(equalTo(makeTestingTriple(expected.simpleAndSearch(sectionTitles, pair)))));
+			assertThat(word, makeTestingTriple(actual.simpleOrSearch(sectionTitles, pair)),
+					is(equalTo(makeTestingTriple(expected.simpleOrSearch(sectionTitles, pair)))));
+			assertThat(word, makeTestingTriple(actual.simpleNotSearch(sectionTitles, new String[] { word }, new String[] { next })),
+					is(equalTo(makeTestingTriple(expected.simpleNotSearch(sectionTitles, new String[] { word }, new String[] { next })))));
+			assertThat(word, makeTestingTriple(actual.compoundAndOrSearch(null, new String[] { word }, pair)),
+					is(equalTo(makeTestingTriple(expected.compoundAndOrSearch(null, new String[] { word }, pair)))));
+		}
+	}
+
+	private static void addDocument(int document, String text, String index) throws IOException {
+		names[document] = write("corpus", text);
+		indexNames[document] = write("corpus-index", index);
+		List<String> documentTitles = new ArrayList<>();
+		for (String entry : index.split("\n")) {
+			documentTitles.add(entry.substring(0, entry.lastIndexOf(',')));
+		}
+		titles.add(documentTitles);
+	}
+
+	private static String write(String prefix, String text) throws IOException {
+		File file = File.createTempFile(prefix, ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file.getPath();
+	}
+
+	/**
+	 * @param data The list of Pairs to be converted to a list of TestingPairs.
+	 */
+	private static List<TestingPair<Integer, Integer>> makeTestingPair(List<Pair<Integer, Integer>> data) {
+		List<TestingPair<Integer, Integer>> result = new ArrayList<>();
+		for (Pair<Integer, Integer> pair: data) {
+			result.add(new TestingPair<Integer, Integer>(pair));
+		}
+		return result;
+	}
+
+	/**
+	 * @param data The list of Triples to be converted to a list of TestingTriples.
+	 */
+	private static List<TestingTriple<Integer, Integer, String>> makeTestingTriple(List<Triple<Integer, Integer, String>> data) {
+		List<TestingTriple<Integer, Integer, String>> result = new ArrayList<>();
+		for (Triple<Integer, Integer, String> triple: data) {
+			result.add(new TestingTriple<Integer, Integer, String>(triple));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,184 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+
+import comp3506.assn2.utils.LineBitmap;
+
+
+/**
+ * Tests LineBitmap against a TreeSet of the same lines, with sets made of
+ * array containers (few lines), bitmap containers (many lines) and both, in
+ * one container or spread over many.
+ */
+public class LineBitmapTests {
+
+	// Lines at which an array container becomes a bitmap
+	private static final int ARRAY_LIMIT = 4096;
+
+	@Test(timeout=10000)
+	public void testRandomSets() {
+		Random random = new Random(9);
+		List<TreeSet<Integer>> sets = new ArrayList<>();
+		for (int i = 0; i < 40; ++i) {
+			sets.add(randomSet(random));
+		}
+		for (TreeSet<Integer> a : sets) {
+			LineBitmap bitmapA = bitmap(a);
+			assertLines(a, bitmapA);
+			for (int probe = 0; probe < 50; ++probe) {
+				int line = random.nextInt(300000);
+				assertThat(bitmapA.contains(line), is(equalTo(a.contains(line))));
+				Integer next = a.ceiling(line);
+				assertThat(bitmapA.nextLine(line), is(equalTo(next == null ? -1 : next)));
+			}
+			TreeSet<Integer> b = sets.get(random.nextInt(sets.size()));
+			LineBitmap bitmapB = bitmap(b);
+
+			TreeSet<Integer> both = new TreeSet<>(a);
+			both.retainAll(b);
+			assertLines(both, bitmapA.and(bitmapB));
+			TreeSet<Integer> either = new TreeSet<>(a);
+			either.addAll(b);
+			assertLines(either, bitmapA.or(bitmapB));
+			TreeSet<Integer> onlyA = new TreeSet<>(a);
+			onlyA.removeAll(b);
+			assertLines(onlyA, bitmapA.andNot(bitmapB));
+			assertLines(both, spliteratorLines(LineBitmap.intersection(new LineBitmap[] { bitmapA, bitmapB })));
+		}
+	}
+
+	@Test(timeout=2000)
+	public void testContainerLimits() {
+		// Just below, at and just above the point a container becomes a
+		// bitmap, and back again once lines are taken away
+		for (int count : new int[] { ARRAY_LIMIT - 1, ARRAY_LIMIT, ARRAY_LIMIT + 1 }) {
+			TreeSet<Integer> lines = new TreeSet<>();
+			for (int i = 0; i < count; ++i) {
+				lines.add(65536 + i * 15);
+			}
+			LineBitmap bitmap = bitmap(lines);
+			assertLines(lines, bitmap);
+			TreeSet<Integer> fewer = new TreeSet<>(lines);
+			fewer.remove(lines.first());
+			fewer.remove(lines.last());
+			assertLines(fewer, bitmap.andNot(bitmap(new TreeSet<>(Arrays.asList(lines.first(), lines.last())))));
+			assertLines(fewer, bitmap.and(bitmap(fewer)));
+			assertLines(lines, bitmap(fewer).or(bitmap(lines)));
+		}
+	}
+
+	@Test(timeout=500)
+	public void testRepeatedLines() {
+		int[] lines = { 1, 1, 2, 70000, 70000, 70000, 131071, 131072 };
+		LineBitmap bitmap = LineBitmap.of(lines, lines.length);
+		assertThat(bitmap.size(), is(equalTo(5)));
+		assertThat(bitmap.toArray(), is(equalTo(new int[] { 1, 2, 70000, 131071, 131072 })));
+		// Only the first 'length' entries count
+		assertThat(LineBitmap.of(lines, 3).toArray(), is(equalTo(new int[] { 1, 2 })));
+	}
+
+	@Test(timeout=500)
+	public void testEmpty() {
+		LineBitmap some = bitmap(new TreeSet<>(Arrays.asList(3, 5, 100000)));
+		assertTrue(LineBitmap.EMPTY.isEmpty());
+		assertThat(LineBitmap.EMPTY.nextLine(0), is(equalTo(-1)));
+		assertThat(LineBitmap.EMPTY.contains(0), is(equalTo(false)));
+		assertTrue(some.and(LineBitmap.EMPTY).isEmpty());
+		assertTrue(LineBitmap.EMPTY.andNot(some).isEmpty());
+		assertThat(some.or(LineBitmap.EMPTY).toArray(), is(equalTo(some.toArray())));
+		assertThat(some.andNot(LineBitmap.EMPTY).toArray(), is(equalTo(some.toArray())));
+		assertThat(some.nextLine(-5), is(equalTo(3)));
+		assertThat(some.contains(-1), is(equalTo(false)));
+	}
+
+	/**
+	 * A set made of one of a few shapes: sparse lines, a dense run, or both,
+	 * over one or several containers.
+	 */
+	private static TreeSet<Integer> randomSet(Random random) {
+		TreeSet<Integer> lines = new TreeSet<>();
+		int shape = random.nextInt(4);
+		if (shape == 0 || shape == 2) {
+			int count = random.nextInt(3000);
+			int range = random.nextBoolean() ? 65536 : 300000;
+			for (int i = 0; i < count; ++i) {
+				lines.add(random.nextInt(range));
+			}
+		}
+		if (shape == 1 || shape == 2) {
+			int start = random.nextInt(250000);
+			int length = 1 + random.nextInt(40000);
+			// Most lines of the run, so bitmap containers are made
+			int density = 1 + random.nextInt(8);
+			for (int line = start; line < start + length; ++line) {
+				if (random.nextInt(density) == 0) {
+					lines.add(line);
+				}
+			}
+		}
+		if (shape == 3) {
+			// Every line of whole containers, and their edges
+			int key = random.nextInt(4);
+			for (int line = key << 16; line < (key + 1) << 16; ++line) {
+				lines.add(line);
+			}
+			lines.add((key + 2) << 16);
+			lines.add(((key + 3) << 16) - 1);
+		}
+		return lines;
+	}
+
+	private static LineBitmap bitmap(TreeSet<Integer> lines) {
+		int[] array = new int[lines.size()];
+		int i = 0;
+		for (int line : lines) {
+			array[i++] = line;
+		}
+		return LineBitmap.of(array, array.length);
+	}
+
+	/**
+	 * Checks a LineBitmap holds exactly the expected lines, seen through each
+	 * way of reading it.
+	 */
+	private static void assertLines(TreeSet<Integer> expected, LineBitmap actual) {
+		assertThat(actual.size(), is(equalTo(expected.size())));
+		assertThat(actual.isEmpty(), is(equalTo(expected.isEmpty())));
+		int[] array = actual.toArray();
+		Iterator<Integer> lines = expected.iterator();
+		for (int line : array) {
+			assertThat(line, is(equalTo(lines.next())));
+		}
+		assertLines(expected, spliteratorLines(actual.spliterator()));
+		// Walking with nextLine visits every line
+		int count = 0;
+		for (int line = actual.nextLine(0); line >= 0; line = actual.nextLine(line + 1)) {
+			assertTrue(expected.contains(line));
+			++count;
+		}
+		assertThat(count, is(equalTo(expected.size())));
+	}
+
+	private static void assertLines(TreeSet<Integer> expected, List<Integer> actual) {
+		assertThat(actual, is(equalTo(new ArrayList<>(expected))));
+	}
+
+	private static List<Integer> spliteratorLines(Spliterator.OfInt spliterator) {
+		List<Integer> lines = new ArrayList<>();
+		spliterator.forEachRemaining((int line) -> lines.add(line));
+		return lines;
+	}
+}
@@ -0,0 +1,270 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.utils.Pair;
+
+
+/**
+ * Tests rankedSectionSearch against a brute-force BM25 scorer over a small
+ * generated document whose words and sections are known.
+ */
+public class RankedSectionsTests {
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final String[] VOCABULARY = { "apple", "berry", "cherry",
+			"damson", "elder", "fig", "grape", "hazel" };
+
+	private static AutoTester searchApplication;
+	private static String documentFileName;
+	private static String indexFileName;
+	private static List<String> titles = new ArrayList<>();
+	// The words of each section, in document order
+	private static List<List<String>> sections = new ArrayList<>();
+
+	@BeforeClass
+	public static void openFiles() throws IOException {
+		Random random = new Random(3506);
+		List<String> lines = new ArrayList<>();
+		List<String> index = new ArrayList<>();
+		// Words before the first section are in no section
+		lines.add("apple berry cherry");
+		for (int section = 0; section < 12; ++section) {
+			List<String> words = new ArrayList<>();
+			int lineCount = 1 + random.nextInt(4);
+			List<String> sectionLines = new ArrayList<>();
+			for (int line = 0; line < lineCount; ++line) {
+				StringBuilder text = new StringBuilder();
+				int wordCount = random.nextInt(8);
+				for (int i = 0; i < wordCount; ++i) {
+					String word = VOCABULARY[random.nextInt(random.nextBoolean() ? 3 : VOCABULARY.length)];
+					words.add(word);
+					text.append(word).append(' ');
+				}
+				sectionLines.add(text.toString());
+			}
+			addSection("SECTION " + section, words, sectionLines, lines, index);
+		}
+		// Two identical sections, with a word no other section has, tie
+		List<String> twin = Arrays.asList("lemon fig lemon", "apple");
+		List<String> twinWords = Arrays.asList("lemon", "fig", "lemon", "apple");
+		addSection("TWIN A", twinWords, twin, lines, index);
+		addSection("TWIN B", twinWords, twin, lines, index);
+
+		documentFileName = write("ranked", lines);
+		indexFileName = write("ranked-index", index);
+		searchApplication = new AutoTester(documentFileName, indexFileName, null);
+	}
+
+	@Test(timeout=5000)
+	public void testRandomQueries() {
+		Random random = new Random(1);
+		for (int query = 0; query < 500; ++query) {
+			String[] words = new String[1 + random.nextInt(3)];
+			for (int i = 0; i < words.length; ++i) {
+				// Sometimes a word that is not in the document
+				words[i] = random.nextInt(10) == 0 ? "quince" : VOCABULARY[random.nextInt(VOCABULARY.length)];
+			}
+			int k = 1 + random.nextInt(16);
+			assertRanking(null, words, k);
+		}
+	}
+
+	@Test(timeout=5000)
+	public void testFirstSearchFromManyThreads() throws Exception {
+		// A fresh AutoTester, so the threads race to make its statistics
+		AutoTester fresh = new AutoTester(documentFileName, indexFileName, null);
+		String[] words = { "apple", "fig", "lemon" };
+		List<Pair<String, Double>> expected = bruteForce(null, words, 5);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		CountDownLatch go = new CountDownLatch(1);
+		List<Future<List<Pair<String, Double>>>> results = new ArrayList<>();
+		for (int thread = 0; thread < 8; ++thread) {
+			results.add(pool.submit(() -> {
+				go.await();
+				return fresh.rankedSectionSearch(null, words, 5);
+			}));
+		}
+		go.countDown();
+		for (Future<List<Pair<String, Double>>> result : results) {
+			List<Pair<String, Double>> actual = result.get();
+			assertThat(actual.size(), is(equalTo(expected.size())));
+			for (int i = 0; i < expected.size(); ++i) {
+				assertThat(actual.get(i).getLeftValue(), is(equalTo(expected.get(i).getLeftValue())));
+				assertEquals(expected.get(i).getRightValue(), actual.get(i).getRightValue(), 1e-9);
+			}
+		}
+		pool.shutdown();
+	}
+
+	@Test(timeout=500)
+	public void testRepeatedWordsCountOnce() {
+		assertRanking(null, new String[] { "fig", "fig", "FIG" }, 5);
+		assertThat(searchApplication.rankedSectionSearch(null, new String[] { "fig", "fig" }, 5).size(),
+				is(equalTo(searchApplication.rankedSectionSearch(null, new String[] { "fig" }, 5).size())));
+	}
+
+	@Test(timeout=500)
+	public void testTiesInDocumentOrder() {
+		List<Pair<String, Double>> result = searchApplication.rankedSectionSearch(null, new String[] { "lemon" }, 5);
+		assertThat(result.size(), is(equalTo(2)));
+		assertThat(result.get(0).getLeftValue(), is(equalTo("TWIN A")));
+		assertThat(result.get(1).getLeftValue(), is(equalTo("TWIN B")));
+		assertThat(result.get(0).getRightValue(), is(equalTo(result.get(1).getRightValue())));
+		// With room for only one, the earlier section wins
+		result = searchApplication.rankedSectionSearch(null, new String[] { "lemon" }, 1);
+		assertThat(result.size(), is(equalTo(1)));
+		assertThat(result.get(0).getLeftValue(), is(equalTo("TWIN A")));
+		assertRanking(null, new String[] { "lemon", "fig" }, 3);
+	}
+
+	@Test(timeout=500)
+	public void testTitleFiltering() {
+		String[] some = { "SECTION 1", "SECTION 4", "SECTION 7", "TWIN B" };
+		for (String word : VOCABULARY) {
+			assertRanking(some, new String[] { word }, 2);
+			assertRanking(some, new String[] { word, "apple" }, 10);
+		}
+		// Unknown titles are ignored
+		assertRanking(new String[] { "SECTION 2", "NO SUCH SECTION" }, new String[] { "berry" }, 10);
+		assertThat(searchApplication.rankedSectionSearch(new String[] { "NO SUCH SECTION" },
+				new String[] { "berry" }, 10).size(), is(equalTo(0)));
+		// No titles means every section
+		assertRanking(new String[0], new String[] { "cherry" }, 10);
+	}
+
+	@Test(timeout=500)
+	public void testKLargerThanSectionCount() {
+		assertRanking(null, new String[] { "apple" }, sections.size() + 1);
+		assertRanking(null, new String[] { "apple", "hazel" }, 1000);
+		// Must not try to make room for k sections
+		assertRanking(null, new String[] { "apple", "grape" }, Integer.MAX_VALUE);
+		assertRanking(new String[] { "TWIN A" }, new String[] { "lemon" }, Integer.MAX_VALUE);
+	}
+
+	@Test(timeout=500)
+	public void testWordsNotInDocument() {
+		assertThat(searchApplication.rankedSectionSearch(null, new String[] { "quince" }, 5).size(), is(equalTo(0)));
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testZeroK() {
+		searchApplication.rankedSectionSearch(null, new String[] { "apple" }, 0);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testNegativeK() {
+		searchApplication.rankedSectionSearch(null, new String[] { "apple" }, -1);
+	}
+
+	/**
+	 * Checks rankedSectionSearch gives the brute-force titles, order and
+	 * scores.
+	 */
+	private static void assertRanking(String[] allowedTitles, String[] words, int k) {
+		List<Pair<String, Double>> expected = bruteForce(allowedTitles, words, k);
+		List<Pair<String, Double>> actual = searchApplication.rankedSectionSearch(allowedTitles, words, k);
+		String query = Arrays.toString(words) + " in " + Arrays.toString(allowedTitles) + ", k = " + k;
+		assertThat(query, actual.size(), is(equalTo(expected.size())));
+		for (int i = 0; i < expected.size(); ++i) {
+			assertThat(query, actual.get(i).getLeftValue(), is(equalTo(expected.get(i).getLeftValue())));
+			assertEquals(query, expected.get(i).getRightValue(), actual.get(i).getRightValue(), 1e-9);
+		}
+	}
+
+	/**
+	 * Scores every section with Okapi BM25 and sorts them, best first, ties in
+	 * document order.
+	 */
+	private static List<Pair<String, Double>> bruteForce(String[] allowedTitles, String[] words, int k) {
+		Set<String> allowed = allowedTitles == null || allowedTitles.length == 0
+				? new HashSet<>(titles) : new HashSet<>(Arrays.asList(allowedTitles));
+		Set<String> query = new HashSet<>();
+		for (String word : words) {
+			query.add(word.toLowerCase());
+		}
+
+		int total = 0;
+		Map<String, Integer> sectionsContaining = new HashMap<>();
+		for (List<String> section : sections) {
+			total += section.size();
+			for (String word : new HashSet<>(section)) {
+				sectionsContaining.merge(word, 1, Integer::sum);
+			}
+		}
+		int n = sections.size();
+		double averageLength = Math.max(1.0, (double) total / n);
+
+		List<Integer> order = new ArrayList<>();
+		double[] scores = new double[n];
+		for (int s = 0; s < n; ++s) {
+			List<String> section = sections.get(s);
+			for (String word : query) {
+				int frequency = Collections.frequency(section, word);
+				if (frequency == 0) {
+					continue;
+				}
+				int df = sectionsContaining.get(word);
+				double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+				double norm = K1 * (1 - B + B * section.size() / averageLength);
+				scores[s] += idf * frequency * (K1 + 1) / (frequency + norm);
+			}
+			if (scores[s] > 0 && allowed.contains(titles.get(s))) {
+				order.add(s);
+			}
+		}
+		// Stable, so equal scores stay in document order
+		order.sort((a, b) -> Double.compare(scores[b], scores[a]));
+
+		List<Pair<String, Double>> result = new ArrayList<>();
+		for (int i = 0; i < Math.min(k, order.size()); ++i) {
+			result.add(new Pair<>(titles.get(order.get(i)), scores[order.get(i)]));
+		}
+		return result;
+	}
+
+	private static void addSection(String title, List<String> words, List<String> sectionLines,
+			List<String> lines, List<String> index) {
+		// Line numbers start at 1
+		index.add(title + "," + (lines.size() + 1));
+		lines.addAll(sectionLines);
+		titles.add(title);
+		sections.add(words);
+	}
+
+	/**
+	 * @return The name of a temporary file holding the lines
+	 */
+	private static String write(String prefix, List<String> lines) throws IOException {
+		File file = File.createTempFile(prefix, ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), String.join(System.lineSeparator(), lines).getBytes(StandardCharsets.UTF_8));
+		return file.getPath();
+	}
+}
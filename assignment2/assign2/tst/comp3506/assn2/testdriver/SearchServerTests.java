@@ -0,0 +1,166 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.application.SearchServer;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Triple;
+
+
+/**
+ * Tests every route of SearchServer over the loopback interface against
+ * calling the search directly, and the error statuses.
+ */
+public class SearchServerTests {
+
+	private static Search searchApplication;
+	private static SearchServer server;
+	private static String base;
+	// Status of the last request
+	private int status;
+
+	@BeforeClass
+	public static void startServer() throws IOException {
+		searchApplication = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+		server = new SearchServer(searchApplication, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+		base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getAddress().getPort();
+	}
+
+	@AfterClass
+	public static void stopServer() {
+		server.stop();
+	}
+
+	@Test(timeout=5000)
+	public void testWordCount() throws IOException {
+		assertThat(get("/wordCount?word=king"), is(equalTo(searchApplication.wordCount("king") + "\n")));
+		assertThat(status, is(equalTo(200)));
+	}
+
+	@Test(timeout=5000)
+	public void testPhraseOccurrence() throws IOException {
+		assertThat(get("/phraseOccurrence?phrase=" + encode("to be or not")),
+				is(equalTo(format(searchApplication.phraseOccurrence("to be or not")))));
+	}
+
+	@Test(timeout=5000)
+	public void testPrefixOccurrence() throws IOException {
+		// Many chunks of results
+		assertThat(get("/prefixOccurrence?prefix=t"), is(equalTo(format(searchApplication.prefixOccurrence("t")))));
+		assertThat(status, is(equalTo(200)));
+	}
+
+	@Test(timeout=5000)
+	public void testLineSearches() throws IOException {
+		String[] words = { "king", "crown" };
+		assertThat(get("/wordsOnLine?word=king&word=crown"), is(equalTo(format(searchApplication.wordsOnLine(words)))));
+		assertThat(get("/someWordsOnLine?word=king&word=crown"),
+				is(equalTo(format(searchApplication.someWordsOnLine(words)))));
+		assertThat(get("/wordsNotOnLine?required=king&excluded=crown"),
+				is(equalTo(format(searchApplication.wordsNotOnLine(new String[] { "king" }, new String[] { "crown" })))));
+	}
+
+	@Test(timeout=5000)
+	public void testSectionSearches() throws IOException {
+		String title = "title=" + encode("THE SONNETS");
+		String[] titles = { "THE SONNETS" };
+		assertThat(get("/simpleAndSearch?" + title + "&word=love&word=thee"),
+				is(equalTo(format(searchApplication.simpleAndSearch(titles, new String[] { "love", "thee" })))));
+		// No titles: the whole document
+		assertThat(get("/simpleAndSearch?word=love&word=thee"),
+				is(equalTo(format(searchApplication.simpleAndSearch(null, new String[] { "love", "thee" })))));
+		assertThat(get("/simpleOrSearch?" + title + "&word=love&word=thee"),
+				is(equalTo(format(searchApplication.simpleOrSearch(titles, new String[] { "love", "thee" })))));
+		assertThat(get("/simpleNotSearch?" + title + "&required=love&excluded=hate"),
+				is(equalTo(format(searchApplication.simpleNotSearch(titles, new String[] { "love" }, new String[] { "hate" })))));
+		assertThat(get("/compoundAndOrSearch?" + title + "&required=love&or=thee&or=hate"),
+				is(equalTo(format(searchApplication.compoundAndOrSearch(titles, new String[] { "love" }, new String[] { "thee", "hate" })))));
+	}
+
+	@Test(timeout=5000)
+	public void testNoResults() throws IOException {
+		assertThat(get("/wordsOnLine?word=xyzzy"), is(equalTo("")));
+		assertThat(status, is(equalTo(200)));
+	}
+
+	@Test(timeout=5000)
+	public void testInvalidArguments() throws IOException {
+		get("/wordCount?word=");
+		assertThat(status, is(equalTo(400)));
+		get("/phraseOccurrence");
+		assertThat(status, is(equalTo(400)));
+		// No excluded words is an empty array
+		get("/wordsNotOnLine?required=king");
+		assertThat(status, is(equalTo(400)));
+	}
+
+	@Test(timeout=5000)
+	public void testUnknownOperation() throws IOException {
+		get("/noSuchOperation?word=king");
+		assertThat(status, is(equalTo(404)));
+	}
+
+	@Test(timeout=5000)
+	public void testOnlyGet() throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(base + "/wordCount?word=king").openConnection();
+		connection.setRequestMethod("POST");
+		assertThat(connection.getResponseCode(), is(equalTo(405)));
+		connection.disconnect();
+	}
+
+	/**
+	 * @return The body of the response, whatever its status (which is kept
+	 *         in status)
+	 */
+	private String get(String path) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+		status = connection.getResponseCode();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			return in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return The results as the server writes them: one per line
+	 */
+	private static String format(List<?> results) {
+		StringBuilder text = new StringBuilder();
+		for (Object result : results) {
+			if (result instanceof Triple) {
+				Triple<?, ?, ?> triple = (Triple<?, ?, ?>) result;
+				text.append(triple.getLeftValue()).append(' ').append(triple.getCentreValue()).append(' ')
+						.append(triple.getRightValue());
+			} else if (result instanceof Pair) {
+				Pair<?, ?> pair = (Pair<?, ?>) result;
+				text.append(pair.getLeftValue()).append(' ').append(pair.getRightValue());
+			} else {
+				text.append(result);
+			}
+			text.append('\n');
+		}
+		return text.toString();
+	}
+}
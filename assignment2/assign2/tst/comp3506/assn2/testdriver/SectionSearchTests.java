@@ -0,0 +1,235 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.TestingTriple;
+import comp3506.assn2.utils.Triple;
+
+
+/**
+ * Tests the section searches against a full scan: every occurrence of each
+ * word is checked against the line interval of each section, instead of
+ * cutting the postings down with a binary search.
+ */
+public class SectionSearchTests {
+
+	private static final String[] WORDS = { "king", "queen", "crown", "love", "death", "sword", "ghost",
+			"night", "blood", "france", "rome", "wherefore", "the", "and", "xyzzy" };
+
+	private static Search searchApplication;
+	private static List<String> titles = new ArrayList<>();
+	private static List<Integer> startLines = new ArrayList<>();
+	private static Set<String> stopWords = new HashSet<>();
+
+	@BeforeClass
+	public static void openFiles() throws IOException {
+		searchApplication = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+		for (String entry : Files.readAllLines(new File("files\\shakespeare-index.txt").toPath(), StandardCharsets.UTF_8)) {
+			int comma = entry.lastIndexOf(',');
+			if (comma >= 0) {
+				titles.add(entry.substring(0, comma).trim());
+				startLines.add(Integer.parseInt(entry.substring(comma + 1).trim()));
+			}
+		}
+		Scanner scanner = new Scanner(new File("files\\stop-words.txt"));
+		while (scanner.hasNext()) {
+			stopWords.add(scanner.next());
+		}
+		scanner.close();
+	}
+
+	@Test(timeout=20000)
+	public void testRandomQueries() {
+		Random random = new Random(2);
+		for (int query = 0; query < 200; ++query) {
+			String[] sectionTitles = randomTitles(random);
+			String[] some = randomWords(random);
+			String[] others = randomWords(random);
+			assertThat("AND " + Arrays.toString(some) + " in " + Arrays.toString(sectionTitles),
+					makeTestingTriple(searchApplication.simpleAndSearch(sectionTitles, some)),
+					is(equalTo(fullScan(sectionTitles, some, null, null))));
+			assertThat("OR " + Arrays.toString(some) + " in " + Arrays.toString(sectionTitles),
+					makeTestingTriple(searchApplication.simpleOrSearch(sectionTitles, some)),
+					is(equalTo(fullScan(sectionTitles, new String[0], some, null))));
+			assertThat("NOT " + Arrays.toString(some) + Arrays.toString(others) + " in " + Arrays.toString(sectionTitles),
+					makeTestingTriple(searchApplication.simpleNotSearch(sectionTitles, some, others)),
+					is(equalTo(fullScan(sectionTitles, some, null, others))));
+			assertThat("AND-OR " + Arrays.toString(some) + Arrays.toString(others) + " in " + Arrays.toString(sectionTitles),
+					makeTestingTriple(searchApplication.compoundAndOrSearch(sectionTitles, some, others)),
+					is(equalTo(fullScan(sectionTitles, some, others, null))));
+		}
+	}
+
+	@Test(timeout=2000)
+	public void testEverySection() {
+		// Each section on its own, not the whole document as one
+		String[] all = titles.toArray(new String[0]);
+		String[] words = { "ghost", "king" };
+		assertThat(makeTestingTriple(searchApplication.simpleAndSearch(all, words)),
+				is(equalTo(fullScan(all, words, null, null))));
+		assertThat(makeTestingTriple(searchApplication.simpleNotSearch(all, words, new String[] { "denmark" })),
+				is(equalTo(fullScan(all, words, null, new String[] { "denmark" }))));
+	}
+
+	@Test(timeout=500)
+	public void testRepeatedAndUnknownTitles() {
+		String[] sectionTitles = { "THE TRAGEDY OF HAMLET", "NO SUCH SECTION", "THE TRAGEDY OF HAMLET" };
+		String[] words = { "ghost", "night" };
+		assertThat(makeTestingTriple(searchApplication.simpleAndSearch(sectionTitles, words)),
+				is(equalTo(fullScan(sectionTitles, words, null, null))));
+		assertThat(searchApplication.simpleOrSearch(new String[] { "NO SUCH SECTION" }, words).size(), is(equalTo(0)));
+	}
+
+	@Test(timeout=500)
+	public void testLastSectionRunsToTheEnd() {
+		String[] last = { titles.get(titles.size() - 1) };
+		String[] words = { "love", "night" };
+		assertThat(makeTestingTriple(searchApplication.simpleOrSearch(last, words)),
+				is(equalTo(fullScan(last, new String[0], words, null))));
+	}
+
+	/**
+	 * The expected result of a section search, found by checking the line of
+	 * every occurrence of every word against each section.
+	 */
+	private static List<TestingTriple<Integer, Integer, String>> fullScan(String[] sectionTitles,
+			String[] required, String[] optional, String[] excluded) {
+		List<TestingTriple<Integer, Integer, String>> expected = new ArrayList<>();
+		for (String word : required) {
+			// A required word that isn't in the document isn't in any section
+			if (searchApplication.wordCount(word) == 0) {
+				return expected;
+			}
+		}
+		String[] requiredWords = withoutStopWords(required);
+		String[] optionalWords = withoutStopWords(optional);
+		String[] excludedWords = withoutStopWords(excluded);
+
+		for (int[] interval : intervals(sectionTitles)) {
+			boolean matches = true;
+			for (String word : requiredWords) {
+				matches &= !inInterval(word, interval).isEmpty();
+			}
+			if (optionalWords.length > 0) {
+				boolean any = false;
+				for (String word : optionalWords) {
+					any |= !inInterval(word, interval).isEmpty();
+				}
+				matches &= any;
+			}
+			for (String word : excludedWords) {
+				matches &= inInterval(word, interval).isEmpty();
+			}
+			if (matches) {
+				addDistinct(expected, requiredWords, interval);
+				addDistinct(expected, optionalWords, interval);
+			}
+		}
+		return expected;
+	}
+
+	/**
+	 * @return The [start, end) line interval of each known title, in document
+	 *         order, or the whole document if there are no titles
+	 */
+	private static List<int[]> intervals(String[] sectionTitles) {
+		List<int[]> intervals = new ArrayList<>();
+		if (sectionTitles == null || sectionTitles.length == 0) {
+			intervals.add(new int[] { 1, Integer.MAX_VALUE });
+			return intervals;
+		}
+		Set<String> wanted = new HashSet<>(Arrays.asList(sectionTitles));
+		for (int i = 0; i < titles.size(); ++i) {
+			if (wanted.contains(titles.get(i))) {
+				int end = i + 1 < titles.size() ? startLines.get(i + 1) : Integer.MAX_VALUE;
+				intervals.add(new int[] { startLines.get(i), end });
+			}
+		}
+		return intervals;
+	}
+
+	private static List<TestingTriple<Integer, Integer, String>> inInterval(String word, int[] interval) {
+		List<TestingTriple<Integer, Integer, String>> found = new ArrayList<>();
+		for (Pair<Integer, Integer> occurrence : searchApplication.phraseOccurrence(word)) {
+			int line = occurrence.getLeftValue();
+			if (line >= interval[0] && line < interval[1]) {
+				found.add(new TestingTriple<>(line, occurrence.getRightValue(), word));
+			}
+		}
+		return found;
+	}
+
+	private static void addDistinct(List<TestingTriple<Integer, Integer, String>> expected, String[] words,
+			int[] interval) {
+		Set<String> seen = new HashSet<>();
+		for (String word : words) {
+			if (seen.add(word)) {
+				expected.addAll(inInterval(word, interval));
+			}
+		}
+	}
+
+	private static String[] withoutStopWords(String[] words) {
+		List<String> kept = new ArrayList<>();
+		if (words != null) {
+			for (String word : words) {
+				if (!stopWords.contains(word)) {
+					kept.add(word);
+				}
+			}
+		}
+		return kept.toArray(new String[0]);
+	}
+
+	private static String[] randomTitles(Random random) {
+		int count = random.nextInt(5);
+		if (count == 0) {
+			return random.nextBoolean() ? null : new String[0];
+		}
+		String[] sectionTitles = new String[count];
+		for (int i = 0; i < count; ++i) {
+			sectionTitles[i] = titles.get(random.nextInt(titles.size()));
+		}
+		return sectionTitles;
+	}
+
+	private static String[] randomWords(Random random) {
+		String[] words = new String[1 + random.nextInt(3)];
+		for (int i = 0; i < words.length; ++i) {
+			words[i] = WORDS[random.nextInt(WORDS.length)];
+		}
+		return words;
+	}
+
+	/**
+	 * @param data The list of Triples to be converted to a list of TestingTriples.
+	 */
+	private static List<TestingTriple<Integer, Integer, String>> makeTestingTriple(List<Triple<Integer, Integer, String>> data) {
+		List<TestingTriple<Integer, Integer, String>> result = new ArrayList<>();
+		for (Triple<Integer, Integer, String> triple: data) {
+			result.add(new TestingTriple<Integer, Integer, String>(triple));
+		}
+		return result;
+	}
+}
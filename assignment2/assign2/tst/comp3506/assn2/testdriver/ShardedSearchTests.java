@@ -0,0 +1,178 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.application.ShardedSearch;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.TestingPair;
+import comp3506.assn2.utils.TestingTriple;
+import comp3506.assn2.utils.Triple;
+
+
+/**
+ * Tests that a ShardedSearch gives the same results as an AutoTester of the
+ * whole document, in the same order, for one, two and many shards: with
+ * shards of a line or two, every phrase and section runs across shards.
+ */
+public class ShardedSearchTests {
+
+	private static final String[] SHAKESPEARE_WORDS = { "obscure", "love", "king", "crown", "death", "the",
+			"thee", "hamlet", "a", "of", "my", "lord" };
+	private static final String[] SHAKESPEARE_TITLES = { "THE TRAGEDY OF HAMLET, PRINCE OF DENMARK",
+			"THE SONNETS", "KING LEAR" };
+	// The words of the small document ("the" is a stop word)
+	private static final String[] SMALL_WORDS = { "a", "b", "c", "the", "d" };
+	private static final String[] SMALL_TITLES = { "ONE", "THREE" };
+
+	private static String stopWordsFileName = "files\\stop-words.txt";
+	private static ForkJoinPool pool;
+	private static AutoTester shakespeare;
+	private static String smallName;
+	private static String smallIndexName;
+	private static AutoTester small;
+
+	@BeforeClass
+	public static void openFiles() throws IOException {
+		pool = new ForkJoinPool(4);
+		shakespeare = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", stopWordsFileName);
+
+		// 300 short lines of a few words each, so tiny shards split phrases
+		// and sections every way
+		Random random = new Random(24);
+		StringBuilder text = new StringBuilder();
+		for (int line = 0; line < 300; ++line) {
+			int count = random.nextInt(4);
+			for (int i = 0; i < count; ++i) {
+				text.append(i > 0 ? " " : "").append(SMALL_WORDS[random.nextInt(SMALL_WORDS.length)]);
+			}
+			text.append('\n');
+		}
+		// The last line has no line break
+		text.append("a b");
+		smallName = write("sharded", text.toString());
+		smallIndexName = write("sharded-index", "ONE,1\nTWO,40\nTHREE,200\n");
+		small = new AutoTester(smallName, smallIndexName, stopWordsFileName);
+	}
+
+	@AfterClass
+	public static void closePool() {
+		pool.shutdown();
+	}
+
+	@Test(timeout=30000)
+	public void testShakespeare() throws IOException {
+		for (int shardCount : new int[] { 1, 2, 7 }) {
+			ShardedSearch sharded = new ShardedSearch("files\\shakespeare.txt", "files\\shakespeare-index.txt",
+					stopWordsFileName, shardCount, pool);
+			assertSameResults(shardCount + " shards: ", shakespeare, sharded, SHAKESPEARE_WORDS, SHAKESPEARE_TITLES);
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testSmallShards() throws IOException {
+		// Up to more shards than lines
+		for (int shardCount : new int[] { 1, 2, 3, 50, 299, 2000 }) {
+			ShardedSearch sharded = new ShardedSearch(smallName, smallIndexName, stopWordsFileName, shardCount, pool);
+			assertSameResults(shardCount + " shards: ", small, sharded, SMALL_WORDS, SMALL_TITLES);
+			// Sections split over many shards
+			assertThat(makeTestingTriple(sharded.simpleAndSearch(new String[] { "TWO" }, new String[] { "a", "d" })),
+					is(equalTo(makeTestingTriple(small.simpleAndSearch(new String[] { "TWO" }, new String[] { "a", "d" })))));
+			// Phrases across many shards
+			for (String phrase : new String[] { "a b c a", "d the a", "b b", "c d a b" }) {
+				assertThat(phrase, makeTestingPair(sharded.phraseOccurrence(phrase)),
+						is(equalTo(makeTestingPair(small.phraseOccurrence(phrase)))));
+			}
+		}
+	}
+
+	@Test(timeout=5000)
+	public void testCommonPool() throws IOException {
+		Search sharded = new ShardedSearch(smallName, smallIndexName, stopWordsFileName, 5);
+		assertSameResults("common pool: ", small, sharded, SMALL_WORDS, SMALL_TITLES);
+	}
+
+	@Test(timeout=500, expected=IllegalArgumentException.class)
+	public void testNoShards() throws IOException {
+		new ShardedSearch(smallName, smallIndexName, stopWordsFileName, 0);
+	}
+
+	private static void assertSameResults(String tag, Search expected, Search actual, String[] words,
+			String[] titles) {
+		for (int i = 0; i < words.length; ++i) {
+			String word = words[i];
+			String next = words[(i + 1) % words.length];
+			String last = words[(i + 2) % words.length];
+			String[] pair = { word, next };
+			String prefix = word.substring(0, Math.min(2, word.length()));
+			assertThat(tag + word, actual.wordCount(word), is(equalTo(expected.wordCount(word))));
+			assertThat(tag + word, makeTestingPair(actual.phraseOccurrence(word)),
+					is(equalTo(makeTestingPair(expected.phraseOccurrence(word)))));
+			assertThat(tag + word, makeTestingPair(actual.phraseOccurrence(word + " " + next + " " + last)),
+					is(equalTo(makeTestingPair(expected.phraseOccurrence(word + " " + next + " " + last)))));
+			// In the same order: grouped by word
+			assertThat(tag + prefix, makeTestingPair(actual.prefixOccurrence(prefix)),
+					is(equalTo(makeTestingPair(expected.prefixOccurrence(prefix)))));
+			assertThat(tag + word, actual.wordsOnLine(pair), is(equalTo(expected.wordsOnLine(pair))));
+			assertThat(tag + word, actual.someWordsOnLine(pair), is(equalTo(expected.someWordsOnLine(pair))));
+			assertThat(tag + word, actual.wordsNotOnLine(new String[] { word }, new String[] { next }),
+					is(equalTo(expected.wordsNotOnLine(new String[] { word }, new String[] { next }))));
+			assertThat(tag + word, makeTestingTriple(actual.simpleAndSearch(titles, pair)),
+					is(equalTo(makeTestingTriple(expected.simpleAndSearch(titles, pair)))));
+			assertThat(tag + word, makeTestingTriple(actual.simpleAndSearch(null, pair)),
+					is(equalTo(makeTestingTriple(expected.simpleAndSearch(null, pair)))));
+			assertThat(tag + word, makeTestingTriple(actual.simpleOrSearch(titles, pair)),
+					is(equalTo(makeTestingTriple(expected.simpleOrSearch(titles, pair)))));
+			assertThat(tag + word, makeTestingTriple(actual.simpleNotSearch(titles, new String[] { word }, new String[] { next })),
+					is(equalTo(makeTestingTriple(expected.simpleNotSearch(titles, new String[] { word }, new String[] { next })))));
+			assertThat(tag + word, makeTestingTriple(actual.compoundAndOrSearch(titles, new String[] { word }, pair)),
+					is(equalTo(makeTestingTriple(expected.compoundAndOrSearch(titles, new String[] { word }, pair)))));
+		}
+	}
+
+	private static String write(String prefix, String text) throws IOException {
+		File file = File.createTempFile(prefix, ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file.getPath();
+	}
+
+	/**
+	 * @param data The list of Pairs to be converted to a list of TestingPairs.
+	 */
+	private static List<TestingPair<Integer, Integer>> makeTestingPair(List<Pair<Integer, Integer>> data) {
+		List<TestingPair<Integer, Integer>> result = new ArrayList<>();
+		for (Pair<Integer, Integer> pair: data) {
+			result.add(new TestingPair<Integer, Integer>(pair));
+		}
+		return result;
+	}
+
+	/**
+	 * @param data The list of Triples to be converted to a list of TestingTriples.
+	 */
+	private static List<TestingTriple<Integer, Integer, String>> makeTestingTriple(List<Triple<Integer, Integer, String>> data) {
+		List<TestingTriple<Integer, Integer, String>> result = new ArrayList<>();
+		for (Triple<Integer, Integer, String> triple: data) {
+			result.add(new TestingTriple<Integer, Integer, String>(triple));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,199 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.utils.Pair;
+import comp3506.assn2.utils.Snapshot;
+import comp3506.assn2.utils.TestingPair;
+import comp3506.assn2.utils.TestingTriple;
+import comp3506.assn2.utils.Triple;
+
+
+/**
+ * Tests that a saved index loads back the same, and that the constructor
+ * ignores a saved index that is corrupt or was built from other files.
+ */
+public class SnapshotTests {
+
+	private static final String TEXT = "THE FIRST PART\n"
+			+ "the king and the crown\n"
+			+ "a crown for a king\n"
+			+ "THE SECOND PART\n"
+			+ "kingdom come, the king's crown\n";
+
+	private File document;
+	private File index;
+	private File stopWords;
+
+	@Before
+	public void writeFiles() throws IOException {
+		document = write("snapshot", TEXT);
+		index = write("snapshot-index", "THE FIRST PART,1\nTHE SECOND PART,4\n");
+		stopWords = write("snapshot-stop", "the\na\nand\n");
+	}
+
+	@After
+	public void deleteSnapshot() throws IOException {
+		Files.deleteIfExists(AutoTester.snapshotPath(document.getPath()));
+	}
+
+	@Test(timeout=5000)
+	public void testRoundTrip() throws IOException {
+		AutoTester built = open();
+		Path path = AutoTester.snapshotPath(document.getPath());
+		built.save(path);
+		assertSameResults(built, AutoTester.load(path));
+		// The constructor picks the saved index up
+		assertSameResults(built, open());
+	}
+
+	@Test(timeout=5000)
+	public void testLoadedIndexKeepsItsSources() throws IOException {
+		Path path = AutoTester.snapshotPath(document.getPath());
+		Path copy = new File(path + ".copy").toPath();
+		try {
+			open().save(path);
+			// Saved again from a loaded index, it is still built from the files
+			AutoTester.load(path).save(copy);
+			assertTrue(Snapshot.load(copy).isBuiltFrom(
+					Snapshot.fingerprint(document.getPath(), index.getPath(), stopWords.getPath())));
+			// Appending text updates the document's part of the fingerprint
+			Files.write(document.toPath(), (TEXT + "a new line\n").getBytes(StandardCharsets.UTF_8));
+			AutoTester.load(path).appendFrom(document.getPath(), TEXT.length(), null).save(copy);
+			assertTrue(Snapshot.load(copy).isBuiltFrom(
+					Snapshot.fingerprint(document.getPath(), index.getPath(), stopWords.getPath())));
+		} finally {
+			Files.deleteIfExists(copy);
+		}
+	}
+
+	@Test(timeout=5000)
+	public void testCorruptSnapshotIsIgnored() throws IOException {
+		AutoTester built = open();
+		Path path = AutoTester.snapshotPath(document.getPath());
+		built.save(path);
+		byte[] bytes = Files.readAllBytes(path);
+		// Flip a bit just before the checksum
+		bytes[bytes.length - 20] ^= 1;
+		Files.write(path, bytes);
+		try {
+			AutoTester.load(path);
+			fail("A snapshot with the wrong checksum should not load.");
+		} catch (IOException e) {
+			// Expected
+		}
+		assertSameResults(built, open());
+	}
+
+	@Test(timeout=5000)
+	public void testTruncatedSnapshotIsIgnored() throws IOException {
+		AutoTester built = open();
+		Path path = AutoTester.snapshotPath(document.getPath());
+		built.save(path);
+		byte[] bytes = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+		assertSameResults(built, open());
+	}
+
+	@Test(timeout=5000)
+	public void testStaleSnapshotIsIgnored() throws IOException {
+		open().save(AutoTester.snapshotPath(document.getPath()));
+		// Another document of the same length, so only the time differs
+		Files.write(document.toPath(), TEXT.replace("crown", "quill").getBytes(StandardCharsets.UTF_8));
+		assertTrue(document.setLastModified(document.lastModified() + 2000));
+		AutoTester reopened = open();
+		assertThat(reopened.wordCount("crown"), is(equalTo(0)));
+		assertThat(reopened.wordCount("quill"), is(equalTo(3)));
+	}
+
+	@Test(timeout=5000)
+	public void testSnapshotOfOtherStopWordsIsIgnored() throws IOException {
+		open().save(AutoTester.snapshotPath(document.getPath()));
+		AutoTester withoutStopWords = new AutoTester(document.getPath(), index.getPath(), null);
+		assertThat(withoutStopWords.wordsOnLine(new String[] { "the", "king" }).size(), is(equalTo(1)));
+	}
+
+	@Test(timeout=500)
+	public void testFingerprintOfNoFile() throws FileNotFoundException {
+		assertThat(Snapshot.fingerprint(null, ""), is(equalTo(new long[] { -1, -1, -1, -1 })));
+	}
+
+	@Test(timeout=500, expected=FileNotFoundException.class)
+	public void testFingerprintOfMissingFile() throws FileNotFoundException {
+		Snapshot.fingerprint(document.getPath() + ".missing");
+	}
+
+	@Test(timeout=500, expected=FileNotFoundException.class)
+	public void testMissingIndexFile() throws FileNotFoundException {
+		new AutoTester(document.getPath(), index.getPath() + ".missing", null);
+	}
+
+	private AutoTester open() throws FileNotFoundException {
+		return new AutoTester(document.getPath(), index.getPath(), stopWords.getPath());
+	}
+
+	private static void assertSameResults(AutoTester expected, AutoTester actual) {
+		for (String word : new String[] { "king", "crown", "kingdom", "the", "come" }) {
+			assertThat(word, actual.wordCount(word), is(equalTo(expected.wordCount(word))));
+			assertThat(word, makeTestingPair(actual.phraseOccurrence(word)),
+					is(equalTo(makeTestingPair(expected.phraseOccurrence(word)))));
+		}
+		assertThat(makeTestingPair(actual.prefixOccurrence("king")),
+				is(equalTo(makeTestingPair(expected.prefixOccurrence("king")))));
+		assertThat(makeTestingPair(actual.phraseOccurrence("the king")),
+				is(equalTo(makeTestingPair(expected.phraseOccurrence("the king")))));
+		String[] words = { "king", "crown" };
+		assertThat(actual.wordsOnLine(words), is(equalTo(expected.wordsOnLine(words))));
+		assertThat(makeTestingTriple(actual.simpleAndSearch(new String[] { "THE SECOND PART" }, words)),
+				is(equalTo(makeTestingTriple(expected.simpleAndSearch(new String[] { "THE SECOND PART" }, words)))));
+		assertThat(makeTestingPair(actual.rankedSectionSearch(null, words, 2)),
+				is(equalTo(makeTestingPair(expected.rankedSectionSearch(null, words, 2)))));
+	}
+
+	private static File write(String prefix, String text) throws IOException {
+		File file = File.createTempFile(prefix, ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * @param data The list of Pairs to be converted to a list of TestingPairs.
+	 */
+	private static <L, R> List<TestingPair<L, R>> makeTestingPair(List<Pair<L, R>> data) {
+		List<TestingPair<L, R>> result = new ArrayList<>();
+		for (Pair<L, R> pair: data) {
+			result.add(new TestingPair<L, R>(pair));
+		}
+		return result;
+	}
+
+	/**
+	 * @param data The list of Triples to be converted to a list of TestingTriples.
+	 */
+	private static List<TestingTriple<Integer, Integer, String>> makeTestingTriple(List<Triple<Integer, Integer, String>> data) {
+		List<TestingTriple<Integer, Integer, String>> result = new ArrayList<>();
+		for (Triple<Integer, Integer, String> triple: data) {
+			result.add(new TestingTriple<Integer, Integer, String>(triple));
+		}
+		return result;
+	}
+}
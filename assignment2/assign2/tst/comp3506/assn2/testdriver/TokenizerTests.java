@@ -0,0 +1,98 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.utils.TestingPair;
+import comp3506.assn2.utils.Pair;
+
+
+/**
+ * Tests that the tokenizer reports columns as the line read as UTF-8 text
+ * would: a multi-byte character (such as a curly quote or dash) is one column.
+ */
+public class TokenizerTests {
+
+	private static Search shakespeare;
+
+	@BeforeClass
+	public static void openFiles() throws IOException {
+		shakespeare = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+	}
+
+	@Test(timeout=500)
+	public void testColumnAfterCurlyQuoteInShakespeare() {
+		// Line 148360 starts with a left double quote (3 bytes in UTF-8)
+		assertThat("'good night' should be found one column after the quote.",
+				makeTestingPair(shakespeare.phraseOccurrence("good night")), hasItem(new TestingPair<>(148360, 17)));
+		assertThat("'ghost' should be found one column after the quote.",
+				makeTestingPair(shakespeare.prefixOccurrence("ghos")), hasItem(new TestingPair<>(148824, 16)));
+	}
+
+	@Test(timeout=500)
+	public void testNoWordsFromQuoteBytes() {
+		// The first byte of a curly quote, read on its own, would be '\u00E2'
+		assertThat("Bytes of a quote should not make a word.", shakespeare.wordCount("\u00E2"), is(equalTo(0)));
+	}
+
+	@Test(timeout=5000)
+	public void testColumnsAfterMultiByteCharacters() throws IOException {
+		Search search = load("\u201Chello\u201D world\n"
+				+ "caf\u00E9 \u2014 na\u00EFve don\u2019t\n"
+				+ "\uD83D\uDE00 smile\n");
+		assertThat(makeTestingPair(search.phraseOccurrence("hello")), is(equalTo(Arrays.asList(new TestingPair<>(1, 2)))));
+		assertThat(makeTestingPair(search.phraseOccurrence("world")), is(equalTo(Arrays.asList(new TestingPair<>(1, 9)))));
+		// Accented letters are part of words
+		assertThat(makeTestingPair(search.phraseOccurrence("caf\u00E9")), is(equalTo(Arrays.asList(new TestingPair<>(2, 1)))));
+		assertThat(makeTestingPair(search.phraseOccurrence("na\u00EFve")), is(equalTo(Arrays.asList(new TestingPair<>(2, 8)))));
+		// A curly apostrophe is not an apostrophe: "don" and "t"
+		assertThat(makeTestingPair(search.phraseOccurrence("don")), is(equalTo(Arrays.asList(new TestingPair<>(2, 14)))));
+		assertThat(makeTestingPair(search.phraseOccurrence("t")), is(equalTo(Arrays.asList(new TestingPair<>(2, 18)))));
+		// A character outside the BMP is two columns
+		assertThat(makeTestingPair(search.phraseOccurrence("smile")), is(equalTo(Arrays.asList(new TestingPair<>(3, 4)))));
+	}
+
+	@Test(timeout=5000)
+	public void testAppendedLinesAreUtf8() throws IOException {
+		Search search = ((AutoTester) load("first line\n")).append(new String[] { "\u2018quoted\u2019 word" });
+		assertThat(makeTestingPair(search.phraseOccurrence("word")), is(equalTo(Arrays.asList(new TestingPair<>(2, 10)))));
+	}
+
+	/**
+	 * @param text The text of a document
+	 * @return A search of the document, written to a temporary file as UTF-8
+	 */
+	private static Search load(String text) throws IOException {
+		File file = File.createTempFile("tokenizer", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return new AutoTester(file.getPath(), null, null);
+	}
+
+	/**
+	 * @param data The list of Pairs to be converted to a list of TestingPairs.
+	 */
+	private static List<TestingPair<Integer, Integer>> makeTestingPair(List<Pair<Integer, Integer>> data) {
+		List<TestingPair<Integer, Integer>> result = new ArrayList<>();
+		for (Pair<Integer, Integer> pair: data) {
+			result.add(new TestingPair<Integer, Integer>(pair));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,134 @@
+package comp3506.assn2.testdriver;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
+
+import comp3506.assn2.application.AutoTester;
+import comp3506.assn2.application.Search;
+import comp3506.assn2.utils.Pair;
+
+
+/**
+ * Tests wordsNotOnLine against a naive set difference: the lines every
+ * required word is on, less the lines any excluded word is on.
+ */
+public class WordsNotOnLineTests {
+
+	private static final String[] WORDS = { "king", "queen", "lord", "love", "good", "sir", "death", "night",
+			"heaven", "blood", "sweet", "thou", "thee", "hath", "the", "and", "xyzzy" };
+
+	private static Search searchApplication;
+	private static Set<String> stopWords = new HashSet<>();
+
+	@BeforeClass
+	public static void openFiles() throws FileNotFoundException {
+		searchApplication = new AutoTester("files\\shakespeare.txt", "files\\shakespeare-index.txt", "files\\stop-words.txt");
+		Scanner scanner = new Scanner(new File("files\\stop-words.txt"));
+		while (scanner.hasNext()) {
+			stopWords.add(scanner.next());
+		}
+		scanner.close();
+	}
+
+	@Test(timeout=10000)
+	public void testRandomQueries() {
+		Random random = new Random(10);
+		for (int query = 0; query < 300; ++query) {
+			String[] required = randomWords(random);
+			String[] excluded = randomWords(random);
+			assertThat(Arrays.toString(required) + " not " + Arrays.toString(excluded),
+					searchApplication.wordsNotOnLine(required, excluded), is(equalTo(naive(required, excluded))));
+		}
+	}
+
+	@Test(timeout=500)
+	public void testCommonExcludedWord() {
+		// Taking a frequent word away from a rare one's lines
+		String[] required = { "ghost" };
+		String[] excluded = { "thou", "lord" };
+		assertThat(searchApplication.wordsNotOnLine(required, excluded), is(equalTo(naive(required, excluded))));
+	}
+
+	@Test(timeout=500)
+	public void testExcludingARequiredWord() {
+		assertThat(searchApplication.wordsNotOnLine(new String[] { "king" }, new String[] { "king" }).size(), is(equalTo(0)));
+	}
+
+	@Test(timeout=500)
+	public void testMissingAndStopWordsExcludeNothing() {
+		String[] required = { "crown" };
+		List<Integer> all = searchApplication.wordsOnLine(required);
+		assertThat(searchApplication.wordsNotOnLine(required, new String[] { "xyzzy" }), is(equalTo(all)));
+		assertThat(searchApplication.wordsNotOnLine(required, new String[] { "the" }), is(equalTo(all)));
+	}
+
+	@Test(timeout=500)
+	public void testOnlyStopWordsRequired() {
+		assertThat(searchApplication.wordsNotOnLine(new String[] { "the", "and" }, new String[] { "king" }).size(), is(equalTo(0)));
+	}
+
+	/**
+	 * The expected lines, as sets of lines taken from every occurrence of
+	 * each word.
+	 */
+	private static List<Integer> naive(String[] required, String[] excluded) {
+		TreeSet<Integer> lines = null;
+		for (String word : required) {
+			if (searchApplication.wordCount(word) == 0) {
+				// No line has a word that isn't in the document
+				return new ArrayList<>();
+			}
+			if (stopWords.contains(word)) {
+				continue;
+			}
+			TreeSet<Integer> wordLines = linesOf(word);
+			if (lines == null) {
+				lines = wordLines;
+			} else {
+				lines.retainAll(wordLines);
+			}
+		}
+		if (lines == null) {
+			// Nothing but stop words
+			return new ArrayList<>();
+		}
+		for (String word : excluded) {
+			if (!stopWords.contains(word)) {
+				lines.removeAll(linesOf(word));
+			}
+		}
+		return new ArrayList<>(lines);
+	}
+
+	private static TreeSet<Integer> linesOf(String word) {
+		TreeSet<Integer> lines = new TreeSet<>();
+		for (Pair<Integer, Integer> occurrence : searchApplication.phraseOccurrence(word)) {
+			lines.add(occurrence.getLeftValue());
+		}
+		return lines;
+	}
+
+	private static String[] randomWords(Random random) {
+		String[] words = new String[1 + random.nextInt(3)];
+		for (int i = 0; i < words.length; ++i) {
+			words[i] = WORDS[random.nextInt(WORDS.length)];
+		}
+		return words;
+	}
+}